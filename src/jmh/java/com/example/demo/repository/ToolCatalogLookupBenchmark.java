@@ -0,0 +1,111 @@
+package com.example.demo.repository;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Tool catalog lookups (the SQL of the ToolRepository finders; a tool joined with its rental cost) against a catalog of
+ * 1M tools, before and after the V3 migration (typed charges, unique constraints, indexes and foreign key).
+ *
+ *   ./gradlew jmh -PjmhIncludes=ToolCatalogLookupBenchmark
+ *
+ * - schemaVersion 2: the original schema; every lookup is a full scan of the tool table
+ * - schemaVersion 3: the typed, indexed schema; lookups by code, type and brand are index lookups
+ *
+ * The catalog has 1,000 tool types (i.e. ~1,000 tools per type) and 5,000 brands (~200 tools per brand).  Each
+ * schema version is built in its own in-memory H2 database, by the application's Flyway migrations.
+ */
+@State(Scope.Benchmark)
+public class ToolCatalogLookupBenchmark {
+    private static final int NUMBER_OF_TOOL_TYPES = 1_000;
+    private static final int NUMBER_OF_BRANDS = 5_000;
+    private static final String SELECT_TOOL = "SELECT t.id, t.tool_code, t.tool_type, t.brand, c.daily_charge, "
+            + "c.weekday_charge, c.weekend_charge, c.holiday_charge FROM tool t LEFT JOIN rental_cost c ON c.tool_type = t.tool_type ";
+
+    @Param({"2", "3"})
+    public String schemaVersion;
+
+    @Param({"1000000"})
+    public int numberOfTools;
+
+    private Connection connection;
+    private PreparedStatement findByCode;
+    private PreparedStatement findByType;
+    private PreparedStatement findByBrand;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        String url = "jdbc:h2:mem:catalog-v" + schemaVersion + ";DB_CLOSE_DELAY=-1";
+        Flyway.configure()
+                .dataSource(url, "sa", "")
+                .locations("classpath:db/migration")
+                .target(schemaVersion)
+                .load()
+                .migrate();
+
+        connection = DriverManager.getConnection(url, "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO rental_cost (tool_type, daily_charge, weekday_charge, weekend_charge, holiday_charge) "
+                    + "SELECT 'Type-' || X, '1.99', true, MOD(X, 2) = 0, MOD(X, 3) = 0 "
+                    + "FROM SYSTEM_RANGE(0, " + (NUMBER_OF_TOOL_TYPES - 1) + ")");
+            statement.execute("INSERT INTO tool (tool_code, tool_type, brand) "
+                    + "SELECT 'T' || LPAD(X, 9, '0'), 'Type-' || MOD(X, " + NUMBER_OF_TOOL_TYPES + "), "
+                    + "'Brand-' || MOD(X, " + NUMBER_OF_BRANDS + ") FROM SYSTEM_RANGE(1, " + numberOfTools + ")");
+            statement.execute("ANALYZE");
+        }
+
+        findByCode = connection.prepareStatement(SELECT_TOOL + "WHERE t.tool_code = ?");
+        findByType = connection.prepareStatement(SELECT_TOOL + "WHERE t.tool_type = ?");
+        findByBrand = connection.prepareStatement(SELECT_TOOL + "WHERE t.brand = ?");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public int findByCode() throws SQLException {
+        findByCode.setString(1, String.format("T%09d", ThreadLocalRandom.current().nextInt(1, numberOfTools + 1)));
+        return countRows(findByCode);
+    }
+
+    @Benchmark
+    public int findByType() throws SQLException {
+        findByType.setString(1, "Type-" + ThreadLocalRandom.current().nextInt(NUMBER_OF_TOOL_TYPES));
+        return countRows(findByType);
+    }
+
+    @Benchmark
+    public int findByBrand() throws SQLException {
+        findByBrand.setString(1, "Brand-" + ThreadLocalRandom.current().nextInt(NUMBER_OF_BRANDS));
+        return countRows(findByBrand);
+    }
+
+    private static int countRows(PreparedStatement preparedStatement) throws SQLException {
+        int rows = 0;
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+}
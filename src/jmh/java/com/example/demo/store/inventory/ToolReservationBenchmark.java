@@ -0,0 +1,65 @@
+package com.example.demo.store.inventory;
+
+import com.example.demo.entities.ToolUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Contention benchmark for ToolInventory reservations.
+ *
+ * Every thread reserves (and then releases) a unit of the same tool code, for a random week within a ten year window;
+ * i.e. all threads contend for the units of a single busy tool code.  Run it with an increasing number of threads to see
+ * how throughput scales, e.g.
+ *   ./gradlew jmh -PjmhIncludes=ToolReservationBenchmark -PjmhMode=thrpt -PjmhThreads=1
+ *   ./gradlew jmh -PjmhIncludes=ToolReservationBenchmark -PjmhMode=thrpt -PjmhThreads=8
+ *
+ * The number of units is a parameter; with a single unit every reservation races on the same unit, and with more units
+ * the random starting unit spreads the threads across the units.
+ */
+@State(Scope.Benchmark)
+public class ToolReservationBenchmark {
+    private static final String TOOL_CODE = "JAKR";
+    private static final int WINDOW_DAYS = 3650;
+    private static final int RESERVATION_DAYS = 7;
+
+    @Param({"1", "4", "16"})
+    public int numberOfUnits;
+
+    private ToolInventory toolInventory;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<ToolUnit> toolUnits = new ArrayList<>();
+        for (int unit = 1; unit <= numberOfUnits; unit++) {
+            ToolUnit toolUnit = new ToolUnit();
+            toolUnit.setToolCode(TOOL_CODE);
+            toolUnit.setSerialNumber(String.format("%s-%03d", TOOL_CODE, unit));
+            toolUnits.add(toolUnit);
+        }
+        toolInventory = new ToolInventory(null, null, null);
+        toolInventory.loadUnits(toolUnits);
+    }
+
+    //  Reserves and releases a unit; a reservation which finds every unit busy (rare) is still a completed operation
+    @Benchmark
+    public boolean reserveAndRelease() {
+        long firstEpochDay = ThreadLocalRandom.current().nextInt(WINDOW_DAYS);
+        Reservation reservation = toolInventory.reserve(TOOL_CODE, firstEpochDay, firstEpochDay + RESERVATION_DAYS);
+        return reservation != null && toolInventory.release(reservation);
+    }
+
+    //  Availability check only; reads never contend
+    @Benchmark
+    public int countAvailableUnits() {
+        long firstEpochDay = ThreadLocalRandom.current().nextInt(WINDOW_DAYS);
+        return toolInventory.countAvailableUnits(TOOL_CODE, firstEpochDay, firstEpochDay + RESERVATION_DAYS);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.demo.store.rentals;
+
+import com.example.demo.data.DemoTestData;
+import com.example.demo.entities.Tool;
+import com.example.demo.services.ToolService;
+import com.example.demo.store.rentals.exceptions.RentalRequestException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * JMH benchmarks for the checkout and pricing path:
+ *  - CheckoutService.checkout()            -- request validation, tool lookup, and finalizing the agreement
+ *  - RentalAgreement.finalizeAgreement()   -- day type counting and pricing only
+ *  - RentalDateManager.isHoliday()         -- classifying every day of the rental period
+ *  - RentalAgreement.toString()            -- formatting the finalized agreement
+ *
+ * Each benchmark is run for every tool in demoTestData.json, across rental lengths from 1 to 3650 days.
+ * The tool lookup is served from the test data (no database), so the benchmarks measure only the checkout logic.
+ *
+ * See the jmh block in build.gradle for running the benchmarks, the GC profiler, and the results file.
+ */
+@State(Scope.Benchmark)
+public class RentalCheckoutBenchmark {
+    private static final String CHECKOUT_DATE = "07/02/20";
+    private static final String DISCOUNT = "10";
+
+    @Param({"CHNS", "LADW", "JAKD", "JAKR"})
+    public String toolCode;
+
+    @Param({"1", "7", "30", "90", "365", "3650"})
+    public int rentalDays;
+
+    private final RentalDateManager rentalDateManager = RentalDateManager.getInstance();
+
+    private CheckoutService checkoutService;
+    private RentalRequest rentalRequest;
+    private RentalAgreement initializedAgreement;
+    private RentalAgreement finalizedAgreement;
+    private Date[] rentalPeriod;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, RentalRequestException {
+        DemoTestData demoTestData;
+        try (InputStream inputStream = RentalCheckoutBenchmark.class.getResourceAsStream("/demoTestData.json")) {
+            demoTestData = new ObjectMapper().readValue(inputStream, DemoTestData.class);
+        }
+
+        //  ToolService serving tool lookups from the test data
+        List<Tool> tools = demoTestData.getTools();
+        ToolService toolService = new ToolService(null) {
+            @Override
+            public List<Tool> findByCode(String tool_code) {
+                return tools.stream().filter(tool -> tool.getTool_code().equals(tool_code)).toList();
+            }
+        };
+        checkoutService = new CheckoutService(toolService);
+
+        rentalRequest = new RentalRequest()
+                .setToolCode(toolCode)
+                .setCheckoutDate(CHECKOUT_DATE)
+                .setNumberOfRentalDays(rentalDays)
+                .setDiscount(DISCOUNT);
+
+        initializedAgreement = CheckoutService.validateRequestAndInitializeRentalAgreement(rentalRequest, toolService);
+        finalizedAgreement = checkoutService.checkout(rentalRequest);
+
+        long firstRentalDay = finalizedAgreement.getStartEpochDay() + 1;
+        rentalPeriod = new Date[rentalDays];
+        for (int day = 0; day < rentalDays; day++) {
+            rentalPeriod[day] = RentalDateManager.epochDayToDate(firstRentalDay + day);
+        }
+    }
+
+    @Benchmark
+    public RentalAgreement checkout() throws RentalRequestException {
+        return checkoutService.checkout(rentalRequest);
+    }
+
+    @Benchmark
+    public RentalAgreement finalizeAgreement() throws RentalRequestException {
+        return initializedAgreement.finalizeAgreement();
+    }
+
+    @Benchmark
+    public void isHoliday(Blackhole blackhole) {
+        for (Date day : rentalPeriod) {
+            blackhole.consume(rentalDateManager.isHoliday(day));
+        }
+    }
+
+    @Benchmark
+    public String agreementToString() {
+        return finalizedAgreement.toString();
+    }
+}
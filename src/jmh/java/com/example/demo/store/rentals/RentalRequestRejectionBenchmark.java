@@ -0,0 +1,130 @@
+package com.example.demo.store.rentals;
+
+import com.example.demo.entities.Tool;
+import com.example.demo.services.ToolService;
+import com.example.demo.store.rentals.exceptions.RentalRequestException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * JMH benchmarks for the cost of a rejected rental request:
+ *  - rejected()  -- CheckoutService.checkout() of an invalid request; a stackless RentalRequestException, whose message
+ *                   is formatted when the error response is written
+ *  - legacy()    -- the same request validated as before; a String.format() message, a stack trace, and for a non-numeric
+ *                   discount a NumberFormatException (which escaped checkout as an error rather than a rejection)
+ *
+ * Each benchmark is run for each kind of invalid request, at a shallow stack and at a stack depth similar to a checkout
+ * called from the servlet container (the cost of filling in a stack trace is proportional to its depth).  Both
+ * benchmarks return the error code (or exception type) and message, as the error response would.
+ *
+ *   ./gradlew jmh -PjmhIncludes=RentalRequestRejectionBenchmark
+ */
+@State(Scope.Benchmark)
+public class RentalRequestRejectionBenchmark {
+    private static final String TOOL_CODE = "LADW";
+
+    @Param({"INVALID_DISCOUNT", "INVALID_RENTAL_DAYS", "UNKNOWN_TOOL_CODE", "INVALID_CHECKOUT_DATE"})
+    public RentalRequestException.Reason reason;
+
+    @Param({"0", "150"})
+    public int stackDepth;
+
+    private CheckoutService checkoutService;
+    private RentalRequest rentalRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        //  ToolService that knows a single tool code; the date is only validated once the tool is found
+        Tool tool = new Tool();
+        tool.setTool_code(TOOL_CODE);
+        ToolService toolService = new ToolService(null) {
+            @Override
+            public List<Tool> findByCode(String tool_code) {
+                return TOOL_CODE.equals(tool_code) ? List.of(tool) : List.of();
+            }
+        };
+        checkoutService = new CheckoutService(toolService);
+
+        rentalRequest = new RentalRequest()
+                .setToolCode(TOOL_CODE)
+                .setCheckoutDate("07/02/20")
+                .setNumberOfRentalDays(3)
+                .setDiscount("10");
+        switch (reason) {
+            case INVALID_DISCOUNT -> rentalRequest.setDiscount("abc");
+            case INVALID_RENTAL_DAYS -> rentalRequest.setNumberOfRentalDays(0);
+            case INVALID_CHECKOUT_DATE -> rentalRequest.setCheckoutDate("2020-07-02");
+            case UNKNOWN_TOOL_CODE -> rentalRequest.setToolCode("NONE");
+            default -> { }
+        }
+    }
+
+    @Benchmark
+    public String rejected() {
+        return atStackDepth(stackDepth, this::checkout);
+    }
+
+    @Benchmark
+    public String legacy() {
+        return atStackDepth(stackDepth, this::legacyCheckout);
+    }
+
+    private String checkout() {
+        try {
+            checkoutService.checkout(rentalRequest);
+            throw new IllegalStateException("Request was not rejected");
+        } catch (RentalRequestException e) {
+            return e.getReason().getCode() + ": " + e.getMessage();
+        }
+    }
+
+    //  The validation as it was; each rejection is a RentalRequestException with a String.format() message and a stack
+    //  trace, and a non-numeric discount a NumberFormatException
+    private String legacyCheckout() {
+        try {
+            if (rentalRequest.getNumberOfRentalDays() < 1) {
+                throw new LegacyRentalRequestException(String.format(
+                        "Rental days must be greater than 0! Given number of days = %d", rentalRequest.getNumberOfRentalDays()));
+            }
+            int discount = Integer.parseInt(rentalRequest.getDiscount());
+            if (discount < 0 || discount > 100) {
+                throw new LegacyRentalRequestException(String.format(
+                        "Discount percent must be between 0 and 100! Given discount percent = %d", discount));
+            }
+            if (!TOOL_CODE.equals(rentalRequest.getToolCode())) {
+                throw new LegacyRentalRequestException(String.format("No tool found for tool code = %s", rentalRequest.getToolCode()));
+            }
+            try {
+                RentalDateManager.getInstance().stringToLocalDate(rentalRequest.getCheckoutDate());
+            } catch (RentalRequestException e) {
+                //  the formatter's DateTimeParseException, wrapped
+                throw new LegacyRentalRequestException("Invalid date format: " + rentalRequest.getCheckoutDate(),
+                        new IllegalArgumentException(e.getMessage()));
+            }
+            throw new IllegalStateException("Request was not rejected");
+        } catch (LegacyRentalRequestException | NumberFormatException e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+
+    private static String atStackDepth(int depth, Supplier<String> checkout) {
+        return depth == 0 ? checkout.get() : atStackDepth(depth - 1, checkout);
+    }
+
+    private static class LegacyRentalRequestException extends Exception {
+        LegacyRentalRequestException(String message) {
+            super(message);
+        }
+
+        LegacyRentalRequestException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
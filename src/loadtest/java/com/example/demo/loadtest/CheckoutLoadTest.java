@@ -0,0 +1,196 @@
+package com.example.demo.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load generator used to compare the application running on platform threads (the default) with the
+ * application running on virtual threads (the "virtual" profile).
+ *
+ * Each of the concurrent clients sends requests back to back, for the given duration, cycling through a checkout of a
+ * rental (POST /rental/checkout), the return of the rented unit (POST /rental/return, by the agreement id in the
+ * checkout response), and a catalog listing (GET /tools,
+ * which reads through the JPA repository).  Every rental starts on its own checkout date (see nextRentalRequest()), and
+ * its unit is returned before the client's next checkout; so the clients do not compete for the tool's few units, and
+ * the checkouts measured are successful checkouts rather than 409 (tool unavailable) rejections.  Any response other
+ * than 200 is counted as an error.  Requests sent during the warmup period are not measured.  The throughput and
+ * latency percentiles of the measured requests are printed when the run completes.
+ *
+ * Usage (see the loadTest task in build.gradle):
+ *   ./gradlew loadTest -PloadTestArgs="<baseUrl> <concurrency> <durationSeconds> <warmupSeconds>"
+ *   e.g.
+ *   ./gradlew loadTest -PloadTestArgs="http://localhost:8080 400 30 10"
+ *
+ * Run it once against the application started with the default profile, and once against the application started with
+ * --spring.profiles.active=virtual (on Java 21+; see build.gradle); the concurrency must exceed
+ * server.tomcat.threads.max (200) for the platform thread pool to become the limit.  The load generator itself runs on
+ * Java 17, but its clients only run on virtual threads on Java 21+.
+ */
+public class CheckoutLoadTest {
+    private static final String RENTAL_REQUEST = """
+            {"toolCode": "LADW", "checkoutDate": "%s", "numberOfRentalDays": 1, "discount": "10"}""";
+    private static final String RETURN_REQUEST = """
+            {"agreementId": "%s"}""";
+    //  The agreement id is the first property of the checkout response
+    private static final String AGREEMENT_ID_PREFIX = "{\"Agreement id\":\"";
+    //  A one day rental reserves its unit for two days (the checkout date through the due date); so rentals two days
+    //  apart never overlap.  There are far more checkout dates than concurrent clients, so a date comes round again
+    //  only long after its previous rental has been returned.
+    private static final LocalDate FIRST_CHECKOUT_DATE = LocalDate.of(2020, 1, 1);
+    private static final int NUMBER_OF_CHECKOUT_DATES = 2000;
+    private static final DateTimeFormatter CHECKOUT_DATE_FORMATTER = DateTimeFormatter.ofPattern("MM/dd/yy");
+    private static final AtomicLong rentals = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+        int durationSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int warmupSeconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        ExecutorService httpClientExecutor = newClientExecutor();
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(httpClientExecutor)
+                .build();
+        URI checkout = URI.create(baseUrl + "/rental/checkout");
+        URI returns = URI.create(baseUrl + "/rental/return");
+        HttpRequest tools = HttpRequest.newBuilder(URI.create(baseUrl + "/tools")).GET().build();
+
+        long measureFromNanos = System.nanoTime() + Duration.ofSeconds(warmupSeconds).toNanos();
+        long endNanos = measureFromNanos + Duration.ofSeconds(durationSeconds).toNanos();
+
+        System.out.printf("Load test: %s, %d concurrent clients, %ds warmup, %ds measured%n",
+                baseUrl, concurrency, warmupSeconds, durationSeconds);
+
+        List<Future<ClientResult>> futures = new ArrayList<>(concurrency);
+        ExecutorService clients = newClientExecutor();
+        for (int client = 0; client < concurrency; client++) {
+            futures.add(clients.submit(() -> runClient(httpClient, checkout, returns, tools, measureFromNanos, endNanos)));
+        }
+        clients.shutdown();
+        clients.awaitTermination(warmupSeconds + durationSeconds + 60L, TimeUnit.SECONDS);
+        httpClientExecutor.shutdown();
+
+        //  merge the results of all clients
+        int numberOfRequests = 0;
+        int numberOfErrors = 0;
+        for (Future<ClientResult> future : futures) {
+            numberOfRequests += future.get().numberOfLatencies;
+            numberOfErrors += future.get().numberOfErrors;
+        }
+        long[] latencyNanos = new long[numberOfRequests];
+        int offset = 0;
+        for (Future<ClientResult> future : futures) {
+            ClientResult clientResult = future.get();
+            System.arraycopy(clientResult.latencyNanos, 0, latencyNanos, offset, clientResult.numberOfLatencies);
+            offset += clientResult.numberOfLatencies;
+        }
+        Arrays.sort(latencyNanos);
+
+        System.out.printf("requests      %d (errors %d)%n", numberOfRequests, numberOfErrors);
+        System.out.printf("throughput    %.1f requests/s%n", numberOfRequests / (double) durationSeconds);
+        for (double percentile : new double[] {50, 90, 99, 99.9}) {
+            System.out.printf("p%-12s %.2f ms%n", percentile, percentileMillis(latencyNanos, percentile));
+        }
+        System.out.printf("max           %.2f ms%n", percentileMillis(latencyNanos, 100));
+    }
+
+    //  A virtual thread per task when running on Java 21+, and a (growing) pool of platform threads otherwise; the same
+    //  on either side of the comparison, as it is the client, not the application, which runs on it
+    private static ExecutorService newClientExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private static ClientResult runClient(HttpClient httpClient, URI checkout, URI returns, HttpRequest tools,
+                                          long measureFromNanos, long endNanos) {
+        ClientResult clientResult = new ClientResult();
+        String agreementId = null;
+        int step = 0;
+        long startNanos;
+        while ((startNanos = System.nanoTime()) < endNanos) {
+            HttpRequest request = switch (step) {
+                case 0 -> post(checkout, nextRentalRequest());
+                case 1 -> post(returns, String.format(RETURN_REQUEST, agreementId));
+                default -> tools;
+            };
+            boolean failed;
+            try {
+                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                failed = response.statusCode() != 200;
+                if (step == 0) {
+                    agreementId = failed ? null : agreementId(response.body());
+                }
+            } catch (Exception e) {
+                failed = true;
+            }
+            if (startNanos >= measureFromNanos) {
+                clientResult.add(System.nanoTime() - startNanos, failed);
+            }
+            step = (step + 1) % 3;
+        }
+        return clientResult;
+    }
+
+    //  The next rental; each starts two days after the previous one (see NUMBER_OF_CHECKOUT_DATES)
+    private static String nextRentalRequest() {
+        long rental = rentals.getAndIncrement() % NUMBER_OF_CHECKOUT_DATES;
+        return String.format(RENTAL_REQUEST, FIRST_CHECKOUT_DATE.plusDays(rental * 2).format(CHECKOUT_DATE_FORMATTER));
+    }
+
+    private static String agreementId(String checkoutResponse) {
+        if (!checkoutResponse.startsWith(AGREEMENT_ID_PREFIX)) {
+            return null;
+        }
+        return checkoutResponse.substring(AGREEMENT_ID_PREFIX.length(),
+                checkoutResponse.indexOf('"', AGREEMENT_ID_PREFIX.length()));
+    }
+
+    private static HttpRequest post(URI uri, String body) {
+        return HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static double percentileMillis(long[] sortedLatencyNanos, double percentile) {
+        if (sortedLatencyNanos.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sortedLatencyNanos.length) - 1;
+        return sortedLatencyNanos[Math.max(0, Math.min(index, sortedLatencyNanos.length - 1))] / 1_000_000.0;
+    }
+
+    //  Latencies of the measured requests sent by a single client; only accessed by that client until it completes
+    private static final class ClientResult {
+        private long[] latencyNanos = new long[1024];
+        private int numberOfLatencies;
+        private int numberOfErrors;
+
+        private void add(long nanos, boolean failed) {
+            if (numberOfLatencies == latencyNanos.length) {
+                latencyNanos = Arrays.copyOf(latencyNanos, latencyNanos.length * 2);
+            }
+            latencyNanos[numberOfLatencies++] = nanos;
+            if (failed) {
+                numberOfErrors++;
+            }
+        }
+    }
+}
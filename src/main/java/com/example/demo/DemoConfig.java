@@ -1,8 +1,22 @@
 package com.example.demo;
 
 import com.example.demo.json.serializers.RentalAgreementSerializer;
+import com.example.demo.store.rentals.CheckoutMetrics;
+import com.example.demo.store.rentals.HolidayCalendar;
+import com.example.demo.store.rentals.RentalAgreementJsonWriter;
+import com.example.demo.store.rentals.RentalDateManager;
+import com.example.demo.store.rentals.RentalQuoteCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class DemoConfig {
@@ -12,4 +26,50 @@ public class DemoConfig {
     public RentalAgreementSerializer rentalAgreementSerializer() {
         return new RentalAgreementSerializer();
     }
+
+    // Hand-written JSON serialization of the /rental/checkout response; formats dates in the same time zone as the
+    // ObjectMapper (see RentalAgreementJsonWriter).
+    @Bean
+    public RentalAgreementJsonWriter rentalAgreementJsonWriter(ObjectMapper objectMapper) {
+        return new RentalAgreementJsonWriter(objectMapper.getSerializationConfig().getTimeZone());
+    }
+
+    // Bounded executor used by the BatchCheckoutService to price the entries of a batch in parallel.
+    //  - One thread per available processor, since pricing is CPU bound.
+    //  - The work queue is bounded; when it is full the submitting (request) thread prices the chunk itself, which
+    //    naturally throttles concurrent batches rather than queueing unbounded work.
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService checkoutBatchExecutor() {
+        int numberOfThreads = Runtime.getRuntime().availableProcessors();
+        return new ThreadPoolExecutor(numberOfThreads, numberOfThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(numberOfThreads * 16),
+                new CustomizableThreadFactory("checkout-batch-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    // Checkout stage timers and outcome counters, published through the actuator (e.g. /actuator/prometheus).
+    //  - rental.metrics.enabled=false swaps in the no-op instance, which does not even read the clock.
+    @Bean
+    public CheckoutMetrics checkoutMetrics(MeterRegistry meterRegistry,
+                                           @Value("${rental.metrics.enabled:true}") boolean metricsEnabled) {
+        return metricsEnabled ? new CheckoutMetrics(meterRegistry) : CheckoutMetrics.NOOP;
+    }
+
+    // Quotes of recently priced rentals, keyed by tool type, checkout date, rental days and discount (see RentalQuoteCache).
+    //  - rental.quotes.cache.maximum-size=0 swaps in the disabled instance, which prices every checkout.
+    @Bean
+    public RentalQuoteCache rentalQuoteCache(MeterRegistry meterRegistry,
+                                             @Value("${rental.quotes.cache.maximum-size:10000}") int maximumSize) {
+        return maximumSize > 0 ? new RentalQuoteCache(maximumSize, meterRegistry) : RentalQuoteCache.DISABLED;
+    }
+
+    // Holidays observed by the store, from the rental.holidays property (see HolidayRule for the rule syntax).
+    //  - The rules are installed into the RentalDateManager singleton, which compiles them into its calendar index one
+    //    year at a time; an invalid rule fails startup rather than silently dropping a holiday.
+    @Bean
+    public HolidayCalendar holidayCalendar(@Value("${rental.holidays:" + HolidayCalendar.DEFAULT_RULES + "}") String rules) {
+        HolidayCalendar holidayCalendar = HolidayCalendar.parse(rules);
+        RentalDateManager.getInstance().setHolidayCalendar(holidayCalendar);
+        return holidayCalendar;
+    }
 }
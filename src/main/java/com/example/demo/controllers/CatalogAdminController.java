@@ -0,0 +1,36 @@
+package com.example.demo.controllers;
+
+import com.example.demo.services.ToolCatalogStatistics;
+import com.example.demo.services.ToolService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * CatalogAdminController
+ *  Administrative endpoints for the in-memory tool catalog snapshot used by checkout (see ToolService).
+ *
+ *  - POST /admin/catalog/reload -- rebuild the snapshot from the database, e.g. after the tool or rental_cost tables
+ *                                  have been modified (an added tool is found without a reload, but a modified one
+ *                                  is not); returns the resulting catalog statistics.
+ *  - GET  /admin/catalog/statistics -- return the snapshot size, hit/miss counts, and reload count and duration.
+ */
+@RestController
+public class CatalogAdminController {
+    private final ToolService toolService;
+
+    CatalogAdminController(ToolService toolService) {
+        this.toolService = toolService;
+    }
+
+    @PostMapping("/admin/catalog/reload")
+    public ToolCatalogStatistics reloadCatalog() {
+        toolService.reloadCatalog();
+        return toolService.getCatalogStatistics();
+    }
+
+    @GetMapping("/admin/catalog/statistics")
+    public ToolCatalogStatistics catalogStatistics() {
+        return toolService.getCatalogStatistics();
+    }
+}
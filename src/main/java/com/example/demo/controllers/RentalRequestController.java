@@ -1,46 +1,116 @@
 package com.example.demo.controllers;
 
+import com.example.demo.store.rentals.BatchCheckoutResult;
+import com.example.demo.store.rentals.BatchCheckoutService;
+import com.example.demo.store.rentals.CheckoutMetrics;
 import com.example.demo.store.rentals.CheckoutService;
 import com.example.demo.store.rentals.RentalAgreement;
+import com.example.demo.store.rentals.RentalAgreementJsonWriter;
 import com.example.demo.json.serializers.RentalAgreementSerializer;
+import com.example.demo.store.inventory.ToolAvailability;
 import com.example.demo.store.rentals.RentalRequest;
+import com.example.demo.store.rentals.RentalReturnRequest;
+import com.example.demo.store.rentals.StreamingCheckoutService;
 import com.example.demo.store.rentals.exceptions.RentalRequestException;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
 // This is a spring controller class that will be used to handle rental requests.
 // It supports a post request to /rental/checkout which will take a rental request and return a rental agreement.
 // The controller will use the CheckoutService to process the rental request.
+// It also supports a post request to /rental/checkout/batch which takes an array of rental requests, and returns one
+// result (a rental agreement or an error) per request, in the same order; using the BatchCheckoutService.
+// Lastly, a post request to /rental/checkout/stream streams newline-delimited JSON (NDJSON) rental requests in, and
+// results out as each request is checked out; using the StreamingCheckoutService.
+// A post request to /rental/return gives back the tool unit rented by an earlier checkout, identified by the agreement id
+// returned with the checkout, so it can be rented again.
 //
 @RestController
 public class RentalRequestController {
+    private static final String TEXT_PLAIN_UTF8_VALUE = MediaType.TEXT_PLAIN_VALUE + ";charset=UTF-8";
+    //  The agreement id of the as-string checkout (which is not in the agreement's toString() output)
+    static final String AGREEMENT_ID_HEADER = "Agreement-Id";
+
     private final CheckoutService checkoutService;
+    private final BatchCheckoutService batchCheckoutService;
+    private final StreamingCheckoutService streamingCheckoutService;
     private final RentalAgreementSerializer rentalAgreementSerializer;
+    private final RentalAgreementJsonWriter rentalAgreementJsonWriter;
+    private final CheckoutMetrics checkoutMetrics;
 
     @Autowired
-    public RentalRequestController(CheckoutService checkoutService, RentalAgreementSerializer rentalAgreementSerializer) {
+    public RentalRequestController(CheckoutService checkoutService, BatchCheckoutService batchCheckoutService,
+                                   StreamingCheckoutService streamingCheckoutService,
+                                   RentalAgreementSerializer rentalAgreementSerializer,
+                                   RentalAgreementJsonWriter rentalAgreementJsonWriter,
+                                   CheckoutMetrics checkoutMetrics) {
         this.checkoutService = checkoutService;
+        this.batchCheckoutService = batchCheckoutService;
+        this.streamingCheckoutService = streamingCheckoutService;
         this.rentalAgreementSerializer = rentalAgreementSerializer;
+        this.rentalAgreementJsonWriter = rentalAgreementJsonWriter;
+        this.checkoutMetrics = checkoutMetrics;
     }
 
+    //  The agreement is written straight to the response by the RentalAgreementJsonWriter (rather than by Jackson and
+    //  the message converter), and serialization is timed as the last stage of the checkout; the response body is
+    //  identical to the Jackson output.
     @PostMapping("/rental/checkout")
-    public RentalAgreement checkoutJson(@RequestBody RentalRequest rentalRequest) throws RentalRequestException, JsonProcessingException {
+    public void checkoutJson(@RequestBody RentalRequest rentalRequest, HttpServletResponse response) throws RentalRequestException, IOException {
         RentalAgreement rentalAgreement;
         rentalAgreement = checkoutService.checkout(rentalRequest);
-        return rentalAgreement;
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        long stageStart = checkoutMetrics.startTimer();
+        rentalAgreementJsonWriter.write(rentalAgreement, response.getOutputStream());
+        checkoutMetrics.recordStage(CheckoutMetrics.Stage.SERIALIZATION, stageStart);
+    }
+
+    @PostMapping("/rental/checkout/batch")
+    public List<BatchCheckoutResult> checkoutBatch(@RequestBody List<RentalRequest> rentalRequests) throws RentalRequestException {
+        return batchCheckoutService.checkout(rentalRequests);
+    }
+
+    //  The request body is read, and the response body written, incrementally; neither is ever buffered as a whole.
+    @PostMapping(value = "/rental/checkout/stream", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public void checkoutStream(InputStream rentalRequests, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        streamingCheckoutService.checkout(rentalRequests, response.getOutputStream());
+    }
+
+    //  The request identifies the rental by its agreement id (the "Agreement id" of the checkout response); the response
+    //  is the returned unit, e.g. {"serialNumber":"LADW-002","checkoutDate":"07/02/20","dueDate":"07/05/20"}
+    @PostMapping("/rental/return")
+    public ToolAvailability.Rental returnRental(@RequestBody RentalReturnRequest returnRequest) throws RentalRequestException {
+        return ToolAvailability.Rental.of(checkoutService.returnRental(returnRequest));
     }
 
     //
     // This is an experiment!  It's for my personal exploration and learning.
     // It works but it's not true JSON being returned
     //
+    //  The string is written straight to the response by the RentalAgreementSerializer, with the content type the String
+    //  message converter gave it (text/plain, UTF-8); the response body is unchanged.  The agreement id, to return the
+    //  unit, is sent in the Agreement-Id header.
     @PostMapping("/rental/checkout/as-string")
-    public String checkoutRet(@RequestBody RentalRequest rentalRequest) throws RentalRequestException, JsonProcessingException {
+    public void checkoutRet(@RequestBody RentalRequest rentalRequest, HttpServletResponse response) throws RentalRequestException, IOException {
         RentalAgreement rentalAgreement;
         rentalAgreement = checkoutService.checkout(rentalRequest);
-        return rentalAgreementSerializer.toJson(rentalAgreement);
+
+        response.setContentType(TEXT_PLAIN_UTF8_VALUE);
+        if (rentalAgreement.getAgreementId() != null) {
+            response.setHeader(AGREEMENT_ID_HEADER, rentalAgreement.getAgreementId());
+        }
+        long stageStart = checkoutMetrics.startTimer();
+        rentalAgreementSerializer.write(rentalAgreement, response.getOutputStream());
+        checkoutMetrics.recordStage(CheckoutMetrics.Stage.SERIALIZATION, stageStart);
     }
 }
@@ -0,0 +1,40 @@
+package com.example.demo.controllers;
+
+import com.example.demo.store.rentals.BatchCheckoutResult;
+import com.example.demo.store.rentals.exceptions.RentalRequestException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * RentalRequestExceptionHandler
+ *  Maps rejected rental requests to compact JSON error responses, for the RentalRequestController endpoints; rather
+ *  than the default (500) error response and its logged stack trace.
+ *
+ *  - RentalRequestException        -- the status of the rejection's reason (e.g. 400 for an invalid discount, 404 for an
+ *                                     unknown tool code, 409 for an unavailable tool, and 503 for an agreement
+ *                                     that could not be recorded); see RentalRequestException.Reason.
+ *  - HttpMessageNotReadableException -- 400; the request body is not a (well-formed) rental request.
+ *
+ *  The body is the same structured error as a rejected batch entry; e.g.
+ *      {"type":"RentalRequestException","code":"invalid-discount","field":"discount","message":"Discount percent must be ..."}
+ */
+@RestControllerAdvice(assignableTypes = RentalRequestController.class)
+public class RentalRequestExceptionHandler {
+
+    @ExceptionHandler(RentalRequestException.class)
+    public ResponseEntity<BatchCheckoutResult.Error> handleRentalRequestException(RentalRequestException e) {
+        return ResponseEntity.status(e.getReason().getStatus())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BatchCheckoutResult.Error.of(e));
+    }
+
+    //  The parser's message (which describes the body, and the classes it was bound to) is not returned
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<BatchCheckoutResult.Error> handleHttpMessageNotReadableException(HttpMessageNotReadableException e) {
+        return handleRentalRequestException(
+                new RentalRequestException(RentalRequestException.Reason.MALFORMED_REQUEST, "Malformed rental request"));
+    }
+}
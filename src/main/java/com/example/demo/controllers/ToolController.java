@@ -1,15 +1,27 @@
 package com.example.demo.controllers;
 
 import com.example.demo.entities.Tool;
+import com.example.demo.services.ToolCatalogCursor;
 import com.example.demo.services.ToolService;
+import com.example.demo.store.inventory.ToolInventory;
+import com.example.demo.store.inventory.ToolTypeAvailabilityRange;
+import com.example.demo.store.rentals.RentalDateManager;
+import com.example.demo.store.rentals.exceptions.RentalRequestException;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 /**
@@ -23,18 +35,75 @@ import java.util.List;
 @RestController
 public class ToolController {
     private static ObjectMapper objectMapper = new ObjectMapper();
+    //  Used to stream the tools; the generator is flushed as its buffer fills, rather than after every tool
+    private static final ObjectWriter streamingToolWriter = objectMapper.writerFor(Tool.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
 
     ToolService toolService;
+    ToolInventory toolInventory;
 
-    ToolController(ToolService toolService) {
+    ToolController(ToolService toolService, ToolInventory toolInventory) {
         this.toolService = toolService;
+        this.toolInventory = toolInventory;
     }
 
+    //
+    //  Without any parameters, every tool (a JSON array).  With a limit, cursor or sort parameter, a page of the tools
+    //  (keyset pagination; see ToolCatalogCursor):
+    //    - sort    id (default) or code; the order of the first page (later pages take the order from the cursor)
+    //    - limit   the number of tools per page; 1 - 1000, 100 by default
+    //    - cursor  the nextCursor token returned with the previous page
+    //  The response is {"tools": [...], "nextCursor": "..."}; nextCursor is null on the last page.
+    //
     @GetMapping("/tools")
-    public Iterable<Tool> tools() {
-        return toolService.findAll();
+    public ResponseEntity<?> tools(@RequestParam(name = "limit", required = false) Integer limit,
+                                   @RequestParam(name = "cursor", required = false) String cursor,
+                                   @RequestParam(name = "sort", required = false) String sort) {
+        if (limit == null && cursor == null && sort == null) {
+            return ResponseEntity.ok(toolService.findAll());
+        }
+
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("The limit must be from 1 to " + MAX_PAGE_SIZE + ": " + limit);
+        }
+        ToolCatalogCursor toolCatalogCursor;
+        try {
+            toolCatalogCursor = cursor != null
+                    ? ToolCatalogCursor.decode(cursor)
+                    : ToolCatalogCursor.first(sort == null ? ToolCatalogCursor.Order.ID : ToolCatalogCursor.Order.of(sort));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return ResponseEntity.ok(toolService.findPage(toolCatalogCursor, pageSize));
     }
 
+    //
+    //  Every tool, in id order, as a JSON array (the same as /tools without parameters); each tool is written to the
+    //  response as it is read from the database, so neither the catalog nor the response is ever held in memory as a
+    //  whole.
+    //
+    @GetMapping("/tools/stream")
+    public void streamTools(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+            toolService.streamAll(tool -> {
+                try {
+                    streamingToolWriter.writeValue(generator, tool);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+        }
+    }
+
+    //  Unknown tool codes are answered (with no tools) from the catalog snapshot, without a database lookup; see
+    //  ToolService.findByCode()
     @GetMapping("/tool/code/{tool_code}")
     public Iterable<Tool> toolByToolCode(@PathVariable String tool_code) {
         return toolService.findByCode(tool_code);
@@ -45,11 +114,65 @@ public class ToolController {
         return toolService.findByCode(tool_code);
     }
 
+    //
+    //  Availability of the tool's units from the "from" date through the "to" date, inclusive (MM/dd/yy; the same format
+    //  as the checkout date); i.e. whether a checkout for that range would find a free unit, and the rentals overlapping
+    //  the range.
+    //
+    @GetMapping("/tool/code/{tool_code}/availability")
+    public ResponseEntity<?> toolAvailability(@PathVariable String tool_code, @RequestParam(name = "from") String from,
+                                              @RequestParam(name = "to") String to) {
+        long firstEpochDay;
+        long lastEpochDay;
+        try {
+            firstEpochDay = RentalDateManager.getInstance().stringToLocalDate(from).toEpochDay();
+            lastEpochDay = RentalDateManager.getInstance().stringToLocalDate(to).toEpochDay();
+        } catch (RentalRequestException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        if (lastEpochDay < firstEpochDay) {
+            return ResponseEntity.badRequest().body("The 'to' date must not be before the 'from' date: " + from + " - " + to);
+        }
+        if (toolInventory.getNumberOfUnits(tool_code) == 0) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No units found for tool code: " + tool_code);
+        }
+        return ResponseEntity.ok(toolInventory.getAvailability(tool_code, firstEpochDay, lastEpochDay + 1));
+    }
+
     @GetMapping("/tool/type/{tool_type}")
     public Iterable<Tool> toolByToolType(@PathVariable String tool_type) {
         return toolService.findByType(tool_type);
     }
 
+    //
+    //  Fewest and most available units of the tool type (i.e. of every brand) on any one day from the "from" date through
+    //  the "to" date, inclusive (MM/dd/yy).  Answered from per-tool-type counts maintained on every checkout and return,
+    //  rather than by scanning the units.
+    //
+    @GetMapping("/tool/type/{tool_type}/availability")
+    public ResponseEntity<?> toolTypeAvailability(@PathVariable String tool_type, @RequestParam(name = "from") String from,
+                                                  @RequestParam(name = "to") String to) {
+        long firstEpochDay;
+        long lastEpochDay;
+        try {
+            firstEpochDay = RentalDateManager.getInstance().stringToLocalDate(from).toEpochDay();
+            lastEpochDay = RentalDateManager.getInstance().stringToLocalDate(to).toEpochDay();
+        } catch (RentalRequestException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        if (lastEpochDay < firstEpochDay) {
+            return ResponseEntity.badRequest().body("The 'to' date must not be before the 'from' date: " + from + " - " + to);
+        }
+        if (toolInventory.getToolTypeAvailability(tool_type) == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No units found for tool type: " + tool_type);
+        }
+        ToolTypeAvailabilityRange availability = toolInventory.getToolTypeAvailability(tool_type, firstEpochDay, lastEpochDay + 1);
+        if (availability == null) {
+            return ResponseEntity.badRequest().body("Availability is not tracked for the dates: " + from + " - " + to);
+        }
+        return ResponseEntity.ok(availability);
+    }
+
     //
     //  The following method is an example of a very rudimentary way to leverage the list returned by the service layer
     //  to build and return a more complex response.   In reality, the response formatting work could also be delegated to
@@ -1,7 +1,13 @@
 package com.example.demo.entities;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.example.demo.store.rentals.PricingPlan;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.persistence.*;
 
+import java.math.BigDecimal;
+
 @Entity(name = "rental_cost")
 public class RentalCost {
     @Id
@@ -9,14 +15,33 @@ public class RentalCost {
     private Long id;
     @Column(name = "tool_type")
     private String type;
-    @Column(name = "daily_charge")
-    private String dailyCharge;
+    @Column(name = "daily_charge", precision = 10, scale = 2)
+    private BigDecimal dailyCharge;
     @Column(name = "weekday_charge")
     private Boolean weekdayCharge;
     @Column(name = "weekend_charge")
     private Boolean weekendCharge;
     @Column(name = "holiday_charge")
     private Boolean holidayCharge;
+    //  Optional per day type rates, and peak season surcharges (see PricingPlan); a charged day type without a rate is
+    //  charged the daily charge
+    @Column(name = "weekday_rate", precision = 10, scale = 2)
+    private BigDecimal weekdayRate;
+    @Column(name = "weekend_rate", precision = 10, scale = 2)
+    private BigDecimal weekendRate;
+    @Column(name = "holiday_rate", precision = 10, scale = 2)
+    private BigDecimal holidayRate;
+    @Column(name = "peak_seasons")
+    private String peakSeasons;
+
+    //  The daily charge in cents, converted from dailyCharge on first use (i.e. once per catalog entry, rather than on
+    //  every checkout).  -1 until converted.
+    @Transient
+    private volatile long dailyChargeCents = -1;
+
+    //  The pricing plan, likewise built on first use; null until built
+    @Transient
+    private volatile PricingPlan pricingPlan;
 
     // Getters and Setters
     public Long getId() {
@@ -31,12 +56,28 @@ public class RentalCost {
         this.type = toolType;
     }
 
-    public String getDailyCharge() {
+    //  Serialized as a string (e.g. "1.99"), as it was when the column was a VARCHAR
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    public BigDecimal getDailyCharge() {
         return dailyCharge;
     }
 
-    public void setDailyCharge(String dailyCharge) {
+    public void setDailyCharge(BigDecimal dailyCharge) {
         this.dailyCharge = dailyCharge;
+        this.dailyChargeCents = -1;
+        this.pricingPlan = null;
+    }
+
+    //  The daily charge must be a whole number of cents (e.g. 1.99); a fraction of a cent throws an ArithmeticException.
+    //  Concurrent first calls may both convert the charge; both arrive at the same value.
+    @JsonIgnore
+    public long getDailyChargeCents() {
+        long cents = dailyChargeCents;
+        if (cents < 0) {
+            cents = dailyCharge.movePointRight(2).longValueExact();
+            dailyChargeCents = cents;
+        }
+        return cents;
     }
 
     public Boolean getWeekdayCharge() {
@@ -45,6 +86,7 @@ public class RentalCost {
 
     public void setWeekdayCharge(Boolean weekdayCharge) {
         this.weekdayCharge = weekdayCharge;
+        this.pricingPlan = null;
     }
 
     public Boolean getWeekendCharge() {
@@ -53,6 +95,7 @@ public class RentalCost {
 
     public void setWeekendCharge(Boolean weekendCharge) {
         this.weekendCharge = weekendCharge;
+        this.pricingPlan = null;
     }
 
     public Boolean getHolidayCharge() {
@@ -61,5 +104,65 @@ public class RentalCost {
 
     public void setHolidayCharge(Boolean holidayCharge) {
         this.holidayCharge = holidayCharge;
+        this.pricingPlan = null;
+    }
+
+    //  The rates and peak seasons are omitted from the JSON when not set, so the catalog JSON is unchanged for plain
+    //  (daily charge only) rental costs
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    public BigDecimal getWeekdayRate() {
+        return weekdayRate;
+    }
+
+    public void setWeekdayRate(BigDecimal weekdayRate) {
+        this.weekdayRate = weekdayRate;
+        this.pricingPlan = null;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    public BigDecimal getWeekendRate() {
+        return weekendRate;
+    }
+
+    public void setWeekendRate(BigDecimal weekendRate) {
+        this.weekendRate = weekendRate;
+        this.pricingPlan = null;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    public BigDecimal getHolidayRate() {
+        return holidayRate;
+    }
+
+    public void setHolidayRate(BigDecimal holidayRate) {
+        this.holidayRate = holidayRate;
+        this.pricingPlan = null;
+    }
+
+    //  e.g. "06-01..08-31:+25%" (see PricingPlan)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getPeakSeasons() {
+        return peakSeasons;
+    }
+
+    public void setPeakSeasons(String peakSeasons) {
+        this.peakSeasons = peakSeasons;
+        this.pricingPlan = null;
+    }
+
+    //  Built once per catalog entry (rather than on every checkout).  An invalid rate or peak season throws an
+    //  IllegalArgumentException (or an ArithmeticException for a fraction of a cent).
+    //  Concurrent first calls may both build the plan; both arrive at equivalent plans.
+    @JsonIgnore
+    public PricingPlan getPricingPlan() {
+        PricingPlan plan = pricingPlan;
+        if (plan == null) {
+            plan = PricingPlan.of(this);
+            pricingPlan = plan;
+        }
+        return plan;
     }
 }
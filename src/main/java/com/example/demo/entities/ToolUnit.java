@@ -0,0 +1,36 @@
+package com.example.demo.entities;
+
+import jakarta.persistence.*;
+
+// An individual, rentable unit of a tool (e.g. one of the Ridgid jackhammers, JAKR), identified by its serial number.
+@Entity(name = "tool_unit")
+public class ToolUnit {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "tool_code")
+    private String toolCode;
+    @Column(name = "serial_number")
+    private String serialNumber;
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public String getToolCode() {
+        return toolCode;
+    }
+
+    public void setToolCode(String toolCode) {
+        this.toolCode = toolCode;
+    }
+
+    public String getSerialNumber() {
+        return serialNumber;
+    }
+
+    public void setSerialNumber(String serialNumber) {
+        this.serialNumber = serialNumber;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.demo.json.serializers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+
+//  Writes a whole number percent as a string with a "%" suffix; e.g. 10 as "10%"
+public class IntegerAsPercentageSerializer extends JsonSerializer<Integer> {
+    @Override
+    public void serialize(Integer value, JsonGenerator jsonGenerator, SerializerProvider serializers) throws IOException {
+        jsonGenerator.writeString(value + "%");
+    }
+}
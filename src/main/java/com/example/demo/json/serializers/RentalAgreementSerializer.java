@@ -1,28 +1,110 @@
 package com.example.demo.json.serializers;
 
 import com.example.demo.store.rentals.RentalAgreement;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * This class is a Spring bean used to serialize a RentalAgreement object to a JSON string.
  * IMPORTANT - This is an experimental custom serializer that facilitates the serialization of RentalAgreement objects
  *             using the toString method of the object as the JSON representation. (It's not true JSON)
+ *
+ * The result is a JSON string literal holding the toString() output, written as UTF-8 straight to an output stream (the
+ * response body of the /rental/checkout/as-string endpoint).  It is written by hand, rather than by an ObjectMapper with
+ * the CustomToStringJsonSerializer registered, with the same escaping Jackson applies by default (the quote, the
+ * backslash and the control characters); so the output is unchanged.
+ *
+ * The serializer holds no mutable state, so a single instance is shared by every request thread.
  */
 public class RentalAgreementSerializer {
-    ObjectMapper objectMapper;
-
-    // constructor initialization
-    public RentalAgreementSerializer() {
-        objectMapper = new ObjectMapper();
-        SimpleModule module = new SimpleModule();
-        module.addSerializer(RentalAgreement.class, new CustomToStringJsonSerializer());
-        objectMapper.registerModule(module);
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    public void write(RentalAgreement rentalAgreement, OutputStream outputStream) throws IOException {
+        toJson(rentalAgreement).writeTo(outputStream);
+    }
+
+    public byte[] toJsonBytes(RentalAgreement rentalAgreement) {
+        return toJson(rentalAgreement).toByteArray();
     }
 
-    public String toJson(RentalAgreement rentalAgreement) throws JsonProcessingException {
-        String json = objectMapper.writeValueAsString(rentalAgreement);
+    private static JsonBytes toJson(RentalAgreement rentalAgreement) {
+        String value = rentalAgreement.toString();
+        //  one byte per char (plus the quotes) for the usual, ASCII only, agreement
+        JsonBytes json = new JsonBytes(value.length() + 32);
+        json.write1('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                i = writeUtf8(value, i, json);
+                continue;
+            }
+            switch (c) {
+                case '"', '\\' -> json.write2('\\', c);
+                case '\b' -> json.write2('\\', 'b');
+                case '\t' -> json.write2('\\', 't');
+                case '\n' -> json.write2('\\', 'n');
+                case '\f' -> json.write2('\\', 'f');
+                case '\r' -> json.write2('\\', 'r');
+                default -> {
+                    if (c < 0x20) {
+                        json.write2('\\', 'u');
+                        json.write2('0', '0');
+                        json.write2(HEX_DIGITS[c >> 4], HEX_DIGITS[c & 0xF]);
+                    } else {
+                        json.write1(c);
+                    }
+                }
+            }
+        }
+        json.write1('"');
         return json;
     }
+
+    //  Writes the (non-ASCII) character at index i as UTF-8, as String.getBytes(UTF_8) encodes it; i.e. a surrogate pair
+    //  as one four byte sequence, and a lone surrogate as '?'.  Returns the index of the last char written.
+    private static int writeUtf8(String value, int i, JsonBytes json) {
+        char c = value.charAt(i);
+        if (c < 0x800) {
+            json.write2(0xC0 | (c >> 6), 0x80 | (c & 0x3F));
+        } else if (!Character.isSurrogate(c)) {
+            json.write1(0xE0 | (c >> 12));
+            json.write2(0x80 | ((c >> 6) & 0x3F), 0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(i + 1));
+            json.write2(0xF0 | (codePoint >> 18), 0x80 | ((codePoint >> 12) & 0x3F));
+            json.write2(0x80 | ((codePoint >> 6) & 0x3F), 0x80 | (codePoint & 0x3F));
+            return i + 1;
+        } else {
+            json.write1('?');
+        }
+        return i;
+    }
+
+    //  Appends to the (protected) buffer directly, rather than through the synchronized write(int)
+    private static final class JsonBytes extends ByteArrayOutputStream {
+        JsonBytes(int size) {
+            super(size);
+        }
+
+        void write1(int b) {
+            ensureCapacity(1);
+            buf[count++] = (byte) b;
+        }
+
+        void write2(int b1, int b2) {
+            ensureCapacity(2);
+            buf[count++] = (byte) b1;
+            buf[count++] = (byte) b2;
+        }
+
+        private void ensureCapacity(int additional) {
+            if (count + additional > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + additional));
+            }
+        }
+    }
 }
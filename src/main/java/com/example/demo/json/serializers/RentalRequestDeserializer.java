@@ -0,0 +1,52 @@
+package com.example.demo.json.serializers;
+
+import com.example.demo.store.rentals.RentalRequest;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+
+import java.io.IOException;
+
+//  Reads a RentalRequest straight from the parser's tokens (rather than by Jackson's reflective bean deserializer); the
+//  checkout date and discount are parsed as they are read (see RentalRequest), so no later stage of the checkout
+//  re-parses them.  Each property is coerced exactly as the bean deserializer coerces it (e.g. a numeric discount is
+//  read as its text), and unknown properties are handled per the ObjectMapper's configuration.
+public class RentalRequestDeserializer extends StdDeserializer<RentalRequest> {
+
+    public RentalRequestDeserializer() {
+        super(RentalRequest.class);
+    }
+
+    @Override
+    public RentalRequest deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = parser.nextToken();
+        } else if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+            return (RentalRequest) context.handleUnexpectedToken(RentalRequest.class, parser);
+        }
+
+        RentalRequest rentalRequest = new RentalRequest();
+        for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            String propertyName = parser.currentName();
+            parser.nextToken();
+            switch (propertyName) {
+                case "toolCode" -> rentalRequest.setToolCode(readString(parser, context));
+                case "checkoutDate" -> rentalRequest.setCheckoutDate(readString(parser, context));
+                case "numberOfRentalDays" -> rentalRequest.setNumberOfRentalDays(_parseIntPrimitive(parser, context));
+                case "discount" -> rentalRequest.setDiscount(readString(parser, context));
+                default -> context.handleUnknownProperty(parser, this, RentalRequest.class, propertyName);
+            }
+        }
+        return rentalRequest;
+    }
+
+    private static String readString(JsonParser parser, DeserializationContext context) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        return StringDeserializer.instance.deserialize(parser, context);
+    }
+}
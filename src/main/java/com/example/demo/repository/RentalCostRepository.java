@@ -4,6 +4,7 @@ import com.example.demo.entities.RentalCost;
 import io.micrometer.common.lang.Nullable;
 import org.springframework.data.repository.CrudRepository;
 
+import java.math.BigDecimal;
 import java.util.Optional;
 
 public interface RentalCostRepository extends CrudRepository<RentalCost, Long> {
@@ -14,7 +15,7 @@ public interface RentalCostRepository extends CrudRepository<RentalCost, Long> {
     Optional<RentalCost> findByType(String tool_type);
 
     @Nullable
-    Iterable<RentalCost> findByDailyCharge(String daily_charge);
+    Iterable<RentalCost> findByDailyCharge(BigDecimal daily_charge);
 
     @Nullable
     Iterable<RentalCost> findByWeekdayCharge(Boolean weekday_charge);
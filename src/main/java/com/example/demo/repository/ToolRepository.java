@@ -1,21 +1,35 @@
 package com.example.demo.repository;
 
 import com.example.demo.entities.Tool;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.lang.Nullable;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+// Every finder fetches the tool's RentalCost in the same select (left join fetch).  The association joins on the
+// non-key tool_type column, so without the fetch join Hibernate resolves it with one additional select per tool (N+1).
+// See ToolRepositoryStatementCountTest for the statement budget of each finder.
 public interface ToolRepository extends CrudRepository<Tool, Long> {
     @Override
+    @Query("select t from Tool t left join fetch t.rentalCosts")
     Iterable<Tool> findAll();
 
     // find tool record by tool code
     @Nullable
-    Iterable<Tool> findByCode(String tool_code);
+    @Query("select t from Tool t left join fetch t.rentalCosts where t.code = :tool_code")
+    Iterable<Tool> findByCode(@Param("tool_code") String tool_code);
 
     @Nullable
-    Iterable<Tool> findByType(String tool_type);
+    @Query("select t from Tool t left join fetch t.rentalCosts where t.type = :tool_type")
+    Iterable<Tool> findByType(@Param("tool_type") String tool_type);
 
     // By default, JPA will return an Iterable<Tool> which is never null; rather an Iterable<Tool> with no elements.
     // is returned if no matching records are found.
@@ -23,5 +37,20 @@ public interface ToolRepository extends CrudRepository<Tool, Long> {
     // that the method may return a null value in case no matching records are found.
     // Note - that this is jus an example of how to use Optional in a repository method, Iterable types are easier
     // to work with in most cases.
-    Optional<Tool> findByBrand(String brand);
+    @Query("select t from Tool t left join fetch t.rentalCosts where t.brand = :brand")
+    Optional<Tool> findByBrand(@Param("brand") String brand);
+
+    // Keyset pagination of the catalog; the tools after the given id (or tool code), in id (or tool code) order.  Both
+    // are unique and indexed, so a page is an index range scan however deep it is.
+    @Query("select t from Tool t left join fetch t.rentalCosts where t.id > :afterId order by t.id")
+    List<Tool> findPageOrderById(@Param("afterId") long afterId, Limit limit);
+
+    @Query("select t from Tool t left join fetch t.rentalCosts where t.code > :afterCode order by t.code")
+    List<Tool> findPageOrderByCode(@Param("afterCode") String afterCode, Limit limit);
+
+    // The whole catalog, in id order, read through a forward-only cursor (a few hundred rows are fetched at a time);
+    // must be consumed within a transaction, and closed.
+    @Query("select t from Tool t left join fetch t.rentalCosts order by t.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<Tool> streamAllOrderById();
 }
@@ -0,0 +1,12 @@
+package com.example.demo.repository;
+
+import com.example.demo.entities.ToolUnit;
+import org.springframework.data.repository.CrudRepository;
+
+public interface ToolUnitRepository extends CrudRepository<ToolUnit, Long> {
+    @Override
+    Iterable<ToolUnit> findAll();
+
+    // find the units of a tool by tool code
+    Iterable<ToolUnit> findByToolCode(String tool_code);
+}
@@ -0,0 +1,99 @@
+package com.example.demo.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * SingleFlight
+ *  Coalesces concurrent identical calls; i.e. while a call for a key is in flight, further calls for the same key do
+ *  not make the call again, but wait for (and share) the result of the call in flight; or its exception.  Once the call
+ *  completes the key is forgotten, so the next call for it is made again; nothing is cached.
+ *
+ *  The ToolService places one in front of each of its repository queries; e.g. when dozens of checkouts of the same
+ *  tool code arrive before the catalog is loaded, or of a tool code added since, they share a single database query.
+ *
+ *  Waiting callers block on a CompletableFuture (rather than a monitor), so a virtual thread waiting for a call in
+ *  flight is not pinned to its carrier thread.
+ *
+ *  Metrics (when registered; see registerMeters()):
+ *  - tool.lookups{query, result}   counter of calls; made (executed), or which shared a call in flight (coalesced)
+ */
+class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    //  Returns the result of the call for the key; either the result of the call in flight, or of this call.  A null key
+    //  (which a ConcurrentHashMap cannot hold) is never coalesced.
+    V execute(K key, Supplier<V> call) {
+        if (key == null) {
+            executed.increment();
+            return call.get();
+        }
+
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            coalesced.increment();
+            return await(leader);
+        }
+
+        executed.increment();
+        try {
+            V result = call.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            //  the leader's own exception, as the leader saw it
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    void registerMeters(MeterRegistry meterRegistry, String query) {
+        FunctionCounter.builder("tool.lookups", executed, LongAdder::sum)
+                .description("Tool repository queries; made, or shared with an identical query in flight")
+                .tag("query", query)
+                .tag("result", "executed")
+                .register(meterRegistry);
+        FunctionCounter.builder("tool.lookups", coalesced, LongAdder::sum)
+                .description("Tool repository queries; made, or shared with an identical query in flight")
+                .tag("query", query)
+                .tag("result", "coalesced")
+                .register(meterRegistry);
+    }
+
+    long getExecutedCount() {
+        return executed.sum();
+    }
+
+    long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    int getInFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.demo.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * ToolCatalogCursor
+ *  The position of a page of the tool catalog listing (keyset pagination); i.e. the sort order of the listing and the
+ *  key of the last tool on the previous page.  The next page is the tools whose key sorts after it, which is an index
+ *  range scan no matter how deep the page is (unlike an offset, which scans and discards every preceding row).
+ *
+ *  Clients receive the cursor as an opaque token (see encode() and decode()); e.g. the token "aWQ6NDI" is id:42.
+ */
+public class ToolCatalogCursor {
+    public enum Order {
+        ID("id"),
+        CODE("code");
+
+        private final String prefix;
+
+        Order(String prefix) {
+            this.prefix = prefix;
+        }
+
+        //  id or code (case-insensitive); IllegalArgumentException for anything else
+        public static Order of(String name) {
+            for (Order order : values()) {
+                if (order.prefix.equalsIgnoreCase(name)) {
+                    return order;
+                }
+            }
+            throw new IllegalArgumentException("Invalid sort order: " + name + " (expected id or code)");
+        }
+    }
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Order order;
+    private final long lastId;
+    private final String lastCode;
+
+    private ToolCatalogCursor(Order order, long lastId, String lastCode) {
+        this.order = order;
+        this.lastId = lastId;
+        this.lastCode = lastCode;
+    }
+
+    //  The position before the first tool
+    public static ToolCatalogCursor first(Order order) {
+        return new ToolCatalogCursor(order, Long.MIN_VALUE, "");
+    }
+
+    static ToolCatalogCursor afterId(long lastId) {
+        return new ToolCatalogCursor(Order.ID, lastId, null);
+    }
+
+    static ToolCatalogCursor afterCode(String lastCode) {
+        return new ToolCatalogCursor(Order.CODE, 0L, lastCode);
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    long getLastId() {
+        return lastId;
+    }
+
+    String getLastCode() {
+        return lastCode;
+    }
+
+    public String encode() {
+        String position = order.prefix + ':' + (order == Order.ID ? Long.toString(lastId) : lastCode);
+        return ENCODER.encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //  IllegalArgumentException if the token was not returned by encode()
+    public static ToolCatalogCursor decode(String token) {
+        String position;
+        try {
+            position = new String(DECODER.decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+
+        int separator = position.indexOf(':');
+        if (separator > 0) {
+            String prefix = position.substring(0, separator);
+            String key = position.substring(separator + 1);
+            if (Order.ID.prefix.equals(prefix)) {
+                try {
+                    return afterId(Long.parseLong(key));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid cursor: " + token, e);
+                }
+            }
+            if (Order.CODE.prefix.equals(prefix)) {
+                return afterCode(key);
+            }
+        }
+        throw new IllegalArgumentException("Invalid cursor: " + token);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.Tool;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ToolCatalogSnapshot
+ *  An immutable, in-memory snapshot of the tool catalog; i.e. every Tool, joined with its RentalCost, keyed by tool code.
+ *
+ *  The catalog almost never changes, so the ToolService serves tool code lookups on the checkout hot path from a
+ *  snapshot rather than from the database.  A snapshot is never modified once built; refreshing the catalog builds a
+ *  new snapshot which the ToolService then swaps in atomically.
+ *
+ *  Once loaded, a snapshot holds every tool code in the catalog (as of the load); so it is also the (exact) set of known
+ *  tool codes, and a code which is not in the snapshot is unknown (see ToolService.findByCode()).
+ *
+ *  Important - the Tool (and RentalCost) instances held by a snapshot are shared by every request, and must be treated
+ *              as read-only.
+ */
+public class ToolCatalogSnapshot {
+    //  The snapshot before the catalog is loaded; it holds no tool codes, but not because they are unknown
+    public static final ToolCatalogSnapshot EMPTY = new ToolCatalogSnapshot(Map.of(), 0, 0, false, 0L, 0L);
+
+    private final Map<String, List<Tool>> toolsByCode;
+    private final int numberOfTools;
+    //  The length of the longest tool code; a longer code is unknown without being hashed
+    private final int maxToolCodeLength;
+    private final boolean loaded;
+    private final long loadedAtMillis;
+    private final long loadDurationNanos;
+
+    private ToolCatalogSnapshot(Map<String, List<Tool>> toolsByCode, int numberOfTools, int maxToolCodeLength,
+                                boolean loaded, long loadedAtMillis, long loadDurationNanos) {
+        this.toolsByCode = toolsByCode;
+        this.numberOfTools = numberOfTools;
+        this.maxToolCodeLength = maxToolCodeLength;
+        this.loaded = loaded;
+        this.loadedAtMillis = loadedAtMillis;
+        this.loadDurationNanos = loadDurationNanos;
+    }
+
+    //  Builds a snapshot from the given tools, which must already be joined with their rental costs.
+    static ToolCatalogSnapshot of(Iterable<Tool> tools, long loadDurationNanos) {
+        Map<String, List<Tool>> toolsByCode = new HashMap<>();
+        int numberOfTools = 0;
+        int maxToolCodeLength = 0;
+        for (Tool tool : tools) {
+            toolsByCode.computeIfAbsent(tool.getTool_code(), code -> new ArrayList<>(1)).add(tool);
+            numberOfTools++;
+            if (tool.getTool_code() != null) {
+                maxToolCodeLength = Math.max(maxToolCodeLength, tool.getTool_code().length());
+            }
+        }
+        toolsByCode.replaceAll((code, toolList) -> Collections.unmodifiableList(toolList));
+
+        return new ToolCatalogSnapshot(Collections.unmodifiableMap(toolsByCode), numberOfTools, maxToolCodeLength,
+                true, System.currentTimeMillis(), loadDurationNanos);
+    }
+
+    //  Returns the (unmodifiable) list of tools with the given tool code, or null if the code is not in the snapshot.
+    public List<Tool> findByCode(String tool_code) {
+        if (tool_code == null || tool_code.length() > maxToolCodeLength) {
+            return null;
+        }
+        return toolsByCode.get(tool_code);
+    }
+
+    //  Whether the snapshot was loaded from the catalog; i.e. whether a tool code which is not in the snapshot is unknown
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int getNumberOfTools() {
+        return numberOfTools;
+    }
+
+    public int getNumberOfToolCodes() {
+        return toolsByCode.size();
+    }
+
+    public long getLoadedAtMillis() {
+        return loadedAtMillis;
+    }
+
+    public long getLoadDurationNanos() {
+        return loadDurationNanos;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.demo.services;
+
+/**
+ * ToolCatalogStatistics
+ *  A point-in-time copy of the ToolService catalog snapshot counters; returned by the catalog admin endpoints.
+ */
+public class ToolCatalogStatistics {
+    private final int numberOfTools;
+    private final int numberOfToolCodes;
+    private final long loadedAtMillis;
+    private final long lastReloadDurationNanos;
+    private final long reloadCount;
+    private final long hitCount;
+    private final long missCount;
+    private final long unknownToolCodeCount;
+    private final long coalescedLookupCount;
+
+    ToolCatalogStatistics(ToolCatalogSnapshot snapshot, long reloadCount, long hitCount, long missCount, long unknownToolCodeCount,
+                          long coalescedLookupCount) {
+        this.numberOfTools = snapshot.getNumberOfTools();
+        this.numberOfToolCodes = snapshot.getNumberOfToolCodes();
+        this.loadedAtMillis = snapshot.getLoadedAtMillis();
+        this.lastReloadDurationNanos = snapshot.getLoadDurationNanos();
+        this.reloadCount = reloadCount;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.unknownToolCodeCount = unknownToolCodeCount;
+        this.coalescedLookupCount = coalescedLookupCount;
+    }
+
+    public int getNumberOfTools() {
+        return numberOfTools;
+    }
+
+    public int getNumberOfToolCodes() {
+        return numberOfToolCodes;
+    }
+
+    public long getLoadedAtMillis() {
+        return loadedAtMillis;
+    }
+
+    public long getLastReloadDurationNanos() {
+        return lastReloadDurationNanos;
+    }
+
+    public long getReloadCount() {
+        return reloadCount;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    //  Lookups which were served by the repository; before the catalog was loaded, or of a tool code not in the snapshot
+    public long getMissCount() {
+        return missCount;
+    }
+
+    //  Lookups of (recently looked up) unknown tool codes, which were answered without a database lookup
+    public long getUnknownToolCodeCount() {
+        return unknownToolCodeCount;
+    }
+
+    //  Misses (before the catalog was loaded, or of a code not in the snapshot) which shared the repository lookup of a
+    //  concurrent miss for the same tool code, rather than making their own
+    public long getCoalescedLookupCount() {
+        return coalescedLookupCount;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.Tool;
+
+import java.util.List;
+
+/**
+ * ToolPage
+ *  A page of the tool catalog listing; returned by GET /tools when paginated.
+ *
+ *  nextCursor is the token of the following page; null on the last page.
+ */
+public class ToolPage {
+    private final List<Tool> tools;
+    private final String nextCursor;
+
+    ToolPage(List<Tool> tools, String nextCursor) {
+        this.tools = tools;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Tool> getTools() {
+        return tools;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -1,10 +1,25 @@
 package com.example.demo.services;
 import com.example.demo.entities.Tool;
 import com.example.demo.repository.ToolRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * ToolService
@@ -26,34 +41,228 @@ import java.util.List;
  *  or a MyBatis implementation, we could do so without changing the controller code.  We would only need to change the
  *  ToolService implementation.
  *
+ *  Tool code lookups (findByCode) are served from an immutable, in-memory snapshot of the catalog (see
+ *  ToolCatalogSnapshot), which is loaded at startup and atomically replaced by reloadCatalog(); so checkout does not
+ *  require a database round trip.  Until the catalog is first loaded, lookups fall back to the repository.
+ *
+ *  A tool code which is not in the (loaded) snapshot also falls back to the repository, so a tool added to the database
+ *  since the catalog was loaded is still found; it is then kept (until the next reload) alongside the snapshot, and
+ *  served from memory.  A tool code the repository does not find either (e.g. from a scanner, or a scraping bot) is
+ *  remembered as unknown for UNKNOWN_TOOL_CODE_TTL, and answered with no tools, without a database lookup; as is a code
+ *  longer than the tool_code column.  So a bot cycling through unknown codes costs at most one query per code per TTL,
+ *  and a tool added to the database is found within the TTL at the latest.  The unknown codes are forgotten on reload,
+ *  and all at once should there be more than MAX_UNKNOWN_TOOL_CODES of them.
+ *
+ *  Catalog listeners (see addCatalogListener()) are given the tools of each reloaded snapshot, and each tool found since
+ *  the load before it is returned by findByCode(); e.g. so the ToolInventory loads the units of a tool added since
+ *  startup before the tool can be checked out.
+ *
+ *  Repository queries by code (before the catalog is loaded, or of a code not in the snapshot), type and brand are
+ *  coalesced (see SingleFlight); e.g. when many checkouts of the same tool code arrive while the application warms up,
+ *  or of a tool added since the catalog was loaded, or a bot repeats an unknown code before it is remembered as unknown,
+ *  only the first queries the database, and the rest share its result.  So the lists returned by these queries are
+ *  shared, and are not modified.
+ *
+ *  The whole catalog can also be listed a page at a time (findPage(), keyset pagination; see ToolCatalogCursor), or
+ *  streamed (streamAll()) without holding it in memory.
+ *
+ *  Metrics (when constructed with a meter registry):
+ *  - tool.lookups{query=code|type|brand, result=executed|coalesced}   repository queries made, or shared with an
+ *                                                                      identical query in flight
+ *
  *  Important:
  */
 @Service
-public class ToolService {
+public class ToolService implements SmartInitializingSingleton {
+    //  The width of the tool.tool_code column; a longer code cannot be in the catalog
+    static final int MAX_TOOL_CODE_LENGTH = 10;
+    static final long UNKNOWN_TOOL_CODE_TTL_NANOS = TimeUnit.SECONDS.toNanos(30);
+    static final int MAX_UNKNOWN_TOOL_CODES = 10_000;
+
     private final ToolRepository toolRepository;
+    //  null if streamed tools are not detached (only when constructed for testing)
+    private final EntityManager entityManager;
+
+    private final AtomicReference<ToolCatalogSnapshot> catalogSnapshot = new AtomicReference<>(ToolCatalogSnapshot.EMPTY);
+    private final LongAdder catalogHits = new LongAdder();
+    private final LongAdder catalogMisses = new LongAdder();
+    private final LongAdder unknownToolCodes = new LongAdder();
+    private final LongAdder catalogReloads = new LongAdder();
+    //  Tools found by the repository since the snapshot was loaded; and tool codes it did not find, with the (nano time)
+    //  they expire at.  Both are cleared on reload.
+    private final ConcurrentHashMap<String, List<Tool>> toolsAddedSinceLoad = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> unknownToolCodeExpiries = new ConcurrentHashMap<>();
+
+    //  Given the tools of each reloaded snapshot, and each tool added since the load
+    private final List<Consumer<List<Tool>>> catalogListeners = new CopyOnWriteArrayList<>();
+
+    private final SingleFlight<String, List<Tool>> codeLookups = new SingleFlight<>();
+    private final SingleFlight<String, List<Tool>> typeLookups = new SingleFlight<>();
+    private final SingleFlight<String, List<Tool>> brandLookups = new SingleFlight<>();
 
     public ToolService(ToolRepository toolRepository) {
+        this(toolRepository, null);
+    }
+
+    public ToolService(ToolRepository toolRepository, EntityManager entityManager) {
+        this(toolRepository, entityManager, null);
+    }
+
+    //  The meter registry may be null (e.g. in tests), in which case no meters are registered.
+    @Autowired
+    public ToolService(ToolRepository toolRepository, EntityManager entityManager, MeterRegistry meterRegistry) {
         this.toolRepository = toolRepository;
+        this.entityManager = entityManager;
+
+        if (meterRegistry != null) {
+            codeLookups.registerMeters(meterRegistry, "code");
+            typeLookups.registerMeters(meterRegistry, "type");
+            brandLookups.registerMeters(meterRegistry, "brand");
+        }
+    }
+
+    //  Loaded once every bean is created, and so before the web server starts and the first checkout is accepted
+    @Override
+    public void afterSingletonsInstantiated() {
+        reloadCatalog();
+    }
+
+    //  Builds a new catalog snapshot from the repository and atomically replaces the current snapshot.
+    //  Lookups in progress continue to use the previous snapshot.
+    public ToolCatalogSnapshot reloadCatalog() {
+        long startNanos = System.nanoTime();
+        Iterable<Tool> tools = toolRepository.findAll();
+        ToolCatalogSnapshot snapshot = ToolCatalogSnapshot.of(tools, System.nanoTime() - startNanos);
+
+        catalogSnapshot.set(snapshot);
+        toolsAddedSinceLoad.clear();
+        unknownToolCodeExpiries.clear();
+        catalogReloads.increment();
+        notifyCatalogListeners(toList(tools));
+        return snapshot;
+    }
+
+    //  The listener is called, on the thread loading them, with tools added to the catalog: all the tools of each
+    //  reloaded snapshot, and any tool found since the load (before findByCode() returns it)
+    public void addCatalogListener(Consumer<List<Tool>> listener) {
+        catalogListeners.add(listener);
+    }
+
+    private void notifyCatalogListeners(List<Tool> tools) {
+        for (Consumer<List<Tool>> listener : catalogListeners) {
+            listener.accept(tools);
+        }
+    }
+
+    public ToolCatalogStatistics getCatalogStatistics() {
+        return new ToolCatalogStatistics(catalogSnapshot.get(), catalogReloads.sum(), catalogHits.sum(), catalogMisses.sum(),
+                unknownToolCodes.sum(), codeLookups.getCoalescedCount());
     }
 
     public List<Tool> findAll() {
         return toList(toolRepository.findAll());
     }
 
+    //  The page of (at most limit) tools after the cursor; the next cursor is only returned if there are more tools.
+    public ToolPage findPage(ToolCatalogCursor cursor, int limit) {
+        //  one more tool than the page holds is read to find out whether there is a next page
+        List<Tool> tools = cursor.getOrder() == ToolCatalogCursor.Order.ID
+                ? toolRepository.findPageOrderById(cursor.getLastId(), Limit.of(limit + 1))
+                : toolRepository.findPageOrderByCode(cursor.getLastCode(), Limit.of(limit + 1));
+        if (tools.size() <= limit) {
+            return new ToolPage(tools, null);
+        }
+
+        List<Tool> page = tools.subList(0, limit);
+        Tool last = page.get(limit - 1);
+        ToolCatalogCursor next = cursor.getOrder() == ToolCatalogCursor.Order.ID
+                ? ToolCatalogCursor.afterId(last.getId())
+                : ToolCatalogCursor.afterCode(last.getTool_code());
+        return new ToolPage(page, next.encode());
+    }
+
+    //  Passes every tool, in id order, to the consumer as it is read from the database.  Each tool is detached once it
+    //  has been consumed, so the persistence context (and the heap) does not grow with the size of the catalog.
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<Tool> consumer) {
+        try (Stream<Tool> tools = toolRepository.streamAllOrderById()) {
+            tools.forEach(tool -> {
+                consumer.accept(tool);
+                if (entityManager != null) {
+                    entityManager.detach(tool);
+                }
+            });
+        }
+    }
+
     public List<Tool> findByCode(String tool_code) {
-        return toList(toolRepository.findByCode(tool_code));
+        ToolCatalogSnapshot snapshot = catalogSnapshot.get();
+        List<Tool> tools = snapshot.findByCode(tool_code);
+        if (tools != null) {
+            catalogHits.increment();
+            return tools;
+        }
+        if (!snapshot.isLoaded()) {
+            catalogMisses.increment();
+            return codeLookups.execute(tool_code, () -> toList(toolRepository.findByCode(tool_code)));
+        }
+
+        tools = tool_code == null ? null : toolsAddedSinceLoad.get(tool_code);
+        if (tools != null) {
+            catalogHits.increment();
+            return tools;
+        }
+        if (tool_code == null || tool_code.length() > MAX_TOOL_CODE_LENGTH || isKnownToBeUnknown(tool_code)) {
+            unknownToolCodes.increment();
+            return List.of();
+        }
+
+        catalogMisses.increment();
+        return codeLookups.execute(tool_code, () -> findAddedSinceLoad(tool_code));
+    }
+
+    //  A tool code which is not in the loaded snapshot; either added since the load, or unknown
+    private List<Tool> findAddedSinceLoad(String tool_code) {
+        List<Tool> tools = toList(toolRepository.findByCode(tool_code));
+        if (tools.isEmpty()) {
+            if (unknownToolCodeExpiries.size() >= MAX_UNKNOWN_TOOL_CODES) {
+                unknownToolCodeExpiries.clear();
+            }
+            unknownToolCodeExpiries.put(tool_code, System.nanoTime() + UNKNOWN_TOOL_CODE_TTL_NANOS);
+            return List.of();
+        }
+        tools = List.copyOf(tools);
+        notifyCatalogListeners(tools);
+        toolsAddedSinceLoad.put(tool_code, tools);
+        return tools;
+    }
+
+    private boolean isKnownToBeUnknown(String tool_code) {
+        Long expiresAtNanos = unknownToolCodeExpiries.get(tool_code);
+        if (expiresAtNanos == null) {
+            return false;
+        }
+        if (expiresAtNanos - System.nanoTime() > 0) {
+            return true;
+        }
+        unknownToolCodeExpiries.remove(tool_code, expiresAtNanos);
+        return false;
     }
 
     public List<Tool> findByType(String tool_type) {
-        return toList(toolRepository.findByType(tool_type));
+        return typeLookups.execute(tool_type, () -> toList(toolRepository.findByType(tool_type)));
     }
 
     public List<Tool> findByBrand(String brand) {
-        return toList(toolRepository.findByBrand(brand));
+        return brandLookups.execute(brand, () -> toList(toolRepository.findByBrand(brand)));
     }
 
+    //  Spring Data returns a List for an Iterable query method; anything else is copied
     private static List<Tool> toList(Iterable<Tool> iterable) {
-        return (List<Tool>) iterable;
+        if (iterable instanceof List<Tool> list) {
+            return list;
+        }
+        return StreamSupport.stream(iterable.spliterator(), false).collect(Collectors.toList());
     }
 
     private static List<Tool> toList(Optional<Tool> optional) {
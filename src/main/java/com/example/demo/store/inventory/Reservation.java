@@ -0,0 +1,56 @@
+package com.example.demo.store.inventory;
+
+/**
+ * A reservation of a single tool unit for the days [firstEpochDay, endEpochDay); i.e. endEpochDay is exclusive.
+ *
+ * Returned by ToolInventory.reserve(), and passed back to ToolInventory.release() to cancel the reservation.  Each
+ * reservation is identified by the id of the rental agreement holding it; a return names the agreement (see
+ * ToolInventory.returnRental()), so only the holder of the agreement id can give the unit back.
+ */
+public final class Reservation {
+    //  Returned by the untracked inventory (ToolInventory.UNTRACKED); no unit is reserved
+    static final Reservation UNTRACKED = new Reservation(null, null, null, null, 0L, 0L);
+
+    private final String agreementId;
+    private final String toolCode;
+    private final String serialNumber;
+    private final ToolUnitReservations unit;
+    private final long firstEpochDay;
+    private final long endEpochDay;
+
+    Reservation(String agreementId, String toolCode, String serialNumber, ToolUnitReservations unit, long firstEpochDay,
+                long endEpochDay) {
+        this.agreementId = agreementId;
+        this.toolCode = toolCode;
+        this.serialNumber = serialNumber;
+        this.unit = unit;
+        this.firstEpochDay = firstEpochDay;
+        this.endEpochDay = endEpochDay;
+    }
+
+    //  Id of the rental agreement holding the reservation; null if the inventory is not tracked
+    public String getAgreementId() {
+        return agreementId;
+    }
+
+    public String getToolCode() {
+        return toolCode;
+    }
+
+    //  Serial number of the reserved unit; null if the inventory is not tracked
+    public String getSerialNumber() {
+        return serialNumber;
+    }
+
+    public long getFirstEpochDay() {
+        return firstEpochDay;
+    }
+
+    public long getEndEpochDay() {
+        return endEpochDay;
+    }
+
+    ToolUnitReservations getUnit() {
+        return unit;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.demo.store.inventory;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Availability of a tool for a range of days; returned by the /tool/code/{tool_code}/availability endpoint.
+ *
+ * - available: at least one unit is free on every day of the range (i.e. a checkout for the range would succeed)
+ * - rentals: the rentals (of any unit) overlapping the range; each is out from its checkout date through its due date
+ */
+@JsonPropertyOrder({"toolCode", "from", "to", "numberOfUnits", "availableUnits", "available", "rentals"})
+public class ToolAvailability {
+    private final String toolCode;
+    private final long firstEpochDay;
+    private final long endEpochDay;
+    private final int numberOfUnits;
+    private final int availableUnits;
+    private final List<Rental> rentals;
+
+    ToolAvailability(String toolCode, long firstEpochDay, long endEpochDay, int numberOfUnits, int availableUnits,
+                     List<Reservation> overlappingReservations) {
+        this.toolCode = toolCode;
+        this.firstEpochDay = firstEpochDay;
+        this.endEpochDay = endEpochDay;
+        this.numberOfUnits = numberOfUnits;
+        this.availableUnits = availableUnits;
+        this.rentals = overlappingReservations.stream().map(Rental::new).toList();
+    }
+
+    public String getToolCode() {
+        return toolCode;
+    }
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM/dd/yy")
+    public LocalDate getFrom() {
+        return LocalDate.ofEpochDay(firstEpochDay);
+    }
+
+    //  inclusive
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM/dd/yy")
+    public LocalDate getTo() {
+        return LocalDate.ofEpochDay(endEpochDay - 1);
+    }
+
+    public int getNumberOfUnits() {
+        return numberOfUnits;
+    }
+
+    public int getAvailableUnits() {
+        return availableUnits;
+    }
+
+    public boolean isAvailable() {
+        return availableUnits > 0;
+    }
+
+    public List<Rental> getRentals() {
+        return rentals;
+    }
+
+    @JsonPropertyOrder({"serialNumber", "checkoutDate", "dueDate"})
+    public static class Rental {
+        private final String serialNumber;
+        private final long firstEpochDay;
+        private final long endEpochDay;
+
+        //  e.g. the unit given back by a return (see ToolInventory.returnRental())
+        public static Rental of(Reservation reservation) {
+            return new Rental(reservation);
+        }
+
+        private Rental(Reservation reservation) {
+            this.serialNumber = reservation.getSerialNumber();
+            this.firstEpochDay = reservation.getFirstEpochDay();
+            this.endEpochDay = reservation.getEndEpochDay();
+        }
+
+        public String getSerialNumber() {
+            return serialNumber;
+        }
+
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM/dd/yy")
+        public LocalDate getCheckoutDate() {
+            return LocalDate.ofEpochDay(firstEpochDay);
+        }
+
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM/dd/yy")
+        public LocalDate getDueDate() {
+            return LocalDate.ofEpochDay(endEpochDay - 1);
+        }
+    }
+}
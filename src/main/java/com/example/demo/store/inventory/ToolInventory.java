@@ -0,0 +1,413 @@
+package com.example.demo.store.inventory;
+
+import com.example.demo.entities.Tool;
+import com.example.demo.entities.ToolUnit;
+import com.example.demo.repository.ToolUnitRepository;
+import com.example.demo.services.ToolService;
+import com.example.demo.store.rentals.RentalCalendarIndex;
+import com.example.demo.store.rentals.RentalDateManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Per-unit inventory of the rentable tools; i.e. which units (tool_unit table) of each tool code are reserved on which
+ * days.
+ *
+ * - Units are loaded from the repository at startup, and their reservations are rebuilt from the stored rental
+ *   agreements (rental_agreement table), less the stored returns (rental_return table).  This is done once every bean is
+ *   created, before the web server starts; so no checkout is rejected for want of units, or takes a unit a stored
+ *   agreement holds, while the inventory is loading.  The units of a tool added to the catalog since then are loaded
+ *   when the ToolService first finds the tool (see loadUnitsOfAddedTools()).  A tool code without any units can never
+ *   be reserved.
+ *
+ * - Each reservation is made for a rental agreement, and is given the agreement's id; a random UUID, returned with the
+ *   checkout.  A rented unit is given back by returnRental() (POST /rental/return) with that id; exactly that
+ *   reservation is released, so its days can be rented again, and the return is stored so that the reservation is not
+ *   restored on restart.  The id is never listed (e.g. by the availability endpoint), so only the holder of the
+ *   agreement can return its unit.
+ *
+ * - Each unit's reservations are a sorted-interval index (see ToolUnitReservations); so checking whether a unit is free
+ *   for a range of days, and finding the rentals overlapping a range of days, never scan the unit's rental history.
+ *
+ * - Reservations never lock.  Each unit holds its own reservations (see ToolUnitReservations), so concurrent checkouts
+ *   of the same tool code only contend when they race for the same unit; and the rented unit counts of its tool type
+ *   are updated lock-free as well (see ToolTypeAvailability).  To spread the checkouts of a busy tool code
+ *   across its units, each reservation tries the units in turn starting from a random unit, rather than always starting
+ *   from the first unit.
+ *
+ * - Reservations are persisted only by recording the finalized agreement (see WriteBehindRentalAgreementRecorder); an
+ *   agreement dropped by the write-behind queue is not restored on restart.  Returns are rare, and are inserted as they
+ *   are made.
+ */
+@Service
+public class ToolInventory implements SmartInitializingSingleton {
+    private static final Logger logger = LoggerFactory.getLogger(ToolInventory.class);
+
+    //  Used where the inventory is not tracked (e.g. by the unit tests); every reservation succeeds, and reserves nothing
+    public static final ToolInventory UNTRACKED = new ToolInventory(null, null, null, false);
+
+    //  The stored (recorded) rental agreements; see WriteBehindRentalAgreementRecorder
+    static final String STORED_RESERVATIONS_SQL = """
+            SELECT agreement_id, tool_code, unit_serial_number, checkout_date, due_date FROM rental_agreement ORDER BY id""";
+    //  The stored returns; each cancels the stored rental agreement with its agreement id (or, for a return stored
+    //  before agreements had ids, one stored rental agreement of the same unit and days)
+    static final String STORED_RETURNS_SQL = """
+            SELECT agreement_id, tool_code, unit_serial_number, checkout_date, due_date FROM rental_return""";
+    static final String INSERT_RETURN_SQL = """
+            INSERT INTO rental_return (agreement_id, tool_code, unit_serial_number, checkout_date, due_date, returned_at)
+            VALUES (?, ?, ?, ?, ?, ?)""";
+
+    private final ToolUnitRepository toolUnitRepository;
+    private final ToolService toolService;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean tracked;
+    //  replaced as a whole when the units are (re)loaded; the maps and arrays are never modified once published
+    private volatile Map<String, ToolUnitReservations[]> unitsByToolCode = Map.of();
+    private volatile Map<String, ToolTypeAvailability> availabilityByToolType = Map.of();
+    //  The held reservations, by agreement id; a reservation is removed when it is returned or released
+    private final Map<String, Reservation> reservationsByAgreementId = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ToolInventory(ToolUnitRepository toolUnitRepository, ToolService toolService, JdbcTemplate jdbcTemplate) {
+        this(toolUnitRepository, toolService, jdbcTemplate, true);
+    }
+
+    private ToolInventory(ToolUnitRepository toolUnitRepository, ToolService toolService, JdbcTemplate jdbcTemplate,
+                          boolean tracked) {
+        this.toolUnitRepository = toolUnitRepository;
+        this.toolService = toolService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.tracked = tracked;
+    }
+
+    //  Loads the units, and then rebuilds their reservations from the stored rental agreements which have not been
+    //  returned.  A return cancels the agreement with its agreement id, whenever the agreement was recorded (by the
+    //  write-behind queue); a return without an agreement id cancels any one agreement, without an id, of the same unit
+    //  and days.  A stored agreement which cannot be restored (its tool has no units, or it overlaps another restored
+    //  agreement of the same unit) is logged, and counted in the summary.
+    @Override
+    public void afterSingletonsInstantiated() {
+        toolService.addCatalogListener(this::loadUnitsOfAddedTools);
+        loadUnits(toolUnitRepository.findAll(), toolService.findAll());
+
+        int[] restored = new int[2];    // restored, and not restored
+        Set<String> returnedAgreementIds = new HashSet<>();
+        Map<String, Integer> returns = new HashMap<>();
+        jdbcTemplate.query(STORED_RETURNS_SQL, (RowCallbackHandler) resultSet -> {
+            String agreementId = resultSet.getString("agreement_id");
+            if (agreementId != null) {
+                returnedAgreementIds.add(agreementId);
+            } else {
+                returns.merge(storedRentalKey(resultSet), 1, Integer::sum);
+            }
+        });
+        jdbcTemplate.query(STORED_RESERVATIONS_SQL, (RowCallbackHandler) resultSet -> {
+            String agreementId = resultSet.getString("agreement_id");
+            if (agreementId != null && returnedAgreementIds.contains(agreementId)) {
+                return;
+            }
+            String key = storedRentalKey(resultSet);
+            Integer returned = returns.get(key);
+            if (returned != null) {
+                if (returned == 1) {
+                    returns.remove(key);
+                } else {
+                    returns.put(key, returned - 1);
+                }
+                return;
+            }
+            long checkoutEpochDay = resultSet.getDate("checkout_date").toLocalDate().toEpochDay();
+            long dueEpochDay = resultSet.getDate("due_date").toLocalDate().toEpochDay();
+            if (restoreReservation(agreementId, resultSet.getString("tool_code"),
+                    resultSet.getString("unit_serial_number"), checkoutEpochDay, dueEpochDay + 1) != null) {
+                restored[0]++;
+            } else {
+                restored[1]++;
+                logger.warn("Stored rental agreement {} ({} unit {}, {} - {}) could not be restored; no unit is free",
+                        agreementId, resultSet.getString("tool_code"), resultSet.getString("unit_serial_number"),
+                        resultSet.getDate("checkout_date"), resultSet.getDate("due_date"));
+            }
+        });
+        if (restored[1] > 0) {
+            logger.warn("Restored {} stored rental agreements; {} could not be restored", restored[0], restored[1]);
+        } else {
+            logger.info("Restored {} stored rental agreements", restored[0]);
+        }
+    }
+
+    //  Replaces the units (and discards any reservations); the units are not counted by tool type
+    public void loadUnits(Iterable<ToolUnit> toolUnits) {
+        loadUnits(toolUnits, List.of());
+    }
+
+    //  Replaces the units (and discards any reservations).  The units of each tool type (per the given tools) are counted
+    //  over the days of the RentalDateManager's calendar index years.
+    public synchronized void loadUnits(Iterable<ToolUnit> toolUnits, Iterable<Tool> tools) {
+        Map<String, String> toolTypeByToolCode = new HashMap<>();
+        for (Tool tool : tools) {
+            toolTypeByToolCode.put(tool.getTool_code(), tool.getTool_type());
+        }
+
+        Map<String, Integer> numberOfUnitsByToolType = new HashMap<>();
+        for (ToolUnit toolUnit : toolUnits) {
+            String toolType = toolTypeByToolCode.get(toolUnit.getToolCode());
+            if (toolType != null) {
+                numberOfUnitsByToolType.merge(toolType, 1, Integer::sum);
+            }
+        }
+
+        Map<String, ToolTypeAvailability> availability = new HashMap<>();
+        numberOfUnitsByToolType.forEach((toolType, numberOfUnits) ->
+                availability.put(toolType, newToolTypeAvailability(toolType, numberOfUnits)));
+
+        Map<String, List<ToolUnitReservations>> units = new HashMap<>();
+        for (ToolUnit toolUnit : toolUnits) {
+            ToolTypeAvailability toolTypeAvailability = availability.get(toolTypeByToolCode.get(toolUnit.getToolCode()));
+            units.computeIfAbsent(toolUnit.getToolCode(), code -> new ArrayList<>())
+                    .add(new ToolUnitReservations(toolUnit.getToolCode(), toolUnit.getSerialNumber(), toolTypeAvailability));
+        }
+
+        Map<String, ToolUnitReservations[]> loaded = new HashMap<>();
+        units.forEach((toolCode, unitList) -> loaded.put(toolCode, unitList.toArray(new ToolUnitReservations[0])));
+        unitsByToolCode = Collections.unmodifiableMap(loaded);
+        availabilityByToolType = Collections.unmodifiableMap(availability);
+        reservationsByAgreementId.clear();
+    }
+
+    //  Loads the units of the given tools whose units are not loaded yet; i.e. of tools added to the catalog since the
+    //  units were loaded (see ToolService.addCatalogListener()), which are then added to the counts of their tool type.
+    //  The maps are copied, and published as a whole, as by loadUnits().
+    synchronized void loadUnitsOfAddedTools(List<Tool> tools) {
+        Map<String, ToolUnitReservations[]> units = null;
+        Map<String, ToolTypeAvailability> availability = null;
+        for (Tool tool : tools) {
+            String toolCode = tool.getTool_code();
+            if (unitsByToolCode.containsKey(toolCode) || units != null && units.containsKey(toolCode)) {
+                continue;
+            }
+            List<ToolUnit> toolUnits = new ArrayList<>();
+            toolUnitRepository.findByToolCode(toolCode).forEach(toolUnits::add);
+            if (toolUnits.isEmpty()) {
+                continue;
+            }
+
+            if (units == null) {
+                units = new HashMap<>(unitsByToolCode);
+                availability = new HashMap<>(availabilityByToolType);
+            }
+            ToolTypeAvailability toolTypeAvailability = availability.get(tool.getTool_type());
+            if (toolTypeAvailability == null) {
+                toolTypeAvailability = newToolTypeAvailability(tool.getTool_type(), toolUnits.size());
+                availability.put(tool.getTool_type(), toolTypeAvailability);
+            } else {
+                toolTypeAvailability.addUnits(toolUnits.size());
+            }
+            ToolUnitReservations[] added = new ToolUnitReservations[toolUnits.size()];
+            for (int unit = 0; unit < added.length; unit++) {
+                added[unit] = new ToolUnitReservations(toolCode, toolUnits.get(unit).getSerialNumber(), toolTypeAvailability);
+            }
+            units.put(toolCode, added);
+            logger.info("Loaded {} units of {}, added to the catalog since startup", added.length, toolCode);
+        }
+        if (units != null) {
+            availabilityByToolType = Collections.unmodifiableMap(availability);
+            unitsByToolCode = Collections.unmodifiableMap(units);
+        }
+    }
+
+    //  Counts the units of the tool type over the days of the RentalDateManager's calendar index years
+    private static ToolTypeAvailability newToolTypeAvailability(String toolType, int numberOfUnits) {
+        RentalCalendarIndex calendarIndex = RentalDateManager.getInstance().getCalendarIndex();
+        long windowFirstEpochDay = LocalDate.of(calendarIndex.getFirstIndexedYear(), 1, 1).toEpochDay();
+        int windowDays = (int) (LocalDate.of(calendarIndex.getLastIndexedYear() + 1, 1, 1).toEpochDay() - windowFirstEpochDay);
+        return new ToolTypeAvailability(toolType, numberOfUnits, windowFirstEpochDay, windowDays);
+    }
+
+    //  The rented unit counts of the given tool type; null if there are no units of the tool type
+    public ToolTypeAvailability getToolTypeAvailability(String toolType) {
+        return availabilityByToolType.get(toolType);
+    }
+
+    //  Restores a stored reservation, for the given agreement, onto the given unit; or onto any available unit if the
+    //  unit is not known (e.g. the agreement was recorded before units were tracked).  Returns null if it overlaps the
+    //  restored reservations.
+    Reservation restoreReservation(String agreementId, String toolCode, String serialNumber, long firstEpochDay,
+                                   long endEpochDay) {
+        ToolUnitReservations[] units = unitsByToolCode.get(toolCode);
+        if (units == null) {
+            return null;
+        }
+        for (ToolUnitReservations unit : units) {
+            if (unit.getSerialNumber().equals(serialNumber)) {
+                return register(unit.tryReserve(agreementId, firstEpochDay, endEpochDay));
+            }
+        }
+        return reserve(agreementId, toolCode, firstEpochDay, endEpochDay);
+    }
+
+    private static String storedRentalKey(ResultSet resultSet) throws SQLException {
+        return resultSet.getString("tool_code") + '/' + resultSet.getString("unit_serial_number") + '/'
+                + resultSet.getDate("checkout_date") + '/' + resultSet.getDate("due_date");
+    }
+
+    public boolean isTracked() {
+        return tracked;
+    }
+
+    public int getNumberOfUnits(String toolCode) {
+        ToolUnitReservations[] units = unitsByToolCode.get(toolCode);
+        return units == null ? 0 : units.length;
+    }
+
+    //  Reserves any one unit of the given tool for the days [firstEpochDay, endEpochDay), for a new agreement; returns
+    //  null if every unit is already reserved on at least one of those days.
+    public Reservation reserve(String toolCode, long firstEpochDay, long endEpochDay) {
+        return reserve(UUID.randomUUID().toString(), toolCode, firstEpochDay, endEpochDay);
+    }
+
+    private Reservation reserve(String agreementId, String toolCode, long firstEpochDay, long endEpochDay) {
+        if (!tracked) {
+            return Reservation.UNTRACKED;
+        }
+        if (endEpochDay <= firstEpochDay) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid reservation, epoch days %d - %d", firstEpochDay, endEpochDay)
+            );
+        }
+
+        ToolUnitReservations[] units = unitsByToolCode.get(toolCode);
+        if (units == null) {
+            return null;
+        }
+        int firstUnit = units.length == 1 ? 0 : ThreadLocalRandom.current().nextInt(units.length);
+        for (int attempt = 0; attempt < units.length; attempt++) {
+            Reservation reservation = units[(firstUnit + attempt) % units.length]
+                    .tryReserve(agreementId, firstEpochDay, endEpochDay);
+            if (reservation != null) {
+                return register(reservation);
+            }
+        }
+        return null;
+    }
+
+    private Reservation register(Reservation reservation) {
+        if (reservation != null && reservation.getAgreementId() != null) {
+            reservationsByAgreementId.put(reservation.getAgreementId(), reservation);
+        }
+        return reservation;
+    }
+
+    //  Cancels the reservation; returns false if it was not (or is no longer) held
+    public boolean release(Reservation reservation) {
+        if (reservation == null || reservation.getUnit() == null) {
+            return false;
+        }
+        if (reservation.getAgreementId() != null) {
+            reservationsByAgreementId.remove(reservation.getAgreementId(), reservation);
+        }
+        return reservation.getUnit().release(reservation);
+    }
+
+    //  Returns the unit rented by the given agreement; i.e. releases exactly the agreement's reservation, and stores the
+    //  return.  Returns the released reservation, or null if the agreement holds no reservation (an unknown id, or the
+    //  unit was already returned).
+    public Reservation returnRental(String agreementId) {
+        if (!tracked) {
+            return Reservation.UNTRACKED;
+        }
+        Reservation reservation = agreementId == null ? null : reservationsByAgreementId.remove(agreementId);
+        if (reservation == null || !reservation.getUnit().release(reservation)) {
+            return null;
+        }
+        storeReturn(reservation);
+        return reservation;
+    }
+
+    //  If the return cannot be stored, the unit is reserved again (the unit would otherwise be rented out again, and
+    //  its agreement restored on restart)
+    private void storeReturn(Reservation reservation) {
+        if (jdbcTemplate == null) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(INSERT_RETURN_SQL, reservation.getAgreementId(), reservation.getToolCode(),
+                    reservation.getSerialNumber(), Date.valueOf(LocalDate.ofEpochDay(reservation.getFirstEpochDay())),
+                    Date.valueOf(LocalDate.ofEpochDay(reservation.getEndEpochDay() - 1)),
+                    new Timestamp(System.currentTimeMillis()));
+        } catch (RuntimeException e) {
+            register(reservation.getUnit().tryReserve(reservation.getAgreementId(), reservation.getFirstEpochDay(),
+                    reservation.getEndEpochDay()));
+            throw e;
+        }
+    }
+
+    //  The reservations (of any unit) of the given tool overlapping [firstEpochDay, endEpochDay), ordered by unit and
+    //  then date; O(u log n + k) for u units, n reservations per unit, and k overlapping reservations.
+    public List<Reservation> findOverlappingReservations(String toolCode, long firstEpochDay, long endEpochDay) {
+        ToolUnitReservations[] units = unitsByToolCode.get(toolCode);
+        if (units == null) {
+            return List.of();
+        }
+        List<Reservation> overlapping = new ArrayList<>();
+        for (ToolUnitReservations unit : units) {
+            unit.collectOverlapping(firstEpochDay, endEpochDay, overlapping);
+        }
+        return overlapping;
+    }
+
+    public ToolAvailability getAvailability(String toolCode, long firstEpochDay, long endEpochDay) {
+        return new ToolAvailability(toolCode, firstEpochDay, endEpochDay, getNumberOfUnits(toolCode),
+                countAvailableUnits(toolCode, firstEpochDay, endEpochDay),
+                findOverlappingReservations(toolCode, firstEpochDay, endEpochDay));
+    }
+
+    //  Fewest and most available units of the given tool type over [firstEpochDay, endEpochDay); an O(log n) query of
+    //  the tool type's counts.  Null if there are no units of the tool type, or the range is outside the counted days.
+    public ToolTypeAvailabilityRange getToolTypeAvailability(String toolType, long firstEpochDay, long endEpochDay) {
+        ToolTypeAvailability toolTypeAvailability = availabilityByToolType.get(toolType);
+        if (toolTypeAvailability == null || toolTypeAvailability.getFirstEpochDay() > firstEpochDay
+                || toolTypeAvailability.getEndEpochDay() < endEpochDay) {
+            return null;
+        }
+        return new ToolTypeAvailabilityRange(toolType, firstEpochDay, endEpochDay,
+                toolTypeAvailability.getNumberOfUnits(),
+                toolTypeAvailability.minAvailableUnits(firstEpochDay, endEpochDay),
+                toolTypeAvailability.maxAvailableUnits(firstEpochDay, endEpochDay));
+    }
+
+    //  Number of units of the given tool which are available on every day of [firstEpochDay, endEpochDay)
+    public int countAvailableUnits(String toolCode, long firstEpochDay, long endEpochDay) {
+        ToolUnitReservations[] units = unitsByToolCode.get(toolCode);
+        if (units == null) {
+            return 0;
+        }
+        int available = 0;
+        for (ToolUnitReservations unit : units) {
+            if (unit.isAvailable(firstEpochDay, endEpochDay)) {
+                available++;
+            }
+        }
+        return available;
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.demo.store.inventory;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Number of units of a tool type (e.g. every Jackhammer, regardless of brand) rented on each day of a fixed window of
+ * epoch days; so the minimum and maximum number of available units over any range of days is an O(log n) query, rather
+ * than a scan of every day (and every unit).
+ *
+ * - The counts are held in a segment tree over the days of the window.  Each node holds the minimum and maximum number
+ *   of rented units over its days, plus an "add" applied to every day below the node; so a rental (or a return) of a
+ *   range of days is an O(log n) update, without visiting each day.
+ *
+ * - The tree is persistent (immutable), and updated lock-free: an update copies only the O(log n) nodes on the paths to
+ *   the updated range, and publishes the new root with a compare-and-set; if another update was published first, the
+ *   update is simply repeated from the new root (as for a unit's reservations; see ToolUnitReservations).  A query reads
+ *   the root once, so it never blocks, and always sees a consistent snapshot of the counts.  A subtree of days never
+ *   rented is null; so the tree only holds nodes for the days rented since startup.
+ *
+ * - Updated incrementally on every reservation (checkout) and release (return, or a cancelled checkout); see
+ *   ToolUnitReservations.
+ *
+ * - Days outside the window are not counted; a range partially outside the window is clipped to the window.
+ *
+ * - The number of units grows when the units of a tool added since startup are loaded (see
+ *   ToolInventory.loadUnitsOfAddedTools()); the new units have no rentals yet, so the counts are unchanged.
+ */
+public class ToolTypeAvailability {
+    private final String toolType;
+    private volatile int numberOfUnits;
+    private final long firstEpochDay;
+    private final int numberOfDays;
+    //  leaves; a power of two of at least numberOfDays
+    private final int size;
+    //  null while no day is rented
+    private final AtomicReference<Node> root = new AtomicReference<>();
+
+    public ToolTypeAvailability(String toolType, int numberOfUnits, long firstEpochDay, int numberOfDays) {
+        if (numberOfDays < 1) {
+            throw new IllegalArgumentException("Invalid number of days: " + numberOfDays);
+        }
+        this.toolType = toolType;
+        this.numberOfUnits = numberOfUnits;
+        this.firstEpochDay = firstEpochDay;
+        this.numberOfDays = numberOfDays;
+        int leaves = 1;
+        while (leaves < numberOfDays) {
+            leaves <<= 1;
+        }
+        this.size = leaves;
+    }
+
+    public String getToolType() {
+        return toolType;
+    }
+
+    public int getNumberOfUnits() {
+        return numberOfUnits;
+    }
+
+    //  Units of the tool type were added; only called while the inventory's units are being (re)loaded
+    void addUnits(int addedUnits) {
+        numberOfUnits += addedUnits;
+    }
+
+    public long getFirstEpochDay() {
+        return firstEpochDay;
+    }
+
+    //  exclusive
+    public long getEndEpochDay() {
+        return firstEpochDay + numberOfDays;
+    }
+
+    //  A unit is rented for the days [firstEpochDay, endEpochDay)
+    void rent(long firstEpochDay, long endEpochDay) {
+        update(firstEpochDay, endEpochDay, 1);
+    }
+
+    //  A unit rented for the days [firstEpochDay, endEpochDay) is returned (or its reservation cancelled)
+    void giveBack(long firstEpochDay, long endEpochDay) {
+        update(firstEpochDay, endEpochDay, -1);
+    }
+
+    //  Minimum number of available units on any one day of [firstEpochDay, endEpochDay)
+    public int minAvailableUnits(long firstEpochDay, long endEpochDay) {
+        return numberOfUnits - query(firstEpochDay, endEpochDay, true);
+    }
+
+    //  Maximum number of available units on any one day of [firstEpochDay, endEpochDay)
+    public int maxAvailableUnits(long firstEpochDay, long endEpochDay) {
+        return numberOfUnits - query(firstEpochDay, endEpochDay, false);
+    }
+
+    public int availableUnits(long epochDay) {
+        return minAvailableUnits(epochDay, epochDay + 1);
+    }
+
+    //  True if [firstEpochDay, endEpochDay) overlaps the window
+    public boolean covers(long firstEpochDay, long endEpochDay) {
+        return firstEpochDay < getEndEpochDay() && endEpochDay > this.firstEpochDay && firstEpochDay < endEpochDay;
+    }
+
+    private void update(long firstEpochDay, long endEpochDay, int delta) {
+        if (!covers(firstEpochDay, endEpochDay)) {
+            return;
+        }
+        int from = (int) (Math.max(firstEpochDay, this.firstEpochDay) - this.firstEpochDay);
+        int to = (int) (Math.min(endEpochDay, getEndEpochDay()) - this.firstEpochDay) - 1;
+
+        while (true) {
+            Node current = root.get();
+            if (root.compareAndSet(current, update(current, 0, size - 1, from, to, delta))) {
+                return;
+            }
+        }
+    }
+
+    //  The copy of the (possibly null) node with delta added to the days [from, to] of its range
+    private static Node update(Node node, int nodeFrom, int nodeTo, int from, int to, int delta) {
+        int add = node == null ? 0 : node.add;
+        Node left = node == null ? null : node.left;
+        Node right = node == null ? null : node.right;
+        if (from <= nodeFrom && nodeTo <= to) {
+            return new Node(add + delta, minRented(node) + delta, maxRented(node) + delta, left, right);
+        }
+        int middle = (nodeFrom + nodeTo) >>> 1;
+        if (from <= middle) {
+            left = update(left, nodeFrom, middle, from, to, delta);
+        }
+        if (to > middle) {
+            right = update(right, middle + 1, nodeTo, from, to, delta);
+        }
+        return new Node(add, Math.min(minRented(left), minRented(right)) + add,
+                Math.max(maxRented(left), maxRented(right)) + add, left, right);
+    }
+
+    //  Maximum (or minimum) number of units rented on any one day of the range
+    private int query(long firstEpochDay, long endEpochDay, boolean maximum) {
+        if (!covers(firstEpochDay, endEpochDay)) {
+            throw new IllegalArgumentException(
+                    String.format("Epoch days %d - %d are outside the availability window of %s", firstEpochDay, endEpochDay, toolType)
+            );
+        }
+        int from = (int) (Math.max(firstEpochDay, this.firstEpochDay) - this.firstEpochDay);
+        int to = (int) (Math.min(endEpochDay, getEndEpochDay()) - this.firstEpochDay) - 1;
+
+        return query(root.get(), 0, size - 1, from, to, maximum);
+    }
+
+    private static int query(Node node, int nodeFrom, int nodeTo, int from, int to, boolean maximum) {
+        if (node == null) {
+            return 0;
+        }
+        if (from <= nodeFrom && nodeTo <= to) {
+            return maximum ? node.maxRented : node.minRented;
+        }
+        int middle = (nodeFrom + nodeTo) >>> 1;
+        int result;
+        if (to <= middle) {
+            result = query(node.left, nodeFrom, middle, from, to, maximum);
+        } else if (from > middle) {
+            result = query(node.right, middle + 1, nodeTo, from, to, maximum);
+        } else {
+            int left = query(node.left, nodeFrom, middle, from, to, maximum);
+            int right = query(node.right, middle + 1, nodeTo, from, to, maximum);
+            result = maximum ? Math.max(left, right) : Math.min(left, right);
+        }
+        return result + node.add;
+    }
+
+    private static int minRented(Node node) {
+        return node == null ? 0 : node.minRented;
+    }
+
+    private static int maxRented(Node node) {
+        return node == null ? 0 : node.maxRented;
+    }
+
+    //  A node of the tree; never modified once published.  A null child is a subtree whose days are not rented.
+    private static final class Node {
+        private final int add;
+        private final int minRented;
+        private final int maxRented;
+        private final Node left;
+        private final Node right;
+
+        private Node(int add, int minRented, int maxRented, Node left, Node right) {
+            this.add = add;
+            this.minRented = minRented;
+            this.maxRented = maxRented;
+            this.left = left;
+            this.right = right;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.demo.store.inventory;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.time.LocalDate;
+
+/**
+ * Available units of a tool type over a range of days; returned by the /tool/type/{tool_type}/availability endpoint.
+ *
+ * - minAvailableUnits: the fewest units (of any brand) free on any one day of the range
+ * - maxAvailableUnits: the most units free on any one day of the range
+ */
+@JsonPropertyOrder({"toolType", "from", "to", "numberOfUnits", "minAvailableUnits", "maxAvailableUnits"})
+public class ToolTypeAvailabilityRange {
+    private final String toolType;
+    private final long firstEpochDay;
+    private final long endEpochDay;
+    private final int numberOfUnits;
+    private final int minAvailableUnits;
+    private final int maxAvailableUnits;
+
+    ToolTypeAvailabilityRange(String toolType, long firstEpochDay, long endEpochDay, int numberOfUnits,
+                              int minAvailableUnits, int maxAvailableUnits) {
+        this.toolType = toolType;
+        this.firstEpochDay = firstEpochDay;
+        this.endEpochDay = endEpochDay;
+        this.numberOfUnits = numberOfUnits;
+        this.minAvailableUnits = minAvailableUnits;
+        this.maxAvailableUnits = maxAvailableUnits;
+    }
+
+    public String getToolType() {
+        return toolType;
+    }
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM/dd/yy")
+    public LocalDate getFrom() {
+        return LocalDate.ofEpochDay(firstEpochDay);
+    }
+
+    //  inclusive
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM/dd/yy")
+    public LocalDate getTo() {
+        return LocalDate.ofEpochDay(endEpochDay - 1);
+    }
+
+    public int getNumberOfUnits() {
+        return numberOfUnits;
+    }
+
+    public int getMinAvailableUnits() {
+        return minAvailableUnits;
+    }
+
+    public int getMaxAvailableUnits() {
+        return maxAvailableUnits;
+    }
+}
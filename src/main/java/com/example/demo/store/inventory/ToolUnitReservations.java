@@ -0,0 +1,123 @@
+package com.example.demo.store.inventory;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The reservations of a single tool unit; a sorted-interval index, updated lock-free.
+ *
+ * The reservations are held as one immutable array, sorted by first epoch day.  A unit's reservations never overlap, so
+ * the array is sorted by end epoch day as well; any overlap query is therefore two binary searches, O(log n), plus the
+ * k overlapping reservations.
+ *
+ * Reserving (or releasing) copies the array with the reservation inserted (or removed), and publishes the copy with a
+ * compare-and-set; if another thread changed the unit's reservations first, the overlap check is simply repeated
+ * against the new array.  Readers never block, and never see a partial update.  (The copy is a single arraycopy of the
+ * unit's reservations; cheap relative to a checkout, even with years of history.)
+ */
+final class ToolUnitReservations {
+    private static final Reservation[] NO_RESERVATIONS = new Reservation[0];
+
+    private final String toolCode;
+    private final String serialNumber;
+    //  the rented unit counts of the unit's tool type; null if the tool type is not known
+    private final ToolTypeAvailability toolTypeAvailability;
+    private final AtomicReference<Reservation[]> reservations = new AtomicReference<>(NO_RESERVATIONS);
+
+    ToolUnitReservations(String toolCode, String serialNumber, ToolTypeAvailability toolTypeAvailability) {
+        this.toolCode = toolCode;
+        this.serialNumber = serialNumber;
+        this.toolTypeAvailability = toolTypeAvailability;
+    }
+
+    String getToolCode() {
+        return toolCode;
+    }
+
+    String getSerialNumber() {
+        return serialNumber;
+    }
+
+    //  Reserves the unit for [firstEpochDay, endEpochDay), for the given agreement, unless any of those days is already
+    //  reserved; returns null if the unit is not available.
+    Reservation tryReserve(String agreementId, long firstEpochDay, long endEpochDay) {
+        Reservation reservation = new Reservation(agreementId, toolCode, serialNumber, this, firstEpochDay, endEpochDay);
+        while (true) {
+            Reservation[] current = reservations.get();
+            int insertAt = firstEndingAfter(current, firstEpochDay);
+            if (insertAt < current.length && current[insertAt].getFirstEpochDay() < endEpochDay) {
+                return null;
+            }
+
+            Reservation[] updated = new Reservation[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, insertAt);
+            updated[insertAt] = reservation;
+            System.arraycopy(current, insertAt, updated, insertAt + 1, current.length - insertAt);
+            if (reservations.compareAndSet(current, updated)) {
+                if (toolTypeAvailability != null) {
+                    toolTypeAvailability.rent(firstEpochDay, endEpochDay);
+                }
+                return reservation;
+            }
+        }
+    }
+
+    //  Releases the given reservation (held on this unit); returns false if it is no longer held
+    boolean release(Reservation reservation) {
+        long firstEpochDay = reservation.getFirstEpochDay();
+        long endEpochDay = reservation.getEndEpochDay();
+        while (true) {
+            Reservation[] current = reservations.get();
+            int index = firstEndingAfter(current, firstEpochDay);
+            if (index >= current.length || current[index] != reservation) {
+                return false;
+            }
+
+            Reservation[] updated = current.length == 1 ? NO_RESERVATIONS : new Reservation[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+            if (reservations.compareAndSet(current, updated)) {
+                if (toolTypeAvailability != null) {
+                    toolTypeAvailability.giveBack(firstEpochDay, endEpochDay);
+                }
+                return true;
+            }
+        }
+    }
+
+    boolean isAvailable(long firstEpochDay, long endEpochDay) {
+        Reservation[] current = reservations.get();
+        int index = firstEndingAfter(current, firstEpochDay);
+        return index >= current.length || current[index].getFirstEpochDay() >= endEpochDay;
+    }
+
+    //  Adds the reservations overlapping [firstEpochDay, endEpochDay) to the given list, in date order
+    void collectOverlapping(long firstEpochDay, long endEpochDay, List<Reservation> overlapping) {
+        Reservation[] current = reservations.get();
+        for (int index = firstEndingAfter(current, firstEpochDay);
+             index < current.length && current[index].getFirstEpochDay() < endEpochDay;
+             index++) {
+            overlapping.add(current[index]);
+        }
+    }
+
+    int numberOfReservations() {
+        return reservations.get().length;
+    }
+
+    //  Index of the first reservation ending after the given epoch day; i.e. the first reservation which may overlap a
+    //  range starting on that day (every earlier reservation has ended by then).
+    private static int firstEndingAfter(Reservation[] reservations, long epochDay) {
+        int low = 0;
+        int high = reservations.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (reservations[middle].getEndEpochDay() <= epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
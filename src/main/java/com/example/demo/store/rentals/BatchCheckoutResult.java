@@ -0,0 +1,123 @@
+package com.example.demo.store.rentals;
+
+import com.example.demo.store.rentals.exceptions.RentalRequestException;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The result of checking out a single entry of a batch (see BatchCheckoutService).
+ *
+ * Each result identifies the position (index) of its RentalRequest within the batch, and holds either the finalized
+ * RentalAgreement or a structured error describing why the entry was rejected; so one bad entry does not fail the
+ * whole batch.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"index", "agreement", "error"})
+public class BatchCheckoutResult {
+    private static final Logger logger = LoggerFactory.getLogger(BatchCheckoutResult.class);
+
+    @JsonProperty
+    private final int index;
+    @JsonProperty
+    private final RentalAgreement agreement;
+    @JsonProperty
+    private final Error error;
+
+    private BatchCheckoutResult(int index, RentalAgreement agreement, Error error) {
+        this.index = index;
+        this.agreement = agreement;
+        this.error = error;
+    }
+
+    static BatchCheckoutResult success(int index, RentalAgreement agreement) {
+        return new BatchCheckoutResult(index, agreement, null);
+    }
+
+    static BatchCheckoutResult failure(int index, Exception exception) {
+        return new BatchCheckoutResult(index, null, Error.of(exception));
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public RentalAgreement getAgreement() {
+        return agreement;
+    }
+
+    public Error getError() {
+        return error;
+    }
+
+    @JsonIgnore
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * Structured error for a rejected batch entry, or checkout (see RentalRequestExceptionHandler); the type of the
+     * failure (e.g. RentalRequestException) and its message, plus the error code and the request field rejected when the
+     * failure is a rejected request.
+     *
+     * An entry which is not valid JSON, or cannot be bound to a RentalRequest, is a malformed-request rejection, without
+     * the parser's message.  Any other failure is an error rather than a rejection; it is logged, and its result is a
+     * fixed internal-error, without the exception's class or message (which may describe the application's internals).
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonPropertyOrder({"type", "code", "field", "message"})
+    public static class Error {
+        @JsonProperty
+        private final String type;
+        @JsonProperty
+        private final String code;
+        @JsonProperty
+        private final String field;
+        @JsonProperty
+        private final String message;
+
+        Error(String type, String code, String field, String message) {
+            this.type = type;
+            this.code = code;
+            this.field = field;
+            this.message = message;
+        }
+
+        static final String INTERNAL_ERROR_TYPE = "InternalError";
+        static final String INTERNAL_ERROR_CODE = "internal-error";
+        private static final Error INTERNAL_ERROR = new Error(INTERNAL_ERROR_TYPE, INTERNAL_ERROR_CODE, null, null);
+
+        public static Error of(Exception exception) {
+            if (exception instanceof RentalRequestException rentalRequestException) {
+                RentalRequestException.Reason reason = rentalRequestException.getReason();
+                return new Error(RentalRequestException.class.getSimpleName(), reason.getCode(), reason.getField(),
+                        rentalRequestException.getMessage());
+            }
+            if (exception instanceof JsonProcessingException) {
+                return of(new RentalRequestException(RentalRequestException.Reason.MALFORMED_REQUEST, "Malformed rental request"));
+            }
+            logger.error("Failed to check out a rental request", exception);
+            return INTERNAL_ERROR;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
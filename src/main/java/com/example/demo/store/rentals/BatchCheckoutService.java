@@ -0,0 +1,123 @@
+package com.example.demo.store.rentals;
+
+import com.example.demo.entities.Tool;
+import com.example.demo.services.ToolService;
+import com.example.demo.store.inventory.ToolInventory;
+import com.example.demo.store.rentals.exceptions.RentalRequestException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Checks out (prices) a batch of RentalRequests in a single call.
+ *
+ * - Tool lookups are deduplicated across the batch; each distinct tool code is looked up once, before pricing starts.
+ * - The entries are priced in parallel, in chunks, on a bounded executor (see DemoConfig.checkoutBatchExecutor()).
+ * - One result is returned per entry, in the original order.  Each result holds either the finalized RentalAgreement,
+ *   or a structured error; so one bad entry does not fail the whole batch.
+ * - A tool unit is reserved for each (priced) entry, as for a single checkout; an entry for which no unit is available
+ *   fails.  Units are given back by POST /rental/return, as for a single checkout.
+ * - Each finalized agreement is recorded, as for a single checkout (see RentalAgreementRecorder).
+ * - Entries are finalized from cached quotes when possible, as for a single checkout (see RentalQuoteCache).
+ */
+@Service
+public class BatchCheckoutService {
+    //  Upper limit on the number of entries in a single batch
+    static final int MAX_BATCH_SIZE = 10_000;
+    //  Number of entries priced by each task submitted to the executor; pricing a single entry is far too cheap to be
+    //  worth a task of its own.
+    static final int CHUNK_SIZE = 32;
+
+    private final ToolService toolService;
+    private final Executor executor;
+    private final RentalAgreementRecorder rentalAgreementRecorder;
+    private final ToolInventory toolInventory;
+    private final RentalQuoteCache rentalQuoteCache;
+
+    public BatchCheckoutService(ToolService toolService, Executor executor) {
+        this(toolService, executor, RentalAgreementRecorder.NOOP, ToolInventory.UNTRACKED);
+    }
+
+    public BatchCheckoutService(ToolService toolService, Executor executor,
+                                RentalAgreementRecorder rentalAgreementRecorder, ToolInventory toolInventory) {
+        this(toolService, executor, rentalAgreementRecorder, toolInventory, RentalQuoteCache.DISABLED);
+    }
+
+    @Autowired
+    public BatchCheckoutService(ToolService toolService, @Qualifier("checkoutBatchExecutor") Executor executor,
+                                RentalAgreementRecorder rentalAgreementRecorder, ToolInventory toolInventory,
+                                RentalQuoteCache rentalQuoteCache) {
+        this.toolService = toolService;
+        this.executor = executor;
+        this.rentalAgreementRecorder = rentalAgreementRecorder;
+        this.toolInventory = toolInventory;
+        this.rentalQuoteCache = rentalQuoteCache;
+    }
+
+    public List<BatchCheckoutResult> checkout(List<RentalRequest> rentalRequests) throws RentalRequestException {
+        if (rentalRequests == null || rentalRequests.isEmpty()) {
+            return List.of();
+        }
+        if (rentalRequests.size() > MAX_BATCH_SIZE) {
+            throw new RentalRequestException(
+                    String.format("Batch size must not exceed %d! Given batch size = %d", MAX_BATCH_SIZE, rentalRequests.size())
+            );
+        }
+
+        Map<String, List<Tool>> toolsByCode = lookupDistinctToolCodes(rentalRequests);
+
+        BatchCheckoutResult[] results = new BatchCheckoutResult[rentalRequests.size()];
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int chunkStart = 0; chunkStart < results.length; chunkStart += CHUNK_SIZE) {
+            int fromIndex = chunkStart;
+            int toIndex = Math.min(chunkStart + CHUNK_SIZE, results.length);
+            chunks.add(CompletableFuture.runAsync(() -> {
+                for (int index = fromIndex; index < toIndex; index++) {
+                    results[index] = checkoutEntry(index, rentalRequests.get(index), toolsByCode);
+                }
+            }, executor));
+        }
+
+        //  join() also guarantees the results written by the executor threads are visible to this thread
+        CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).join();
+        return Arrays.asList(results);
+    }
+
+    //  Looks up each distinct (non-empty) tool code in the batch exactly once.
+    private Map<String, List<Tool>> lookupDistinctToolCodes(List<RentalRequest> rentalRequests) {
+        Map<String, List<Tool>> toolsByCode = new HashMap<>();
+        for (RentalRequest rentalRequest : rentalRequests) {
+            String toolCode = rentalRequest == null ? null : rentalRequest.getToolCode();
+            if (toolCode != null && !toolCode.isEmpty() && !toolsByCode.containsKey(toolCode)) {
+                toolsByCode.put(toolCode, toolService.findByCode(toolCode));
+            }
+        }
+        return toolsByCode;
+    }
+
+    private BatchCheckoutResult checkoutEntry(int index, RentalRequest rentalRequest, Map<String, List<Tool>> toolsByCode) {
+        try {
+            if (rentalRequest == null) {
+                throw new RentalRequestException("Rental request is required!");
+            }
+
+            RentalAgreement rentalAgreement =
+                    CheckoutService.validateRequestAndInitializeRentalAgreement(rentalRequest, toolsByCode::get);
+            rentalQuoteCache.finalizeAgreement(rentalAgreement, CheckoutMetrics.NOOP);
+            CheckoutService.reserveToolUnit(rentalAgreement, toolInventory);
+            CheckoutService.recordAgreement(rentalAgreement, rentalAgreementRecorder, toolInventory);
+            return BatchCheckoutResult.success(index, rentalAgreement);
+        } catch (Exception e) {
+            //  e.g. a RentalRequestException, or a RuntimeException (an error rather than a rejection)
+            return BatchCheckoutResult.failure(index, e);
+        }
+    }
+}
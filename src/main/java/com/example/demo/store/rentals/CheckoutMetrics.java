@@ -0,0 +1,134 @@
+package com.example.demo.store.rentals;
+
+import com.example.demo.store.rentals.exceptions.RentalRequestException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer instrumentation of the checkout stages.
+ *
+ * - rental.checkout                        timer (percentile histogram) of the complete checkout
+ * - rental.checkout.stage{stage}           timer (percentile histogram) of each stage of the checkout; see Stage
+ * - rental.checkout.requests{outcome}      counter of checkouts by outcome; success, rejected, or error
+ * - rental.checkout.rejected{reason}       counter of rejected checkouts by RentalRequestException reason
+ *
+ * All meters are registered up front, so recording never looks up (or creates) a meter.
+ *
+ * When metrics are disabled (rental.metrics.enabled=false) the NOOP instance is used; it never reads the clock, and
+ * every record method returns after a single boolean check.
+ */
+public class CheckoutMetrics {
+    public static final CheckoutMetrics NOOP = new CheckoutMetrics(null);
+
+    public enum Stage {
+        VALIDATION("validation"),
+        TOOL_LOOKUP("tool-lookup"),
+        INITIALIZATION("initialization"),
+        RESERVATION("reservation"),
+        DAY_CLASSIFICATION("day-classification"),
+        PRICING("pricing"),
+        SERIALIZATION("serialization");
+
+        private final String tagValue;
+
+        Stage(String tagValue) {
+            this.tagValue = tagValue;
+        }
+    }
+
+    private final boolean enabled;
+    private final Timer checkoutTimer;
+    private final Timer[] stageTimers;
+    private final Counter successCounter;
+    private final Counter rejectedCounter;
+    private final Counter errorCounter;
+    private final Map<RentalRequestException.Reason, Counter> rejectedByReasonCounters;
+
+    //  A null registry disables the metrics
+    public CheckoutMetrics(MeterRegistry meterRegistry) {
+        this.enabled = meterRegistry != null;
+        this.stageTimers = new Timer[Stage.values().length];
+        this.rejectedByReasonCounters = new EnumMap<>(RentalRequestException.Reason.class);
+
+        if (!enabled) {
+            this.checkoutTimer = null;
+            this.successCounter = null;
+            this.rejectedCounter = null;
+            this.errorCounter = null;
+            return;
+        }
+
+        this.checkoutTimer = Timer.builder("rental.checkout")
+                .description("Time to check out a rental request")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        for (Stage stage : Stage.values()) {
+            stageTimers[stage.ordinal()] = Timer.builder("rental.checkout.stage")
+                    .description("Time spent in each stage of a checkout")
+                    .tag("stage", stage.tagValue)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+
+        this.successCounter = outcomeCounter(meterRegistry, "success");
+        this.rejectedCounter = outcomeCounter(meterRegistry, "rejected");
+        this.errorCounter = outcomeCounter(meterRegistry, "error");
+        for (RentalRequestException.Reason reason : RentalRequestException.Reason.values()) {
+            rejectedByReasonCounters.put(reason, Counter.builder("rental.checkout.rejected")
+                    .description("Rejected rental requests, by reason")
+                    .tag("reason", reason.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("rental.checkout.requests")
+                .description("Rental requests checked out, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    //  Returns the start time of a checkout, or of a stage; passed back to the record methods below
+    public long startTimer() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    //  Records the time since startNanos against the stage, and returns the current time (i.e. the start of the next stage)
+    public long recordStage(Stage stage, long startNanos) {
+        if (!enabled) {
+            return 0L;
+        }
+        long nowNanos = System.nanoTime();
+        stageTimers[stage.ordinal()].record(nowNanos - startNanos, TimeUnit.NANOSECONDS);
+        return nowNanos;
+    }
+
+    public void recordSuccess(long checkoutStartNanos) {
+        if (enabled) {
+            checkoutTimer.record(System.nanoTime() - checkoutStartNanos, TimeUnit.NANOSECONDS);
+            successCounter.increment();
+        }
+    }
+
+    public void recordRejection(RentalRequestException rentalRequestException) {
+        if (enabled) {
+            rejectedCounter.increment();
+            rejectedByReasonCounters.get(rentalRequestException.getReason()).increment();
+        }
+    }
+
+    public void recordError() {
+        if (enabled) {
+            errorCounter.increment();
+        }
+    }
+}
@@ -2,80 +2,194 @@ package com.example.demo.store.rentals;
 
 import com.example.demo.entities.Tool;
 import com.example.demo.services.ToolService;
+import com.example.demo.store.inventory.Reservation;
+import com.example.demo.store.inventory.ToolInventory;
 import com.example.demo.store.rentals.exceptions.RentalRequestException;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.function.Function;
 
 @Service
 public class CheckoutService {
     private ToolService toolService;    // using ctor injection for the service
+    private CheckoutMetrics checkoutMetrics;
+    private RentalAgreementRecorder rentalAgreementRecorder;
+    private ToolInventory toolInventory;
+    private RentalQuoteCache rentalQuoteCache;
 
     public CheckoutService(ToolService toolService) {
+        this(toolService, CheckoutMetrics.NOOP);
+    }
+
+    public CheckoutService(ToolService toolService, CheckoutMetrics checkoutMetrics) {
+        this(toolService, checkoutMetrics, RentalAgreementRecorder.NOOP, ToolInventory.UNTRACKED);
+    }
+
+    public CheckoutService(ToolService toolService, CheckoutMetrics checkoutMetrics,
+                           RentalAgreementRecorder rentalAgreementRecorder, ToolInventory toolInventory) {
+        this(toolService, checkoutMetrics, rentalAgreementRecorder, toolInventory, RentalQuoteCache.DISABLED);
+    }
+
+    @Autowired
+    public CheckoutService(ToolService toolService, CheckoutMetrics checkoutMetrics,
+                           RentalAgreementRecorder rentalAgreementRecorder, ToolInventory toolInventory,
+                           RentalQuoteCache rentalQuoteCache) {
         this.toolService = toolService;
+        this.checkoutMetrics = checkoutMetrics;
+        this.rentalAgreementRecorder = rentalAgreementRecorder;
+        this.toolInventory = toolInventory;
+        this.rentalQuoteCache = rentalQuoteCache;
     }
 
+    //  Each stage of the checkout is timed (see CheckoutMetrics); the stages are the same steps performed by
+    //  validateRequestAndInitializeRentalAgreement(), finalizeAgreement(), and reserveToolUnit().  The agreement is
+    //  finalized from a cached quote when there is one (see RentalQuoteCache).  It is priced before a unit is reserved;
+    //  so repeated quotes of a sold out rental are still served by the cache, and a reservation is never held for an
+    //  agreement which then fails to price.  The finalized agreement is then recorded (see RentalAgreementRecorder).
     public RentalAgreement checkout(RentalRequest rentalRequest) throws RentalRequestException {
-        RentalAgreement rentalAgreement =  validateRequestAndInitializeRentalAgreement(rentalRequest, toolService);
-
-        rentalAgreement.finalizeAgreement();
+        long checkoutStart = checkoutMetrics.startTimer();
+        try {
+            validateRentalRequest(rentalRequest);
+            long stageStart = checkoutMetrics.recordStage(CheckoutMetrics.Stage.VALIDATION, checkoutStart);
+
+            Tool tool = validateToolCodeAndReturnToolInstance(rentalRequest.getToolCode(), toolService);
+            stageStart = checkoutMetrics.recordStage(CheckoutMetrics.Stage.TOOL_LOOKUP, stageStart);
+
+            RentalAgreement rentalAgreement = initializeRentalAgreement(rentalRequest, tool);
+            checkoutMetrics.recordStage(CheckoutMetrics.Stage.INITIALIZATION, stageStart);
+
+            rentalQuoteCache.finalizeAgreement(rentalAgreement, checkoutMetrics);
+
+            stageStart = checkoutMetrics.startTimer();
+            reserveToolUnit(rentalAgreement, toolInventory);
+            checkoutMetrics.recordStage(CheckoutMetrics.Stage.RESERVATION, stageStart);
+
+            //  queued for the write-behind insert; never blocks
+            recordAgreement(rentalAgreement, rentalAgreementRecorder, toolInventory);
+
+            checkoutMetrics.recordSuccess(checkoutStart);
+            return rentalAgreement;
+        } catch (RentalRequestException e) {
+            checkoutMetrics.recordRejection(e);
+            throw e;
+        } catch (RuntimeException e) {
+            checkoutMetrics.recordError();
+            throw e;
+        }
+    }
 
-        return rentalAgreement;
+    //  Returns the tool unit rented by an earlier checkout; the request identifies the rental by the agreement id
+    //  returned with the checkout, and exactly that agreement's reservation is released (see ToolInventory.returnRental()).
+    public Reservation returnRental(RentalReturnRequest returnRequest) throws RentalRequestException {
+        String agreementId = returnRequest.getAgreementId();
+        if (agreementId == null || agreementId.isEmpty()) {
+            throw RentalRequestException.of(RentalRequestException.Reason.MISSING_AGREEMENT_ID, agreementId);
+        }
+        Reservation reservation = toolInventory.returnRental(agreementId);
+        if (reservation == null) {
+            throw RentalRequestException.of(RentalRequestException.Reason.NO_RENTAL_TO_RETURN, agreementId);
+        }
+        return reservation;
     }
 
     // This method is used to create the initial rental agreement.
     // The primary purpose of this method provides testability of request validation, tool retrieval,
     // and basic agreement creation.
     static RentalAgreement validateRequestAndInitializeRentalAgreement(RentalRequest rentalRequest, ToolService toolService) throws RentalRequestException {
-        Tool tool = validateRentalRequestAndReturnToolInstance(rentalRequest, toolService);
+        return validateRequestAndInitializeRentalAgreement(rentalRequest, toolService::findByCode);
+    }
+
+    //  Same as above, but tools are looked up by the given function rather than directly by the ToolService; e.g. the
+    //  BatchCheckoutService looks up each distinct tool code once per batch, and supplies the results from a map.
+    static RentalAgreement validateRequestAndInitializeRentalAgreement(RentalRequest rentalRequest,
+                                                                       Function<String, List<Tool>> toolLookup) throws RentalRequestException {
+        Tool tool = validateRentalRequestAndReturnToolInstance(rentalRequest, toolLookup);
+
+        return initializeRentalAgreement(rentalRequest, tool);
+    }
 
-        //  The request is valid and the tool has been retrieved.
+    //  The request is valid and the tool has been retrieved; the agreement is initialized from the request's parsed
+    //  checkout date and discount percent.
+    static RentalAgreement initializeRentalAgreement(RentalRequest rentalRequest, Tool tool) throws RentalRequestException {
         RentalAgreement rentalAgreement =  new RentalAgreement();
         return rentalAgreement.setTool(tool)
                 .setRequestedRentalDays(rentalRequest.getNumberOfRentalDays())
-                .setCheckoutDate(rentalRequest.getCheckoutDate())
-                .setDiscountPercent(rentalRequest.getDiscount());
+                .setCheckoutDate(rentalRequest.getCheckoutDate(), rentalRequest.getCheckoutEpochDay())
+                .setDiscountPercent(rentalRequest.getDiscountPercent());
     }
 
     // The primary purpose of this method provides testability of request validation, tool retrieval,
     static Tool validateRentalRequestAndReturnToolInstance(RentalRequest rentalRequest, ToolService toolService) throws RentalRequestException {
-        // validate checkout date format
+        return validateRentalRequestAndReturnToolInstance(rentalRequest, toolService::findByCode);
+    }
+
+    static Tool validateRentalRequestAndReturnToolInstance(RentalRequest rentalRequest,
+                                                           Function<String, List<Tool>> toolLookup) throws RentalRequestException {
+        validateRentalRequest(rentalRequest);
+
+        return validateToolCodeAndReturnToolInstance(rentalRequest.getToolCode(), toolLookup);
+    }
+
+    //  Reserves a unit of the agreement's tool from the checkout date through the due date; so two concurrent checkouts
+    //  can never be given the same unit for overlapping days.
+    static void reserveToolUnit(RentalAgreement rentalAgreement, ToolInventory toolInventory) throws RentalRequestException {
+        Reservation reservation = toolInventory.reserve(rentalAgreement.getToolCode(),
+                rentalAgreement.getStartEpochDay(), rentalAgreement.getEndOfReservationEpochDay());
+        if (reservation == null) {
+            throw new RentalRequestException(RentalRequestException.Reason.TOOL_UNAVAILABLE,
+                    "No " + rentalAgreement.getToolCode() + " available from " + rentalAgreement.getCheckoutDate()
+                            + " for " + rentalAgreement.getRequestedRentalDays() + " days");
+        }
+        rentalAgreement.setReservation(reservation);
+    }
 
+    //  Records the agreement; if the recorder drops it (see RentalAgreementRecorder), the reservation is released and the
+    //  checkout rejected, rather than handing out a reservation that is never persisted.
+    static void recordAgreement(RentalAgreement rentalAgreement, RentalAgreementRecorder rentalAgreementRecorder,
+                                ToolInventory toolInventory) throws RentalRequestException {
+        if (!rentalAgreementRecorder.record(rentalAgreement)) {
+            toolInventory.release(rentalAgreement.getReservation());
+            throw RentalRequestException.of(RentalRequestException.Reason.AGREEMENT_NOT_RECORDED, rentalAgreement.getToolCode());
+        }
+    }
+
+    //  Validates the request fields other than the tool code (which is validated when the tool is looked up), and the
+    //  checkout date (which is validated when the agreement is initialized).  The discount was parsed when it was set
+    //  (see RentalRequest); a non-numeric discount is an INVALID_DISCOUNT.  Invalid requests are rejected without
+    //  formatting a message; see RentalRequestException.
+    static void validateRentalRequest(RentalRequest rentalRequest) throws RentalRequestException {
         if (rentalRequest.getNumberOfRentalDays() < 1) {
-            throw new RentalRequestException(
-                    String.format("Rental days must be greater than 0! Given number of days = %d", rentalRequest.getNumberOfRentalDays())
-            );
+            throw RentalRequestException.of(RentalRequestException.Reason.INVALID_RENTAL_DAYS, rentalRequest.getNumberOfRentalDays());
+        }
+        if (rentalRequest.getNumberOfRentalDays() > RentalRequest.MAX_RENTAL_DAYS) {
+            throw RentalRequestException.of(RentalRequestException.Reason.TOO_MANY_RENTAL_DAYS, rentalRequest.getNumberOfRentalDays());
         }
 
         String requestDiscount = rentalRequest.getDiscount();
         if (requestDiscount == null || requestDiscount.isEmpty()) {
-            throw new RentalRequestException(
-                    String.format("Discount percent is required!, Given discount percent = %s", requestDiscount)
-            );
+            throw RentalRequestException.of(RentalRequestException.Reason.MISSING_DISCOUNT, requestDiscount);
         }
 
-        int discount = Integer.parseInt(requestDiscount);
-        if (discount < 0 || discount > 100) {
-            throw new RentalRequestException(
-                    String.format("Discount percent must be between 0 and 100! Given discount percent = %d", discount)
-            );
+        if (rentalRequest.getDiscountPercent() == RentalRequest.INVALID_DISCOUNT_PERCENT) {
+            throw RentalRequestException.of(RentalRequestException.Reason.INVALID_DISCOUNT, requestDiscount);
         }
-
-        return validateToolCodeAndReturnToolInstance(rentalRequest.getToolCode(), toolService);
     }
 
     static Tool validateToolCodeAndReturnToolInstance(String toolCode, ToolService toolService) throws RentalRequestException {
+        return validateToolCodeAndReturnToolInstance(toolCode, toolService::findByCode);
+    }
+
+    static Tool validateToolCodeAndReturnToolInstance(String toolCode, Function<String, List<Tool>> toolLookup) throws RentalRequestException {
         if (toolCode == null || toolCode.isEmpty()) {
-            throw new RentalRequestException(
-                    String.format("Tool code is required!, Given tool code = %s", toolCode)
-            );
+            throw RentalRequestException.of(RentalRequestException.Reason.MISSING_TOOL_CODE, toolCode);
         }
 
-        List<Tool> toolList = toolService.findByCode(toolCode);
-        if (toolList.isEmpty()) {
-            throw new RentalRequestException(
-                    String.format("No tool found for tool code = %s", toolCode)
-            );
+        //  a recently looked up unknown tool code is answered from memory, without a database lookup (see ToolService)
+        List<Tool> toolList = toolLookup.apply(toolCode);
+        if (toolList == null || toolList.isEmpty()) {
+            throw RentalRequestException.of(RentalRequestException.Reason.UNKNOWN_TOOL_CODE, toolCode);
         }
 
         //  In theory the list should only contain one tool.
@@ -0,0 +1,70 @@
+package com.example.demo.store.rentals;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The set of holiday rules observed by the store (see HolidayRule).
+ *
+ * The calendar is compiled, once per year, into the calendar index (see RentalCalendarIndex); observedEpochDays(year)
+ * supplies the holidays of each year as it is built, after which classifying a day is a single array access regardless
+ * of the number of rules.
+ *
+ * The holidays are configured with the rental.holidays property (a comma separated list of rules, see DemoConfig); the
+ * default is the demo specification's holidays:
+ *     - Independence Day, July 4th, observed on the closest weekday if it falls on a weekend, and
+ *     - Labor Day, the first Monday in September.
+ */
+public class HolidayCalendar {
+    public static final String DEFAULT_RULES = "fixed:JULY:4:nearest-weekday, nth:SEPTEMBER:MONDAY:1";
+    public static final HolidayCalendar DEFAULT = parse(DEFAULT_RULES);
+
+    private final List<HolidayRule> rules;
+
+    public HolidayCalendar(List<HolidayRule> rules) {
+        this.rules = List.copyOf(rules);
+    }
+
+    //  Parses a comma separated list of rules; an empty list means no holidays
+    public static HolidayCalendar parse(String rules) {
+        List<HolidayRule> parsedRules = new ArrayList<>();
+        for (String rule : rules.split(",")) {
+            if (!rule.isBlank()) {
+                parsedRules.add(HolidayRule.parse(rule));
+            }
+        }
+        return new HolidayCalendar(parsedRules);
+    }
+
+    public List<HolidayRule> getRules() {
+        return rules;
+    }
+
+    //  Returns the (sorted, distinct) epoch days of the holidays observed within the given year.
+    //  The rules of the adjacent years are evaluated as well, since a holiday may be observed in the year before or
+    //  after the one it belongs to (e.g. January 1st observed on Friday, December 31st).
+    public long[] observedEpochDays(int year) {
+        long firstEpochDay = LocalDate.of(year, 1, 1).toEpochDay();
+        long lastEpochDay = LocalDate.of(year, 12, 31).toEpochDay();
+
+        long[] epochDays = new long[rules.size() * 3];
+        int count = 0;
+        for (HolidayRule rule : rules) {
+            for (int ruleYear = year - 1; ruleYear <= year + 1; ruleYear++) {
+                long epochDay = rule.observedEpochDay(ruleYear);
+                if (epochDay >= firstEpochDay && epochDay <= lastEpochDay) {
+                    epochDays[count++] = epochDay;
+                }
+            }
+        }
+        return Arrays.stream(epochDays, 0, count).sorted().distinct().toArray();
+    }
+
+    @Override
+    public String toString() {
+        return rules.stream().map(HolidayRule::toString).collect(Collectors.joining(", "));
+    }
+}
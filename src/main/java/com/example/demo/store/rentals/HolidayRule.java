@@ -0,0 +1,173 @@
+package com.example.demo.store.rentals;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Locale;
+
+/**
+ * A rule determining the (observed) date of a holiday within a given year.
+ *
+ * - Rules are evaluated only while a year of the calendar index is being built (see HolidayCalendar and
+ *   RentalCalendarIndex); never while classifying or counting days.  So the number of rules has no effect on the cost
+ *   of a lookup.
+ *
+ * - Rules are written in a compact, colon separated form (case insensitive), e.g. in the rental.holidays property:
+ *     - fixed:JULY:4                   - the given day of the month, even if it falls on a weekend
+ *     - fixed:JULY:4:nearest-weekday   - ... observed on the Friday before if it falls on a Saturday, or on the
+ *                                        Monday after if it falls on a Sunday
+ *     - fixed:JULY:4:next-weekday      - ... observed on the Monday after if it falls on a Saturday or Sunday
+ *     - nth:SEPTEMBER:MONDAY:1         - the nth (1 - 5) given day of the week in the month; a 5th occurrence that
+ *                                        does not exist in a given year is not a holiday in that year
+ *     - last:MAY:MONDAY                - the last given day of the week in the month
+ *   Months may also be given by number (e.g. fixed:7:4).
+ *
+ * Rules are immutable.
+ */
+public abstract class HolidayRule {
+    public enum Observance {
+        //  observed on the date itself
+        NONE,
+        //  observed on the Friday before a Saturday, or the Monday after a Sunday
+        NEAREST_WEEKDAY,
+        //  observed on the Monday after a Saturday or Sunday
+        NEXT_WEEKDAY
+    }
+
+    public static HolidayRule fixed(Month month, int dayOfMonth, Observance observance) {
+        return new FixedDate(month, dayOfMonth, observance);
+    }
+
+    public static HolidayRule nthWeekday(Month month, DayOfWeek dayOfWeek, int ordinal) {
+        return new NthWeekday(month, dayOfWeek, ordinal);
+    }
+
+    public static HolidayRule lastWeekday(Month month, DayOfWeek dayOfWeek) {
+        return new LastWeekday(month, dayOfWeek);
+    }
+
+    //  Parses a single rule written in the compact form described above
+    public static HolidayRule parse(String rule) {
+        String[] fields = rule.trim().toUpperCase(Locale.ROOT).split(":");
+        try {
+            switch (fields[0]) {
+                case "FIXED":
+                    if (fields.length == 3 || fields.length == 4) {
+                        Observance observance = fields.length == 4
+                                ? Observance.valueOf(fields[3].replace('-', '_'))
+                                : Observance.NONE;
+                        return fixed(parseMonth(fields[1]), Integer.parseInt(fields[2]), observance);
+                    }
+                    break;
+                case "NTH":
+                    if (fields.length == 4) {
+                        return nthWeekday(parseMonth(fields[1]), DayOfWeek.valueOf(fields[2]), Integer.parseInt(fields[3]));
+                    }
+                    break;
+                case "LAST":
+                    if (fields.length == 3) {
+                        return lastWeekday(parseMonth(fields[1]), DayOfWeek.valueOf(fields[2]));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid holiday rule: " + rule, e);
+        }
+        throw new IllegalArgumentException("Invalid holiday rule: " + rule);
+    }
+
+    //  Returns the epoch day on which the holiday is observed for the given year; or Long.MIN_VALUE if the holiday does
+    //  not occur in the given year.  Note - the observed day may fall in the previous or following year (e.g. January
+    //  1st observed on Friday, December 31st).
+    public abstract long observedEpochDay(int year);
+
+    private static Month parseMonth(String month) {
+        return Character.isDigit(month.charAt(0)) ? Month.of(Integer.parseInt(month)) : Month.valueOf(month);
+    }
+
+    private static final class FixedDate extends HolidayRule {
+        private final Month month;
+        private final int dayOfMonth;
+        private final Observance observance;
+
+        private FixedDate(Month month, int dayOfMonth, Observance observance) {
+            //  February 29th would only be a holiday in leap years; not supported
+            if (dayOfMonth < 1 || dayOfMonth > month.minLength()) {
+                throw new IllegalArgumentException(String.format("Invalid day of month for %s, %d", month, dayOfMonth));
+            }
+            this.month = month;
+            this.dayOfMonth = dayOfMonth;
+            this.observance = observance;
+        }
+
+        @Override
+        public long observedEpochDay(int year) {
+            LocalDate date = LocalDate.of(year, month, dayOfMonth);
+            return switch (date.getDayOfWeek()) {
+                case SATURDAY -> switch (observance) {
+                    case NONE -> date.toEpochDay();
+                    case NEAREST_WEEKDAY -> date.toEpochDay() - 1;
+                    case NEXT_WEEKDAY -> date.toEpochDay() + 2;
+                };
+                case SUNDAY -> observance == Observance.NONE ? date.toEpochDay() : date.toEpochDay() + 1;
+                default -> date.toEpochDay();
+            };
+        }
+
+        @Override
+        public String toString() {
+            return "fixed:" + month + ":" + dayOfMonth
+                    + (observance == Observance.NONE ? "" : ":" + observance.name().replace('_', '-'));
+        }
+    }
+
+    private static final class NthWeekday extends HolidayRule {
+        private final Month month;
+        private final DayOfWeek dayOfWeek;
+        private final int ordinal;
+
+        private NthWeekday(Month month, DayOfWeek dayOfWeek, int ordinal) {
+            if (ordinal < 1 || ordinal > 5) {
+                throw new IllegalArgumentException("Invalid ordinal, " + ordinal);
+            }
+            this.month = month;
+            this.dayOfWeek = dayOfWeek;
+            this.ordinal = ordinal;
+        }
+
+        @Override
+        public long observedEpochDay(int year) {
+            LocalDate date = LocalDate.of(year, month, 1).with(TemporalAdjusters.dayOfWeekInMonth(ordinal, dayOfWeek));
+            //  the adjuster rolls a missing 5th occurrence into the following month
+            return date.getMonth() == month ? date.toEpochDay() : Long.MIN_VALUE;
+        }
+
+        @Override
+        public String toString() {
+            return "nth:" + month + ":" + dayOfWeek + ":" + ordinal;
+        }
+    }
+
+    private static final class LastWeekday extends HolidayRule {
+        private final Month month;
+        private final DayOfWeek dayOfWeek;
+
+        private LastWeekday(Month month, DayOfWeek dayOfWeek) {
+            this.month = month;
+            this.dayOfWeek = dayOfWeek;
+        }
+
+        @Override
+        public long observedEpochDay(int year) {
+            return LocalDate.of(year, month, 1).with(TemporalAdjusters.lastInMonth(dayOfWeek)).toEpochDay();
+        }
+
+        @Override
+        public String toString() {
+            return "last:" + month + ":" + dayOfWeek;
+        }
+    }
+}
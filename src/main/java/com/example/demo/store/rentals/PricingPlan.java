@@ -0,0 +1,255 @@
+package com.example.demo.store.rentals;
+
+import com.example.demo.entities.RentalCost;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The rates charged for renting a tool type; a daily rate per day type (weekday, weekend day, and holiday), plus any
+ * number of peak seasons which add a percentage surcharge to the rates of the days within the season.
+ *
+ * - A plan prices a range of days from day type counts rather than day by day.  The base charge is the number of each
+ *   day type times its rate; each peak season then adds its surcharge times the number of each day type within the
+ *   intersection of the range and the season, counted by the calendar index (see RentalCalendarIndex).  So the cost of
+ *   pricing is constant per peak season (per year touched), regardless of the number of days.
+ *
+ * - A plan is built from a RentalCost (see of(RentalCost)), and is backward compatible with the original
+ *   weekday/weekend/holiday charge flags; a day type whose flag is false (or null) is not charged, and a day type whose
+ *   flag is true is charged its own rate if the rental cost has one, or the daily charge otherwise.  The flags alone
+ *   decide which days are charge days (even at a rate of 0.00); the rates only decide the amount.  So a rental cost
+ *   without rates or peak seasons prices exactly as before; the daily charge times the number of charged days.
+ *
+ * - Peak seasons are written as a comma separated list of recurring (annual) date ranges, inclusive, and surcharges;
+ *   e.g. "06-01..08-31:+25%, 12-20..01-05:+50%" (the second season spans the new year).  Seasons may not overlap.
+ *
+ * Plans are immutable.
+ */
+public class PricingPlan {
+    private final boolean weekdayCharged;
+    private final boolean weekendCharged;
+    private final boolean holidayCharged;
+    private final long weekdayRateCents;
+    private final long weekendRateCents;
+    private final long holidayRateCents;
+    private final List<PeakSeason> peakSeasons;
+
+    //  Rates only; a day type with a rate of 0 is not charged
+    public PricingPlan(long weekdayRateCents, long weekendRateCents, long holidayRateCents, String peakSeasons) {
+        this(weekdayRateCents > 0, weekendRateCents > 0, holidayRateCents > 0,
+                weekdayRateCents, weekendRateCents, holidayRateCents, peakSeasons);
+    }
+
+    //  The rate of a day type which is not charged is ignored (taken as 0)
+    public PricingPlan(boolean weekdayCharged, boolean weekendCharged, boolean holidayCharged,
+                       long weekdayRateCents, long weekendRateCents, long holidayRateCents, String peakSeasons) {
+        if (weekdayRateCents < 0 || weekendRateCents < 0 || holidayRateCents < 0) {
+            throw new IllegalArgumentException("Invalid (negative) rate");
+        }
+        this.weekdayCharged = weekdayCharged;
+        this.weekendCharged = weekendCharged;
+        this.holidayCharged = holidayCharged;
+        this.weekdayRateCents = weekdayCharged ? weekdayRateCents : 0L;
+        this.weekendRateCents = weekendCharged ? weekendRateCents : 0L;
+        this.holidayRateCents = holidayCharged ? holidayRateCents : 0L;
+        this.peakSeasons = parsePeakSeasons(peakSeasons);
+    }
+
+    public static PricingPlan of(RentalCost rentalCost) {
+        long dailyChargeCents = rentalCost.getDailyChargeCents();
+        return new PricingPlan(
+                Boolean.TRUE.equals(rentalCost.getWeekdayCharge()),
+                Boolean.TRUE.equals(rentalCost.getWeekendCharge()),
+                Boolean.TRUE.equals(rentalCost.getHolidayCharge()),
+                rateCents(rentalCost.getWeekdayRate(), dailyChargeCents),
+                rateCents(rentalCost.getWeekendRate(), dailyChargeCents),
+                rateCents(rentalCost.getHolidayRate(), dailyChargeCents),
+                rentalCost.getPeakSeasons());
+    }
+
+    public boolean isWeekdayCharged() {
+        return weekdayCharged;
+    }
+
+    public boolean isWeekendCharged() {
+        return weekendCharged;
+    }
+
+    public boolean isHolidayCharged() {
+        return holidayCharged;
+    }
+
+    public long getWeekdayRateCents() {
+        return weekdayRateCents;
+    }
+
+    public long getWeekendRateCents() {
+        return weekendRateCents;
+    }
+
+    public long getHolidayRateCents() {
+        return holidayRateCents;
+    }
+
+    public int getNumberOfPeakSeasons() {
+        return peakSeasons.size();
+    }
+
+    //  The number of days charged (i.e. whose day type is charged, whatever its rate), given the number of each day type
+    public int chargedDays(int numberOfWeekdays, int numberOfWeekendDays, int numberOfHolidays) {
+        return (weekdayCharged ? numberOfWeekdays : 0)
+                + (weekendCharged ? numberOfWeekendDays : 0)
+                + (holidayCharged ? numberOfHolidays : 0);
+    }
+
+    //  Prices the range of days [firstEpochDay, firstEpochDay + numberOfDays - 1]
+    public long priceCents(RentalCalendarIndex calendarIndex, long firstEpochDay, int numberOfDays) {
+        int numberOfWeekendDays = calendarIndex.countWeekendDays(firstEpochDay, numberOfDays);
+        int numberOfHolidays = calendarIndex.countHolidays(firstEpochDay, numberOfDays);
+        return priceCents(calendarIndex, firstEpochDay, numberOfDays,
+                numberOfDays - numberOfWeekendDays - numberOfHolidays, numberOfWeekendDays, numberOfHolidays);
+    }
+
+    //  Same as above, given the (already counted) number of each day type in the range
+    public long priceCents(RentalCalendarIndex calendarIndex, long firstEpochDay, int numberOfDays,
+                           int numberOfWeekdays, int numberOfWeekendDays, int numberOfHolidays) {
+        long priceCents = Math.addExact(Math.addExact(
+                Math.multiplyExact(weekdayRateCents, (long) numberOfWeekdays),
+                Math.multiplyExact(weekendRateCents, (long) numberOfWeekendDays)),
+                Math.multiplyExact(holidayRateCents, (long) numberOfHolidays));
+        if (peakSeasons.isEmpty() || numberOfDays <= 0) {
+            return priceCents;
+        }
+
+        long lastEpochDay = firstEpochDay + numberOfDays - 1;
+        int firstYear = LocalDate.ofEpochDay(firstEpochDay).getYear();
+        int lastYear = LocalDate.ofEpochDay(lastEpochDay).getYear();
+        for (PeakSeason peakSeason : peakSeasons) {
+            //  a season spanning the new year may start in the year before the range
+            for (int year = firstYear - 1; year <= lastYear; year++) {
+                long from = Math.max(firstEpochDay, peakSeason.startEpochDay(year));
+                long to = Math.min(lastEpochDay, peakSeason.endEpochDay(year));
+                if (from <= to) {
+                    priceCents = Math.addExact(priceCents, peakSeason.surchargeCents(calendarIndex, from, (int) (to - from + 1)));
+                }
+            }
+        }
+        return priceCents;
+    }
+
+    //  The day type's own rate if it has one, or the daily charge otherwise
+    private static long rateCents(BigDecimal rate, long dailyChargeCents) {
+        return rate == null ? dailyChargeCents : rate.movePointRight(2).longValueExact();
+    }
+
+    private List<PeakSeason> parsePeakSeasons(String peakSeasons) {
+        List<PeakSeason> parsedPeakSeasons = new ArrayList<>();
+        if (peakSeasons == null) {
+            return parsedPeakSeasons;
+        }
+
+        //  days of a leap year already within a season; used to reject overlapping seasons
+        boolean[] inSeason = new boolean[366];
+        for (String peakSeason : peakSeasons.split(",")) {
+            if (peakSeason.isBlank()) {
+                continue;
+            }
+            PeakSeason parsedPeakSeason = parsePeakSeason(peakSeason.trim());
+            for (int dayOfYear : parsedPeakSeason.leapYearDaysOfYear()) {
+                if (inSeason[dayOfYear]) {
+                    throw new IllegalArgumentException("Overlapping peak season: " + peakSeason.trim());
+                }
+                inSeason[dayOfYear] = true;
+            }
+            parsedPeakSeasons.add(parsedPeakSeason);
+        }
+        return List.copyOf(parsedPeakSeasons);
+    }
+
+    //  e.g. 06-01..08-31:+25%
+    private PeakSeason parsePeakSeason(String peakSeason) {
+        try {
+            int separator = peakSeason.indexOf("..");
+            int colon = peakSeason.indexOf(':');
+            if (separator > 0 && colon > separator && peakSeason.charAt(colon + 1) == '+' && peakSeason.endsWith("%")) {
+                MonthDay start = parseMonthDay(peakSeason.substring(0, separator));
+                MonthDay end = parseMonthDay(peakSeason.substring(separator + 2, colon));
+                int surchargePercent = Integer.parseInt(peakSeason.substring(colon + 2, peakSeason.length() - 1));
+                if (surchargePercent > 0 && surchargePercent <= 1000) {
+                    return new PeakSeason(start, end, surchargeCents(weekdayRateCents, surchargePercent),
+                            surchargeCents(weekendRateCents, surchargePercent), surchargeCents(holidayRateCents, surchargePercent));
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid peak season: " + peakSeason, e);
+        }
+        throw new IllegalArgumentException("Invalid peak season: " + peakSeason);
+    }
+
+    //  MM-dd
+    private static MonthDay parseMonthDay(String monthDay) {
+        String[] fields = monthDay.trim().split("-");
+        if (fields.length != 2) {
+            throw new IllegalArgumentException("Invalid month and day: " + monthDay);
+        }
+        return MonthDay.of(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]));
+    }
+
+    //  The surcharge on a daily rate, rounded to a whole cent, half up; so a day within a season costs the same however
+    //  the range containing it is priced
+    private static long surchargeCents(long rateCents, int surchargePercent) {
+        return (Math.multiplyExact(rateCents, (long) surchargePercent) + 50) / 100;
+    }
+
+    private static final class PeakSeason {
+        private final MonthDay start;
+        private final MonthDay end;
+        private final long weekdaySurchargeCents;
+        private final long weekendSurchargeCents;
+        private final long holidaySurchargeCents;
+
+        private PeakSeason(MonthDay start, MonthDay end,
+                           long weekdaySurchargeCents, long weekendSurchargeCents, long holidaySurchargeCents) {
+            this.start = start;
+            this.end = end;
+            this.weekdaySurchargeCents = weekdaySurchargeCents;
+            this.weekendSurchargeCents = weekendSurchargeCents;
+            this.holidaySurchargeCents = holidaySurchargeCents;
+        }
+
+        //  The first and last days of the season starting in the given year.  (February 29th is February 28th in a
+        //  common year.)
+        long startEpochDay(int year) {
+            return start.atYear(year).toEpochDay();
+        }
+
+        long endEpochDay(int year) {
+            return end.atYear(end.isBefore(start) ? year + 1 : year).toEpochDay();
+        }
+
+        long surchargeCents(RentalCalendarIndex calendarIndex, long firstEpochDay, int numberOfDays) {
+            int numberOfWeekendDays = calendarIndex.countWeekendDays(firstEpochDay, numberOfDays);
+            int numberOfHolidays = calendarIndex.countHolidays(firstEpochDay, numberOfDays);
+            int numberOfWeekdays = numberOfDays - numberOfWeekendDays - numberOfHolidays;
+            return Math.addExact(Math.addExact(
+                    Math.multiplyExact(weekdaySurchargeCents, (long) numberOfWeekdays),
+                    Math.multiplyExact(weekendSurchargeCents, (long) numberOfWeekendDays)),
+                    Math.multiplyExact(holidaySurchargeCents, (long) numberOfHolidays));
+        }
+
+        //  The (zero based) days of a leap year within the season
+        int[] leapYearDaysOfYear() {
+            int first = start.atYear(2000).getDayOfYear() - 1;
+            int last = end.atYear(2000).getDayOfYear() - 1;
+            int length = (last >= first ? last - first : last + 366 - first) + 1;
+            int[] daysOfYear = new int[length];
+            for (int i = 0; i < length; i++) {
+                daysOfYear[i] = (first + i) % 366;
+            }
+            return daysOfYear;
+        }
+    }
+}
@@ -1,7 +1,8 @@
 package com.example.demo.store.rentals;
 
 import com.example.demo.entities.Tool;
-import com.example.demo.json.serializers.StringAsPercentageSerializer;
+import com.example.demo.json.serializers.IntegerAsPercentageSerializer;
+import com.example.demo.store.inventory.Reservation;
 import com.example.demo.store.rentals.exceptions.RentalRequestException;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -10,8 +11,6 @@ import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.text.NumberFormat;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -36,7 +35,7 @@ import java.util.stream.IntStream;
  *      Lastly, there is still some field formatting work required to format the "money" fields per the specification.
  */
 @JsonPropertyOrder({
-        "Tool code", "Tool type", "Tool brand", "Rental days", "Checkout date", "Due date", "Daily rental charge",
+        "Agreement id", "Tool code", "Tool type", "Tool brand", "Rental days", "Checkout date", "Due date", "Daily rental charge",
         "Charge days", "Pre-discount charge", "Discount percent", "Discount amount", "Final charge"
 })
 public class RentalAgreement {
@@ -50,24 +49,28 @@ public class RentalAgreement {
     private String checkoutDate;
     @JsonIgnore
     private Date startDate;
+    @JsonIgnore
+    private long startEpochDay;
+    @JsonIgnore
+    private Reservation reservation;
     @JsonProperty("Due date")
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM/dd/yy")
     private Date dueDate;
     @JsonProperty("Discount percent")
-    @JsonSerialize(using = StringAsPercentageSerializer.class)
-    private String discountPercent;
+    @JsonSerialize(using = IntegerAsPercentageSerializer.class)
+    private int discountPercent;
     @JsonProperty("Charge days")
     private int billableDays;
-    @JsonProperty("Pre-discount charge")
-    private BigDecimal preDiscountedCharge;
-    @JsonProperty("Discount amount")
-    private BigDecimal discountAmount;
-    @JsonProperty("Final Charge")
-    private BigDecimal finalCharge;
+    //  Money is held in cents (fixed point, scale 2); BigDecimals are only created for the (Jackson) JSON output
+    private long preDiscountedChargeCents;
+    private long discountAmountCents;
+    private long finalChargeCents;
 
     private int numberOfWeekendDays;
     private int numberOfHolidays;
     private int numberOfWeekdays;
+    //  The calendar index the day types were counted with; null until counted
+    private RentalCalendarIndex calendarIndex;
 
     public RentalAgreement() {
     }
@@ -77,14 +80,24 @@ public class RentalAgreement {
         this.tool = tool;
         this.requestedRentalDays = requestedRentalDays;
         this.checkoutDate = specifiedCheckOutDate;
-        this.discountPercent = discountPercent;
+        this.discountPercent = Integer.parseInt(discountPercent);
     }
 
     RentalAgreement finalizeAgreement() throws RentalRequestException {
-        ArrayList<Date> possiblyBillableDays = buildListOfPossiblyBillableDays();
+        return finalizeAgreementTimed(CheckoutMetrics.NOOP);
+    }
+
+    //  Same as above, but the time spent classifying the rental days and pricing the agreement is recorded.  (Not an
+    //  overload of finalizeAgreement(), so that rentalAgreement::finalizeAgreement remains an unambiguous reference.)
+    RentalAgreement finalizeAgreementTimed(CheckoutMetrics checkoutMetrics) throws RentalRequestException {
+        long stageStart = checkoutMetrics.startTimer();
+
+        //  Calculate the due date (the last day of the rental period)
+        calculateDueDate();
 
         //  Calculate the number of weekend, holiday, and weekday days in the rental period
-        calculateNumberOfEachTypeOfRentalDay(possiblyBillableDays);
+        calculateNumberOfEachTypeOfRentalDay();
+        stageStart = checkoutMetrics.recordStage(CheckoutMetrics.Stage.DAY_CLASSIFICATION, stageStart);
 
         //  Calculate the billable days
         calculateBillableDays();
@@ -97,7 +110,23 @@ public class RentalAgreement {
 
         //  Calculate the final charge
         calculateFinalCharge();
+        checkoutMetrics.recordStage(CheckoutMetrics.Stage.PRICING, stageStart);
+
+        return this;
+    }
 
+    //  Same as finalizeAgreement(), but from a cached quote for the same tool type, checkout date, rental days and
+    //  discount percent (see RentalQuoteCache); the due date is still calculated, as it is a new Date instance
+    RentalAgreement applyQuote(RentalQuoteCache.Quote quote) {
+        calculateDueDate();
+        numberOfWeekdays = quote.numberOfWeekdays;
+        numberOfWeekendDays = quote.numberOfWeekendDays;
+        numberOfHolidays = quote.numberOfHolidays;
+        calendarIndex = quote.calendarIndex;
+        billableDays = quote.billableDays;
+        preDiscountedChargeCents = quote.preDiscountedChargeCents;
+        discountAmountCents = quote.discountAmountCents;
+        finalChargeCents = quote.finalChargeCents;
         return this;
     }
 
@@ -122,6 +151,30 @@ public class RentalAgreement {
         return (this.dueDate = possiblyBillableDays.get(possiblyBillableDays.size() - 1));
     }
 
+    //  The due date is simply the checkout date plus the number of rental days; the list of rental days does not
+    //  need to be built to determine it.
+    //
+    // package-private for testing
+    Date calculateDueDate() {
+        return (this.dueDate = RentalDateManager.epochDayToDate(startEpochDay + requestedRentalDays));
+    }
+
+    //  Closed-form equivalent of calculateNumberOfEachTypeOfRentalDay(ArrayList<Date>).
+    //  Rental days start the day after checkout, so the rental period is the range of epoch days
+    //  [startEpochDay + 1, startEpochDay + requestedRentalDays].  The counts are calculated arithmetically by the
+    //  RentalDateManager's calendar index, rather than by materializing and classifying a Date for every day in the
+    //  rental period.  The counts (and the pricing, see calculatePreDiscountCharge()) come from the same index, even if
+    //  the holidays are reconfigured in the meantime.
+    //
+    // package-private for testing
+    void calculateNumberOfEachTypeOfRentalDay() {
+        long firstRentalDay = startEpochDay + 1;
+        calendarIndex = rentalDateManager.getCalendarIndex();
+        numberOfWeekendDays = calendarIndex.countWeekendDays(firstRentalDay, requestedRentalDays);
+        numberOfHolidays = calendarIndex.countHolidays(firstRentalDay, requestedRentalDays);
+        numberOfWeekdays = requestedRentalDays - (numberOfWeekendDays + numberOfHolidays);
+    }
+
     // package-private for testing
     void calculateNumberOfEachTypeOfRentalDay(ArrayList<Date> rentalDays) {
         numberOfWeekendDays = (int) rentalDays.stream().filter(rentalDateManager::isWeekend).count();
@@ -129,6 +182,11 @@ public class RentalAgreement {
         numberOfWeekdays = requestedRentalDays - (numberOfWeekendDays + numberOfHolidays);
     }
 
+    //  The calendar index the day types were counted with; null until counted
+    RentalCalendarIndex getPricingCalendarIndex() {
+        return calendarIndex;
+    }
+
     // package-private for testing
     int getNumberOfWeekendDays() {
         return numberOfWeekendDays;
@@ -144,11 +202,11 @@ public class RentalAgreement {
         return numberOfWeekdays;
     }
 
+    //  The billable days are the days whose day type is charged by the tool's pricing plan; i.e. the weekday,
+    //  weekend, and holiday charge flags of its RentalCost.
     // package-private for testing
     void calculateBillableDays() {
-        billableDays =  (tool.getRentalCosts().getWeekdayCharge() ? numberOfWeekdays : 0) +
-                        (tool.getRentalCosts().getHolidayCharge() ? numberOfHolidays : 0) +
-                        (tool.getRentalCosts().getWeekendCharge() ? numberOfWeekendDays : 0);
+        billableDays = getPricingPlan().chargedDays(numberOfWeekdays, numberOfWeekendDays, numberOfHolidays);
     }
 
     // package-private for testing
@@ -156,35 +214,61 @@ public class RentalAgreement {
         return billableDays;
     }
 
+    //  Priced by the tool's pricing plan from the number of each day type (plus any peak season surcharges, counted by
+    //  the calendar index); without per day type rates or peak seasons, this is the daily charge times the billable
+    //  days.  The rates are whole numbers of cents, so the charge is exact (no rounding required).
     // package-private for testing
     void calculatePreDiscountCharge() {
-        BigDecimal billableDaysAsBigDecimal = new BigDecimal(billableDays);
-        preDiscountedCharge = getDailyRentalCharge().multiply(billableDaysAsBigDecimal).setScale(2, RoundingMode.HALF_UP);
+        RentalCalendarIndex pricingCalendarIndex = calendarIndex != null ? calendarIndex : rentalDateManager.getCalendarIndex();
+        preDiscountedChargeCents = getPricingPlan().priceCents(pricingCalendarIndex, startEpochDay + 1, requestedRentalDays,
+                numberOfWeekdays, numberOfWeekendDays, numberOfHolidays);
     }
 
-    // package-private for testing
+    @JsonProperty("Pre-discount charge")
     BigDecimal getPreDiscountedCharge() {
-        return preDiscountedCharge;
+        return centsToBigDecimal(preDiscountedChargeCents);
+    }
+
+    // package-private for testing
+    long getPreDiscountedChargeCents() {
+        return preDiscountedChargeCents;
     }
 
+    //  The discount percent is a whole number (0 - 100), so the exact discount is (charge in cents * percent) / 100
+    //  cents; rounded to a whole cent, half up.  (Both values are non-negative, so adding 50 before the integer division
+    //  rounds half up.)
     // package-private for testing
     void calculateDiscountAmount() {
-        BigDecimal discountPercentAsBigDecimal = (new BigDecimal(discountPercent).divide(new BigDecimal(100), 2, RoundingMode.HALF_UP));
-        discountAmount = getPreDiscountedCharge().multiply(discountPercentAsBigDecimal).setScale(2, RoundingMode.HALF_UP);
+        discountAmountCents = (Math.multiplyExact(preDiscountedChargeCents, (long) discountPercent) + 50) / 100;
     }
 
+    @JsonProperty("Discount amount")
     public BigDecimal getDiscountAmount() {
-        return discountAmount;
+        return centsToBigDecimal(discountAmountCents);
     }
 
     // package-private for testing
-    void calculateFinalCharge() {
-        finalCharge = getPreDiscountedCharge().subtract(getDiscountAmount()).setScale(2, RoundingMode.HALF_UP);
+    long getDiscountAmountCents() {
+        return discountAmountCents;
     }
 
     // package-private for testing
+    void calculateFinalCharge() {
+        finalChargeCents = preDiscountedChargeCents - discountAmountCents;
+    }
+
+    @JsonProperty("Final Charge")
     BigDecimal getFinalCharge() {
-        return finalCharge;
+        return centsToBigDecimal(finalChargeCents);
+    }
+
+    // package-private for testing
+    long getFinalChargeCents() {
+        return finalChargeCents;
+    }
+
+    private static BigDecimal centsToBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
     }
 
     // package-private for testing
@@ -212,15 +296,21 @@ public class RentalAgreement {
         return requestedRentalDays;
     }
 
-    String getDiscountPercent() {
+    int getDiscountPercent() {
         return discountPercent;
     }
 
-    RentalAgreement setDiscountPercent(String discountPercent) {
+    //  The (already parsed and validated) discount percent; see RentalRequest.getDiscountPercent()
+    RentalAgreement setDiscountPercent(int discountPercent) {
         this.discountPercent = discountPercent;
         return this;
     }
 
+    // package-private for testing
+    RentalAgreement setDiscountPercent(String discountPercent) {
+        return setDiscountPercent(Integer.parseInt(discountPercent));
+    }
+
     RentalAgreement setRequestedRentalDays(int requestedRentalDays) {
         this.requestedRentalDays = requestedRentalDays;
         return this;
@@ -228,11 +318,20 @@ public class RentalAgreement {
 
     //  This mutator has a duel purpose.  It sets the checkout date and creates start date object from
     //  the checkout date string.
+    // package-private for testing
     RentalAgreement setCheckoutDate(String checkoutDate) throws RentalRequestException {
-        this.checkoutDate = checkoutDate;
+        return setCheckoutDate(checkoutDate, rentalDateManager.stringToEpochDay(checkoutDate));
+    }
 
-        //  parse checkout date and set the start date
-        this.startDate = rentalDateManager.stringToDate(checkoutDate);
+    //  Same as above, given the (already parsed) epoch day of the checkout date; see RentalRequest.getCheckoutEpochDay().
+    //  The checkout date string is kept as given, for the agreement output.
+    RentalAgreement setCheckoutDate(String checkoutDate, long checkoutEpochDay) throws RentalRequestException {
+        if (checkoutEpochDay == RentalDateManager.INVALID_EPOCH_DAY) {
+            throw RentalRequestException.of(RentalRequestException.Reason.INVALID_CHECKOUT_DATE, checkoutDate);
+        }
+        this.checkoutDate = checkoutDate;
+        this.startDate = RentalDateManager.epochDayToDate(checkoutEpochDay);
+        this.startEpochDay = checkoutEpochDay;
         return this;
     }
 
@@ -244,13 +343,49 @@ public class RentalAgreement {
         return startDate;
     }
 
+    long getStartEpochDay() {
+        return startEpochDay;
+    }
+
+    //  The tool unit is out from the checkout date through the due date (inclusive)
+    long getEndOfReservationEpochDay() {
+        return startEpochDay + requestedRentalDays + 1;
+    }
+
+    //  The reserved tool unit; null until reserved
+    Reservation getReservation() {
+        return reservation;
+    }
+
+    //  Identifies the agreement's reservation, to return the tool unit (POST /rental/return); null until reserved, or if
+    //  the inventory is not tracked
+    @JsonProperty("Agreement id")
+    public String getAgreementId() {
+        return reservation == null ? null : reservation.getAgreementId();
+    }
+
+    RentalAgreement setReservation(Reservation reservation) {
+        this.reservation = reservation;
+        return this;
+    }
+
     Date getDueDate() {
         return dueDate;
     }
 
     @JsonProperty("Daily rental charge")
     BigDecimal getDailyRentalCharge() {
-        return new BigDecimal(this.tool.getRentalCosts().getDailyCharge());
+        return centsToBigDecimal(getDailyRentalChargeCents());
+    }
+
+    //  Parsed once per catalog entry (see RentalCost.getDailyChargeCents())
+    long getDailyRentalChargeCents() {
+        return this.tool.getRentalCosts().getDailyChargeCents();
+    }
+
+    //  Built once per catalog entry (see RentalCost.getPricingPlan())
+    PricingPlan getPricingPlan() {
+        return this.tool.getRentalCosts().getPricingPlan();
     }
 
     boolean isWeekdayCharge() {
@@ -266,59 +401,62 @@ public class RentalAgreement {
     }
 
     //  This method is used to generate a string representation of the RentalAgreement object
-    //  with is formatted according to the demo specifications.
+    //  with is formatted according to the demo specifications; i.e.
+    //
+    //      Tool code: %s
+    //      Tool type: %s
+    //      Tool brand: %s
+    //      Rental days: %d
+    //      Checkout date: %s
+    //      Due date: %s
+    //      Daily rental charge: %s
+    //      Charge days: %d
+    //      Pre-discount charge: %s
+    //      Discount percent: %s
+    //      Discount amount: %s
+    //      Final charge: %s
     //
-    //  CAVEAT:
-    //    This project is built with JDK 17 which supports multi-line strings, therefore the formatting
-    //    of the output string is much cleaner than it would be in earlier versions of Java.
+    //  Each line is indented by four spaces and ends with a newline (including the last).  The money fields are
+    //  formatted as US currency (e.g. $1,234.56), and the discount percent as a whole percentage (e.g. 10%).
     //
-    //    If you want to refactor to use a version of Java prior to JDK 15, you will need to refactor to use
-    //    something more complex as shown below or similar (possibly using StringBuilder):
-    //            return "Tool code: " + getToolCode() + "\n" +
-    //            "Tool type: " + getToolType() + "\n" +
-    //            "Tool brand: " + getToolBrand() + "\n" +
-    //            "Rental days: " + getRequestedRentalDays() + "\n" +
-    //            "Checkout date: " + getCheckoutDate() + "\n" +
-    //            "Due date: " + rentalDateManager.dateToString(getDueDate()) + "\n" +
-    //            "Daily rental charge: " + unitedStatesCurrencyFormatter.format(getDailyRentalCharge()) + "\n" +
-    //            "Charge days: " + getBillableDays() + "\n" +
-    //            "Pre-discount charge: " + unitedStatesCurrencyFormatter.format(getPreDiscountedCharge()) + "\n" +
-    //            "Discount percent: " + percentageFormatter.format((new BigDecimal(discountPercent).divide(new BigDecimal(100)))) + "\n" +
-    //            "Discount amount: " + unitedStatesCurrencyFormatter.format(getDiscountAmount()) + "\n" +
-    //            "Final charge: " + unitedStatesCurrencyFormatter.format(getFinalCharge());
+    //  The string is built directly (rather than with String.formatted(), which parses the format on every call), and the
+    //  money fields are formatted from the agreement's cents, with integer arithmetic; so no (thread-unsafe) NumberFormat
+    //  is needed, and nothing is held per thread.
     //
     public String toString() {
-        NumberFormat unitedStatesCurrencyFormatter = NumberFormat.getCurrencyInstance();
-        NumberFormat percentageFormatter = NumberFormat.getPercentInstance();
-        percentageFormatter.setMaximumFractionDigits(2);
-
-        return """
-                    Tool code: %s
-                    Tool type: %s
-                    Tool brand: %s
-                    Rental days: %d
-                    Checkout date: %s
-                    Due date: %s
-                    Daily rental charge: %s
-                    Charge days: %d
-                    Pre-discount charge: %s
-                    Discount percent: %s
-                    Discount amount: %s
-                    Final charge: %s
-                """
-                .formatted(
-                    getToolCode(),
-                    getToolType(),
-                    getToolBrand(),
-                    getRequestedRentalDays(),
-                    getCheckoutDate(),
-                    rentalDateManager.dateToString(getDueDate()),
-                    unitedStatesCurrencyFormatter.format(getDailyRentalCharge()),
-                    getBillableDays(),
-                    unitedStatesCurrencyFormatter.format(getPreDiscountedCharge()),
-                    percentageFormatter.format((new BigDecimal(discountPercent).divide(new BigDecimal(100)))),
-                    unitedStatesCurrencyFormatter.format(getDiscountAmount()),
-                    unitedStatesCurrencyFormatter.format(getFinalCharge())
-                );
+        StringBuilder string = new StringBuilder(320)
+                .append("    Tool code: ").append(getToolCode()).append('\n')
+                .append("    Tool type: ").append(getToolType()).append('\n')
+                .append("    Tool brand: ").append(getToolBrand()).append('\n')
+                .append("    Rental days: ").append(getRequestedRentalDays()).append('\n')
+                .append("    Checkout date: ").append(getCheckoutDate()).append('\n')
+                .append("    Due date: ").append(rentalDateManager.dateToString(getDueDate())).append('\n')
+                .append("    Daily rental charge: ");
+        appendCurrency(string, getDailyRentalChargeCents()).append('\n')
+                .append("    Charge days: ").append(getBillableDays()).append('\n')
+                .append("    Pre-discount charge: ");
+        appendCurrency(string, getPreDiscountedChargeCents()).append('\n')
+                .append("    Discount percent: ").append(discountPercent).append('%').append('\n')
+                .append("    Discount amount: ");
+        appendCurrency(string, getDiscountAmountCents()).append('\n')
+                .append("    Final charge: ");
+        return appendCurrency(string, getFinalChargeCents()).append('\n').toString();
+    }
+
+    //  As the US currency formatter formats the amount; e.g. $0.05, $1,234.56 or -$12.30
+    static StringBuilder appendCurrency(StringBuilder string, long cents) {
+        if (cents < 0) {
+            string.append('-');
+        }
+        String dollars = Long.toString(Math.abs(cents / 100));
+        string.append('$');
+        for (int i = 0; i < dollars.length(); i++) {
+            if (i > 0 && (dollars.length() - i) % 3 == 0) {
+                string.append(',');
+            }
+            string.append(dollars.charAt(i));
+        }
+        int remainingCents = (int) Math.abs(cents % 100);
+        return string.append('.').append((char) ('0' + remainingCents / 10)).append((char) ('0' + remainingCents % 10));
     }
 }
@@ -0,0 +1,246 @@
+package com.example.demo.store.rentals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Hand-written JSON serialization of a finalized RentalAgreement; used by the /rental/checkout endpoint in place of
+ * Jackson's reflective bean serializer.
+ *
+ * The output is byte-for-byte the JSON Jackson produces from the RentalAgreement annotations (@JsonPropertyOrder,
+ * @JsonProperty, @JsonFormat and the IntegerAsPercentageSerializer); i.e. the same properties, in the same order, with
+ * the same formatting and string escaping.  The annotations remain the specification of the format (e.g. for the batch
+ * and streaming endpoints, which still serialize agreements with Jackson); RentalAgreementJsonWriterTest compares the
+ * two, so a change to one must be made to the other.
+ *
+ * - The money fields are written directly from the agreement's cents; the same digits as BigDecimal.toString() with a
+ *   scale of 2 (e.g. 0.60).
+ * - The due date is written as MM/dd/yy in the ObjectMapper's time zone (UTC unless spring.jackson.time-zone is set), as
+ *   Jackson formats a @JsonFormat date without a time zone.
+ *
+ * The writer holds no mutable state, so a single instance is shared by every request thread.
+ */
+public class RentalAgreementJsonWriter {
+    private static final byte[] AGREEMENT_ID = fieldName("{", "Agreement id");
+    private static final byte[] TOOL_CODE = fieldName(",", "Tool code");
+    private static final byte[] TOOL_TYPE = fieldName(",", "Tool type");
+    private static final byte[] TOOL_BRAND = fieldName(",", "Tool brand");
+    private static final byte[] RENTAL_DAYS = fieldName(",", "Rental days");
+    private static final byte[] CHECKOUT_DATE = fieldName(",", "Checkout date");
+    private static final byte[] DUE_DATE = fieldName(",", "Due date");
+    private static final byte[] DAILY_RENTAL_CHARGE = fieldName(",", "Daily rental charge");
+    private static final byte[] CHARGE_DAYS = fieldName(",", "Charge days");
+    private static final byte[] PRE_DISCOUNT_CHARGE = fieldName(",", "Pre-discount charge");
+    private static final byte[] DISCOUNT_PERCENT = fieldName(",", "Discount percent");
+    private static final byte[] DISCOUNT_AMOUNT = fieldName(",", "Discount amount");
+    //  Not in the @JsonPropertyOrder list (which names "Final charge"), so Jackson writes it last
+    private static final byte[] FINAL_CHARGE = fieldName(",", "Final Charge");
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private final ZoneId zoneId;
+
+    //  timeZone: the time zone the ObjectMapper formats dates in; see DemoConfig
+    public RentalAgreementJsonWriter(TimeZone timeZone) {
+        this.zoneId = timeZone.toZoneId();
+    }
+
+    public void write(RentalAgreement rentalAgreement, OutputStream outputStream) throws IOException {
+        Buffer buffer = new Buffer();
+        writeTo(rentalAgreement, buffer);
+        outputStream.write(buffer.bytes, 0, buffer.length);
+    }
+
+    public byte[] toJsonBytes(RentalAgreement rentalAgreement) {
+        Buffer buffer = new Buffer();
+        writeTo(rentalAgreement, buffer);
+        return buffer.toByteArray();
+    }
+
+    private void writeTo(RentalAgreement rentalAgreement, Buffer buffer) {
+        buffer.append(AGREEMENT_ID);
+        writeString(rentalAgreement.getAgreementId(), buffer);
+        buffer.append(TOOL_CODE);
+        writeString(rentalAgreement.getToolCode(), buffer);
+        buffer.append(TOOL_TYPE);
+        writeString(rentalAgreement.getToolType(), buffer);
+        buffer.append(TOOL_BRAND);
+        writeString(rentalAgreement.getToolBrand(), buffer);
+        buffer.append(RENTAL_DAYS);
+        buffer.appendLong(rentalAgreement.getRequestedRentalDays());
+        buffer.append(CHECKOUT_DATE);
+        writeString(rentalAgreement.getCheckoutDate(), buffer);
+        buffer.append(DUE_DATE);
+        writeDate(rentalAgreement.getDueDate(), buffer);
+        buffer.append(DAILY_RENTAL_CHARGE);
+        writeCents(rentalAgreement.getDailyRentalChargeCents(), buffer);
+        buffer.append(CHARGE_DAYS);
+        buffer.appendLong(rentalAgreement.getBillableDays());
+        buffer.append(PRE_DISCOUNT_CHARGE);
+        writeCents(rentalAgreement.getPreDiscountedChargeCents(), buffer);
+        buffer.append(DISCOUNT_PERCENT);
+        writePercentage(rentalAgreement.getDiscountPercent(), buffer);
+        buffer.append(DISCOUNT_AMOUNT);
+        writeCents(rentalAgreement.getDiscountAmountCents(), buffer);
+        buffer.append(FINAL_CHARGE);
+        writeCents(rentalAgreement.getFinalChargeCents(), buffer);
+        buffer.append((byte) '}');
+    }
+
+    //  Same as IntegerAsPercentageSerializer; the whole number with a "%" suffix
+    private static void writePercentage(int percent, Buffer buffer) {
+        buffer.append((byte) '"');
+        buffer.appendLong(percent);
+        buffer.append((byte) '%');
+        buffer.append((byte) '"');
+    }
+
+    //  MM/dd/yy, as SimpleDateFormat formats it (the year modulo 100, zero padded)
+    private void writeDate(Date date, Buffer buffer) {
+        if (date == null) {
+            buffer.append(NULL);
+            return;
+        }
+        LocalDate localDate = date.toInstant().atZone(zoneId).toLocalDate();
+        buffer.append((byte) '"');
+        buffer.appendTwoDigits(localDate.getMonthValue());
+        buffer.append((byte) '/');
+        buffer.appendTwoDigits(localDate.getDayOfMonth());
+        buffer.append((byte) '/');
+        buffer.appendTwoDigits(Math.abs(localDate.getYear()) % 100);
+        buffer.append((byte) '"');
+    }
+
+    //  Same digits as BigDecimal.valueOf(cents, 2).toString(); e.g. 0.05, 1.99, -12.30
+    private static void writeCents(long cents, Buffer buffer) {
+        if (cents < 0) {
+            buffer.append((byte) '-');
+            cents = -cents;
+        }
+        buffer.appendLong(cents / 100);
+        buffer.append((byte) '.');
+        buffer.appendTwoDigits((int) (cents % 100));
+    }
+
+    //  Escaped as Jackson's UTF-8 generator escapes strings by default: the quote, the backslash and the control
+    //  characters (the short forms for \b, \t, \n, \f and \r, and a four hex digit unicode escape for the others), and
+    //  each surrogate char (i.e. each half of a character outside the BMP, such as an emoji) as a unicode escape.
+    //  Anything else is written as UTF-8.
+    private static void writeString(String value, Buffer buffer) {
+        if (value == null) {
+            buffer.append(NULL);
+            return;
+        }
+        buffer.append((byte) '"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                appendEscapedAscii(c, buffer);
+            } else if (c < 0x800) {
+                buffer.append((byte) (0xC0 | (c >> 6)));
+                buffer.append((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                appendUnicodeEscape(c, buffer);
+            } else {
+                buffer.append((byte) (0xE0 | (c >> 12)));
+                buffer.append((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.append((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        buffer.append((byte) '"');
+    }
+
+    private static void appendEscapedAscii(char c, Buffer buffer) {
+        if (c >= 0x20 && c != '"' && c != '\\') {
+            buffer.append((byte) c);
+            return;
+        }
+        switch (c) {
+            case '"', '\\' -> buffer.append((byte) '\\').append((byte) c);
+            case '\b' -> buffer.append((byte) '\\').append((byte) 'b');
+            case '\t' -> buffer.append((byte) '\\').append((byte) 't');
+            case '\n' -> buffer.append((byte) '\\').append((byte) 'n');
+            case '\f' -> buffer.append((byte) '\\').append((byte) 'f');
+            case '\r' -> buffer.append((byte) '\\').append((byte) 'r');
+            default -> appendUnicodeEscape(c, buffer);
+        }
+    }
+
+    private static void appendUnicodeEscape(char c, Buffer buffer) {
+        buffer.append((byte) '\\').append((byte) 'u')
+                .append(HEX_DIGITS[(c >> 12) & 0xF])
+                .append(HEX_DIGITS[(c >> 8) & 0xF])
+                .append(HEX_DIGITS[(c >> 4) & 0xF])
+                .append(HEX_DIGITS[c & 0xF]);
+    }
+
+    private static byte[] fieldName(String separator, String name) {
+        return (separator + '"' + name + "\":").getBytes(StandardCharsets.UTF_8);
+    }
+
+    //  A growable byte array; a typical agreement fits in the initial capacity
+    private static final class Buffer {
+        private byte[] bytes = new byte[384];
+        private int length;
+
+        Buffer append(byte b) {
+            ensureCapacity(1);
+            bytes[length++] = b;
+            return this;
+        }
+
+        void append(byte[] source) {
+            ensureCapacity(source.length);
+            System.arraycopy(source, 0, bytes, length, source.length);
+            length += source.length;
+        }
+
+        void appendTwoDigits(int value) {
+            ensureCapacity(2);
+            bytes[length++] = (byte) ('0' + value / 10);
+            bytes[length++] = (byte) ('0' + value % 10);
+        }
+
+        void appendLong(long value) {
+            if (value < 0) {
+                if (value == Long.MIN_VALUE) {
+                    append(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+                    return;
+                }
+                append((byte) '-');
+                value = -value;
+            }
+            int digits = 1;
+            for (long remaining = value / 10; remaining > 0; remaining /= 10) {
+                digits++;
+            }
+            ensureCapacity(digits);
+            for (int i = length + digits - 1; i >= length; i--) {
+                bytes[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            length += digits;
+        }
+
+        byte[] toByteArray() {
+            byte[] copy = new byte[length];
+            System.arraycopy(bytes, 0, copy, 0, length);
+            return copy;
+        }
+
+        private void ensureCapacity(int additional) {
+            if (length + additional > bytes.length) {
+                byte[] grown = new byte[Math.max(bytes.length * 2, length + additional)];
+                System.arraycopy(bytes, 0, grown, 0, length);
+                bytes = grown;
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.demo.store.rentals;
+
+/**
+ * Records (persists) finalized rental agreements.
+ *
+ * record() is called on the checkout path, so implementations must not block; see WriteBehindRentalAgreementRecorder.
+ * It returns false if the agreement could not be accepted for recording (e.g. the write-behind queue is full); the
+ * caller then releases the agreement's reservation and rejects the checkout, rather than hand out an agreement that is
+ * never persisted.
+ */
+public interface RentalAgreementRecorder {
+    //  Used where agreements are not recorded; e.g. by the unit tests and benchmarks
+    RentalAgreementRecorder NOOP = rentalAgreement -> true;
+
+    boolean record(RentalAgreement rentalAgreement);
+}
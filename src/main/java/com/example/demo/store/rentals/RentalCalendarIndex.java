@@ -0,0 +1,197 @@
+package com.example.demo.store.rentals;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/**
+ * Precomputed calendar index classifying every day (identified by its epoch day) as a weekday, weekend day, or holiday.
+ *
+ * - The index covers a configurable span of years.  Each year is built lazily, the first time any day in that year is
+ *   requested, and is never modified afterwards.
+ *
+ * - Each year holds:
+ *     - one byte per day, classifying the day type, and
+ *     - cumulative (running) counts of weekend days and holidays, such that the number of each day type in any range
+ *       of days within the year is a simple subtraction; O(1).  A range spanning multiple years costs one such
+ *       subtraction per year touched.
+ *
+ * - Reads never lock.  Built years are published through an AtomicReferenceArray; if two threads race to build the same
+ *   year, both build identical (immutable) data and the first one published wins.
+ *
+ * - Days outside the indexed span are still classified correctly, but the year is rebuilt on every request (it is not
+ *   cached).
+ *
+ * Note - A holiday is classified as a holiday even if it falls on a weekend (i.e. the day types never overlap, so the
+ *        number of weekdays is always the number of days less the weekend days and holidays).
+ */
+public class RentalCalendarIndex {
+    public static final byte WEEKDAY = 0;
+    public static final byte WEEKEND = 1;
+    public static final byte HOLIDAY = 2;
+
+    private final int firstIndexedYear;
+    private final int lastIndexedYear;
+    private final IntFunction<long[]> holidayEpochDaysForYear;
+    private final AtomicReferenceArray<YearIndex> indexedYears;
+    //  epoch day of January 1st for each indexed year, plus the following year; used to locate the year of a given
+    //  epoch day without allocating a LocalDate
+    private final long[] firstEpochDayOfIndexedYears;
+
+    /**
+     * @param firstIndexedYear        first year covered by the index
+     * @param lastIndexedYear         last year (inclusive) covered by the index
+     * @param holidayEpochDaysForYear returns the epoch days of the (observed) holidays within the given year
+     */
+    public RentalCalendarIndex(int firstIndexedYear, int lastIndexedYear, IntFunction<long[]> holidayEpochDaysForYear) {
+        if (lastIndexedYear < firstIndexedYear) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid span of years, %d - %d", firstIndexedYear, lastIndexedYear)
+            );
+        }
+        this.firstIndexedYear = firstIndexedYear;
+        this.lastIndexedYear = lastIndexedYear;
+        this.holidayEpochDaysForYear = holidayEpochDaysForYear;
+        this.indexedYears = new AtomicReferenceArray<>(lastIndexedYear - firstIndexedYear + 1);
+
+        this.firstEpochDayOfIndexedYears = new long[lastIndexedYear - firstIndexedYear + 2];
+        for (int slot = 0; slot < firstEpochDayOfIndexedYears.length; slot++) {
+            firstEpochDayOfIndexedYears[slot] = LocalDate.of(firstIndexedYear + slot, 1, 1).toEpochDay();
+        }
+    }
+
+    public int getFirstIndexedYear() {
+        return firstIndexedYear;
+    }
+
+    public int getLastIndexedYear() {
+        return lastIndexedYear;
+    }
+
+    public byte dayType(long epochDay) {
+        YearIndex yearIndex = yearIndexFor(epochDay);
+        return yearIndex.dayTypes[(int) (epochDay - yearIndex.firstEpochDay)];
+    }
+
+    public boolean isWeekend(long epochDay) {
+        return dayType(epochDay) == WEEKEND;
+    }
+
+    public boolean isHoliday(long epochDay) {
+        return dayType(epochDay) == HOLIDAY;
+    }
+
+    public int countWeekendDays(long firstEpochDay, int numberOfDays) {
+        return count(firstEpochDay, numberOfDays, WEEKEND);
+    }
+
+    public int countHolidays(long firstEpochDay, int numberOfDays) {
+        return count(firstEpochDay, numberOfDays, HOLIDAY);
+    }
+
+    public int countWeekdays(long firstEpochDay, int numberOfDays) {
+        return Math.max(numberOfDays, 0)
+                - countWeekendDays(firstEpochDay, numberOfDays)
+                - countHolidays(firstEpochDay, numberOfDays);
+    }
+
+    //  Counts the days of the given type within [firstEpochDay, firstEpochDay + numberOfDays - 1]
+    private int count(long firstEpochDay, int numberOfDays, byte dayType) {
+        if (numberOfDays <= 0) {
+            return 0;
+        }
+
+        long lastEpochDay = firstEpochDay + numberOfDays - 1;
+        int count = 0;
+        long epochDay = firstEpochDay;
+        while (epochDay <= lastEpochDay) {
+            YearIndex yearIndex = yearIndexFor(epochDay);
+            int fromDayOfYear = (int) (epochDay - yearIndex.firstEpochDay);
+            int toDayOfYear = (int) Math.min(lastEpochDay - yearIndex.firstEpochDay, yearIndex.dayTypes.length - 1);
+
+            char[] cumulativeCounts = dayType == WEEKEND ? yearIndex.cumulativeWeekendDays : yearIndex.cumulativeHolidays;
+            count += cumulativeCounts[toDayOfYear + 1] - cumulativeCounts[fromDayOfYear];
+
+            epochDay = yearIndex.firstEpochDay + toDayOfYear + 1;
+        }
+        return count;
+    }
+
+    private YearIndex yearIndexFor(long epochDay) {
+        int slot = indexedSlotFor(epochDay);
+        if (slot < 0) {
+            return buildYearIndex(LocalDate.ofEpochDay(epochDay).getYear());
+        }
+
+        YearIndex yearIndex = indexedYears.get(slot);
+        if (yearIndex == null) {
+            indexedYears.compareAndSet(slot, null, buildYearIndex(firstIndexedYear + slot));
+            yearIndex = indexedYears.get(slot);
+        }
+        return yearIndex;
+    }
+
+    //  Returns the slot (year - firstIndexedYear) of the indexed year containing the given epoch day; or -1 if the
+    //  epoch day is outside the indexed span of years.
+    private int indexedSlotFor(long epochDay) {
+        int lastSlot = firstEpochDayOfIndexedYears.length - 1;
+        if (epochDay < firstEpochDayOfIndexedYears[0] || epochDay >= firstEpochDayOfIndexedYears[lastSlot]) {
+            return -1;
+        }
+
+        //  estimate the slot using the average length of a year (146097 days per 400 years), then correct the estimate
+        int slot = (int) Math.min((epochDay - firstEpochDayOfIndexedYears[0]) * 400 / 146097, lastSlot - 1);
+        while (firstEpochDayOfIndexedYears[slot] > epochDay) {
+            slot--;
+        }
+        while (firstEpochDayOfIndexedYears[slot + 1] <= epochDay) {
+            slot++;
+        }
+        return slot;
+    }
+
+    private YearIndex buildYearIndex(int year) {
+        long firstEpochDay = LocalDate.of(year, 1, 1).toEpochDay();
+        int daysInYear = LocalDate.of(year, 1, 1).lengthOfYear();
+
+        byte[] dayTypes = new byte[daysInYear];
+        for (int dayOfYear = 0; dayOfYear < daysInYear; dayOfYear++) {
+            dayTypes[dayOfYear] = dayOfWeekIndex(firstEpochDay + dayOfYear) >= 5 ? WEEKEND : WEEKDAY;
+        }
+        for (long holidayEpochDay : holidayEpochDaysForYear.apply(year)) {
+            long dayOfYear = holidayEpochDay - firstEpochDay;
+            if (dayOfYear >= 0 && dayOfYear < daysInYear) {
+                dayTypes[(int) dayOfYear] = HOLIDAY;
+            }
+        }
+
+        //  cumulative counts; element n is the number of days of the given type before day-of-year n (zero based)
+        char[] cumulativeWeekendDays = new char[daysInYear + 1];
+        char[] cumulativeHolidays = new char[daysInYear + 1];
+        for (int dayOfYear = 0; dayOfYear < daysInYear; dayOfYear++) {
+            cumulativeWeekendDays[dayOfYear + 1] = (char) (cumulativeWeekendDays[dayOfYear] + (dayTypes[dayOfYear] == WEEKEND ? 1 : 0));
+            cumulativeHolidays[dayOfYear + 1] = (char) (cumulativeHolidays[dayOfYear] + (dayTypes[dayOfYear] == HOLIDAY ? 1 : 0));
+        }
+
+        return new YearIndex(firstEpochDay, dayTypes, cumulativeWeekendDays, cumulativeHolidays);
+    }
+
+    //  Day of the week for the given epoch day; Monday = 0 ... Sunday = 6.  (Epoch day 0, 01/01/1970, is a Thursday.)
+    static int dayOfWeekIndex(long epochDay) {
+        return (int) Math.floorMod(epochDay + 3, 7L);
+    }
+
+    private static final class YearIndex {
+        private final long firstEpochDay;
+        private final byte[] dayTypes;
+        private final char[] cumulativeWeekendDays;
+        private final char[] cumulativeHolidays;
+
+        private YearIndex(long firstEpochDay, byte[] dayTypes, char[] cumulativeWeekendDays, char[] cumulativeHolidays) {
+            this.firstEpochDay = firstEpochDay;
+            this.dayTypes = dayTypes;
+            this.cumulativeWeekendDays = cumulativeWeekendDays;
+            this.cumulativeHolidays = cumulativeHolidays;
+        }
+    }
+}
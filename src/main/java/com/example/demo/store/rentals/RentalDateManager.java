@@ -2,16 +2,18 @@ package com.example.demo.store.rentals;
 
 import com.example.demo.store.rentals.exceptions.RentalRequestException;
 
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.time.DayOfWeek;
+import java.text.ParsePosition;
 import java.time.LocalDate;
 import java.time.Month;
+import java.time.Year;
 import java.time.ZoneId;
-import java.time.temporal.TemporalAdjusters;
-import java.util.Calendar;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.ResolverStyle;
+import java.time.format.SignStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
 import java.util.Date;
-import java.util.List;
 
 /**
  * Singleton convenience class for managing rental dates.
@@ -20,6 +22,7 @@ import java.util.List;
  * - This class provides a single point of access for:
  *     - determining whether a given date is a holiday
  *     - determining whether a given date is a weekend
+ *     - counting the weekend days and holidays in a range of days (see RentalCalendarIndex)
  *     - converting date strings to Date objects
  *     - converting Date objects to date strings
  *     - validating date strings
@@ -28,7 +31,8 @@ import java.util.List;
  *
  *   Caveats - This class hardcodes:
  *       - The default date formats for input and output, in accordance with the demo specification.
- *       - The default holidays, also in accordance with the demo specification.
+ *       - The default holidays, also in accordance with the demo specification (see HolidayCalendar.DEFAULT); they
+ *         may be replaced with setHolidayCalendar(), e.g. from the rental.holidays property (see DemoConfig).
  *       - This class could be entirely static, but is implemented as a singleton partly to allow for future
  *         design flexibility (e.g. future support for overriding default holidays, date formats, etc..).
  *
@@ -37,18 +41,47 @@ import java.util.List;
  *
  */
 public class RentalDateManager {
-    public enum RentalHolidays {
-        July4th,
-        LaborDay
-    }
-
-    private static final String DEFAULT_INPUT_DATE_FORMAT = "MM/dd/yy";
     private static final String DEFAULT_OUTPUT_DATE_FORMAT = "MM/dd/yy";
 
-    private final DateFormat inputDateFormat = new SimpleDateFormat(DEFAULT_INPUT_DATE_FORMAT);
-    private final DateFormat outputDateFormat = new SimpleDateFormat(DEFAULT_OUTPUT_DATE_FORMAT);
+    //  The epoch day of an invalid date (see stringToEpochDay())
+    public static final long INVALID_EPOCH_DAY = Long.MIN_VALUE;
+
+    //
+    //  Date parsing and formatting is shared by every thread using the singleton, so immutable (thread-safe)
+    //  java.time formatters are used rather than SimpleDateFormat instances, which are not thread-safe.
+    //
+    //  Two-digit years are resolved the same way SimpleDateFormat resolves them; i.e. within the 100 year window
+    //  starting 80 years before the instance was created (e.g. in 2024 "20" is 2020, and "50" is 1950).  As with
+    //  SimpleDateFormat, a year of more than two digits is the literal year (e.g. "07/02/2020" is 2020, and "1/1/0999"
+    //  is 999); years of up to four digits are accepted.
+    //  Unlike the (lenient) SimpleDateFormat, invalid dates such as "13/45/20" are rejected rather than rolled over.
+    //
+    //  Well-formed input (exactly "MM/dd/yy") is parsed and formatted directly, by a fast path which neither
+    //  allocates intermediate objects nor throws exceptions.  Anything else falls back to the input formatter,
+    //  which also accepts single digit months and days (e.g. "7/2/20"), and the longer years.
+    //
+    private final LocalDate twoDigitYearWindowStart = LocalDate.now().minusYears(80);
+    private final int twoDigitYearWindowStartYear = twoDigitYearWindowStart.getYear();
+
+    private final DateTimeFormatter inputDateFormatter = new DateTimeFormatterBuilder()
+            .appendValue(ChronoField.MONTH_OF_YEAR, 1, 2, SignStyle.NEVER)
+            .appendLiteral('/')
+            .appendValue(ChronoField.DAY_OF_MONTH, 1, 2, SignStyle.NEVER)
+            .appendLiteral('/')
+            .appendValue(ChronoField.YEAR, 2, 4, SignStyle.NEVER)
+            .toFormatter()
+            .withResolverStyle(ResolverStyle.STRICT);
+    private final DateTimeFormatter outputDateFormatter = DateTimeFormatter.ofPattern(DEFAULT_OUTPUT_DATE_FORMAT);
 
-    private final List<RentalHolidays> holidays = List.of(RentalHolidays.July4th, RentalHolidays.LaborDay);
+    private volatile HolidayCalendar holidayCalendar = HolidayCalendar.DEFAULT;
+
+    //  Span of years covered by the default calendar index; it comfortably covers every date a two-digit year can
+    //  represent (see above), plus long term rentals.  Days outside the span are still classified correctly.
+    private static final int DEFAULT_FIRST_INDEXED_YEAR = 1900;
+    private static final int DEFAULT_LAST_INDEXED_YEAR = 2199;
+
+    private volatile RentalCalendarIndex calendarIndex =
+            new RentalCalendarIndex(DEFAULT_FIRST_INDEXED_YEAR, DEFAULT_LAST_INDEXED_YEAR, holidayCalendar::observedEpochDays);
 
     private RentalDateManager() {}
 
@@ -92,23 +125,55 @@ public class RentalDateManager {
     }
 
     Date stringToDate(String inputDate) throws RentalRequestException {
-        try {
-            return inputDateFormat.parse(inputDate);
-        } catch (Exception e) {
-            //  Ignore the exception and return null, as that is the expected result/contract for this method
-            throw new RentalRequestException("Invalid date format: " + inputDate, e);
+        return Date.from(stringToLocalDate(inputDate).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    public LocalDate stringToLocalDate(String inputDate) throws RentalRequestException {
+        LocalDate localDate = parseLocalDate(inputDate);
+        if (localDate == null) {
+            throw RentalRequestException.of(RentalRequestException.Reason.INVALID_CHECKOUT_DATE, inputDate);
+        }
+        return localDate;
+    }
+
+    //  Same as above, but returns the epoch day of the date, or INVALID_EPOCH_DAY (rather than throwing an exception) if
+    //  the input is not a valid date; e.g. used to parse the checkout date once, as the rental request is read.
+    public long stringToEpochDay(String inputDate) {
+        LocalDate localDate = parseLocalDate(inputDate);
+        return localDate == null ? INVALID_EPOCH_DAY : localDate.toEpochDay();
+    }
+
+    private LocalDate parseLocalDate(String inputDate) {
+        if (inputDate == null) {
+            return null;
         }
+        LocalDate localDate = parseWellFormedInputDate(inputDate);
+        return localDate != null ? localDate : parseInputDate(inputDate);
     }
 
     public String dateToString(Date date) {
-        return outputDateFormat.format(date);
+        return localDateToString(date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate());
+    }
+
+    public String localDateToString(LocalDate localDate) {
+        int year = localDate.getYear();
+        if (year < 0 || year > 9999) {
+            return outputDateFormatter.format(localDate);
+        }
+
+        int twoDigitYear = year % 100;
+        return new String(new char[] {
+                (char) ('0' + localDate.getMonthValue() / 10), (char) ('0' + localDate.getMonthValue() % 10), '/',
+                (char) ('0' + localDate.getDayOfMonth() / 10), (char) ('0' + localDate.getDayOfMonth() % 10), '/',
+                (char) ('0' + twoDigitYear / 10), (char) ('0' + twoDigitYear % 10)
+        });
     }
 
     public boolean isValidInputDateFormat(String inputDate) {
-        // compare the date format of the inputDate string with inputDateFormat
+        // compare the date format of the inputDate string with the input date format
         try {
             // parse the input date thereby validating that it is in the correct format
-            inputDateFormat.parse(inputDate);
+            stringToLocalDate(inputDate);
             return true;
         } catch (Exception e) {
             //  Ignore the exception and return false, as that is the expected result/contract for this method
@@ -116,84 +181,137 @@ public class RentalDateManager {
         }
     }
 
-    public boolean isWeekDay(Date thisDay) {
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(thisDay);
-        int dayOfWeek = cal.get(Calendar.DAY_OF_WEEK);
+    //  Fast path for the expected, well-formed, "MM/dd/yy" input.
+    //  Returns null (rather than throwing an exception) for anything else, including invalid dates such as "02/30/24".
+    private LocalDate parseWellFormedInputDate(String inputDate) {
+        if (inputDate.length() != 8 || inputDate.charAt(2) != '/' || inputDate.charAt(5) != '/') {
+            return null;
+        }
 
-        return !(dayOfWeek == Calendar.SATURDAY || dayOfWeek == Calendar.SUNDAY);
+        int month = twoDigitValue(inputDate, 0);
+        int day = twoDigitValue(inputDate, 3);
+        int twoDigitYear = twoDigitValue(inputDate, 6);
+        if (month < 0 || day < 0 || twoDigitYear < 0) {
+            return null;
+        }
+        return resolveTwoDigitYearDate(month, day, twoDigitYear);
     }
 
-    public boolean isWeekend(Date thisDay) {
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(thisDay);
-        int dayOfWeek = cal.get(Calendar.DAY_OF_WEEK);
+    //  Slow path for any other input (e.g. "7/4/21", or "07/04/2021").  The formatter validates the format, without
+    //  throwing an exception for malformed input; a two-digit year is then resolved within the two-digit year window
+    //  exactly as the fast path resolves it, and a longer year is taken as it is.  Returns null if the input is not a
+    //  valid date.
+    private LocalDate parseInputDate(String inputDate) {
+        ParsePosition parsePosition = new ParsePosition(0);
+        TemporalAccessor parsed = inputDateFormatter.parseUnresolved(inputDate, parsePosition);
+        if (parsed == null || parsePosition.getErrorIndex() >= 0 || parsePosition.getIndex() != inputDate.length()) {
+            return null;
+        }
+        int month = (int) parsed.getLong(ChronoField.MONTH_OF_YEAR);
+        int day = (int) parsed.getLong(ChronoField.DAY_OF_MONTH);
+        int year = (int) parsed.getLong(ChronoField.YEAR);
+        int yearDigits = inputDate.length() - inputDate.lastIndexOf('/') - 1;
+        return yearDigits == 2 ? resolveTwoDigitYearDate(month, day, year) : resolveDate(month, day, year);
+    }
+
+    //  Resolves the month, day, and two-digit year to a date within the two-digit year window; or returns null if
+    //  the month and day are not valid for the resolved year.
+    private LocalDate resolveTwoDigitYearDate(int month, int day, int twoDigitYear) {
+        if (month < 1 || month > 12 || day < 1) {
+            return null;
+        }
+
+        int year = twoDigitYearWindowStartYear - (twoDigitYearWindowStartYear % 100) + twoDigitYear;
+        if (year < twoDigitYearWindowStartYear
+                || (year == twoDigitYearWindowStartYear
+                    && (month < twoDigitYearWindowStart.getMonthValue()
+                        || (month == twoDigitYearWindowStart.getMonthValue() && day <= twoDigitYearWindowStart.getDayOfMonth())))) {
+            year += 100;
+        }
 
-        return dayOfWeek == Calendar.SATURDAY || dayOfWeek == Calendar.SUNDAY;
+        return resolveDate(month, day, year);
     }
 
-    public boolean isHoliday(Date thisDay) {
-        return holidays.stream()
-                .map(holiday -> actualDateForHoliday(thisDay, holiday))
-                .anyMatch(holidayDate -> matchOnlyOnDay(thisDay, holidayDate));
-    }
-
-    private static Date actualDateForHoliday(Date thisDay, RentalHolidays holiday) {
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(thisDay);
-
-        return switch (holiday) {
-            case July4th -> actualDateForJulyFourth(cal.get(Calendar.YEAR));
-            case LaborDay -> actualDateForLaborDay(cal.get(Calendar.YEAR));
-            default -> new Date(cal.getTime().getTime());   // return a copy of the input date
-        };
-    }
-
-    private static Date actualDateForJulyFourth(int year) {
-        Calendar cal = Calendar.getInstance();
-        cal.set(year, Calendar.JULY, 4);
-
-        int actualJuly4thDay = cal.get(Calendar.DAY_OF_WEEK);
-        switch (actualJuly4thDay) {
-            case Calendar.SATURDAY:
-                // if July 4th falls on a Saturday, the holiday is celebrated on the Friday before
-                cal.add(Calendar.DAY_OF_MONTH, -1);
-                break;
-            case Calendar.SUNDAY:
-                // if July 4th falls on a Sunday, the holiday is celebrated on the Monday after
-                cal.add(Calendar.DAY_OF_MONTH, 1);
-                break;
-            default:
-                // Do nothing - if July 4th falls on a weekday, the holiday is celebrated on that day
-                break;
+    //  The date of the given month, day, and (literal) year; or null if it is not a valid date (there is no year 0)
+    private static LocalDate resolveDate(int month, int day, int year) {
+        if (month < 1 || month > 12 || day < 1 || year < 1 || day > Month.of(month).length(Year.isLeap(year))) {
+            return null;
         }
+        return LocalDate.of(year, month, day);
+    }
+
+    //  Returns the value of the two digits at the given offset, or -1 if either character is not a digit
+    private static int twoDigitValue(String value, int offset) {
+        char tens = value.charAt(offset);
+        char ones = value.charAt(offset + 1);
+        if (tens < '0' || tens > '9' || ones < '0' || ones > '9') {
+            return -1;
+        }
+        return (tens - '0') * 10 + (ones - '0');
+    }
+
+    public boolean isWeekDay(Date thisDay) {
+        return RentalCalendarIndex.dayOfWeekIndex(dateToEpochDay(thisDay)) < 5;
+    }
+
+    public boolean isWeekend(Date thisDay) {
+        return RentalCalendarIndex.dayOfWeekIndex(dateToEpochDay(thisDay)) >= 5;
+    }
+
+    public boolean isHoliday(Date thisDay) {
+        return calendarIndex.isHoliday(dateToEpochDay(thisDay));
+    }
+
+    public boolean isHoliday(long epochDay) {
+        return calendarIndex.isHoliday(epochDay);
+    }
 
-        // return a distinct copy of the calendar's date
-        // TODO - Overkill! We are already creating a new instance from the specified year.
-        //          Consider simply returning the date from the calendar instance.
-        return new Date(cal.getTime().getTime());
+    //
+    //  Day type counting.
+    //
+    //  The following methods count the day types within a range of consecutive days, identified by the epoch day of
+    //  the first day and the number of days, without materializing a Date (or Calendar) for each day in the range.
+    //  The counts are answered by the shared calendar index (see RentalCalendarIndex) from cumulative counts; so
+    //  holidays are never recomputed during checkout.
+    //
+    public int countWeekendDays(long firstEpochDay, int numberOfDays) {
+        return calendarIndex.countWeekendDays(firstEpochDay, numberOfDays);
     }
 
-    private static Date actualDateForLaborDay(int year) {
-        LocalDate firstOfSeptember = LocalDate.of(year, Month.SEPTEMBER, 1);
-        LocalDate firstMondayInSeptember = firstOfSeptember.with(TemporalAdjusters.firstInMonth(DayOfWeek.MONDAY));
+    public int countHolidays(long firstEpochDay, int numberOfDays) {
+        return calendarIndex.countHolidays(firstEpochDay, numberOfDays);
+    }
 
-        // Convert LocalDate to Calendar and then to a Date
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(firstMondayInSeptember.getYear(),
-                firstMondayInSeptember.getMonthValue() - 1, firstMondayInSeptember.getDayOfMonth());
-        return calendar.getTime();
+    public RentalCalendarIndex getCalendarIndex() {
+        return calendarIndex;
     }
 
-    //  This method is used to compare two dates, ignoring the time portion.
-    static boolean matchOnlyOnDay(Date date1, Date date2) {
-        // TODO - Unnecessary Overhead?  Consider refactoring using Calendar instances, compare the day, month, and year
-        //          of each instance with each other.
-        LocalDate localDate1 = date1.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-        LocalDate localDate2 = date2.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    //  Replaces the calendar index with one covering the given span of years (the index is rebuilt lazily).
+    public synchronized RentalDateManager setCalendarIndexYears(int firstIndexedYear, int lastIndexedYear) {
+        this.calendarIndex = new RentalCalendarIndex(firstIndexedYear, lastIndexedYear, holidayCalendar::observedEpochDays);
+        return this;
+    }
+
+    public HolidayCalendar getHolidayCalendar() {
+        return holidayCalendar;
+    }
+
+    //  Replaces the holidays, and with them the calendar index (over the same span of years, rebuilt lazily).
+    //  Callers that need a consistent view across several lookups should hold on to getCalendarIndex().
+    public synchronized RentalDateManager setHolidayCalendar(HolidayCalendar holidayCalendar) {
+        this.holidayCalendar = holidayCalendar;
+        this.calendarIndex = new RentalCalendarIndex(calendarIndex.getFirstIndexedYear(), calendarIndex.getLastIndexedYear(),
+                holidayCalendar::observedEpochDays);
+        return this;
+    }
+
+    //  Conversions between Date instances (midnight, in the system default time zone) and epoch days.
+    static long dateToEpochDay(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
 
-        //  Note - converting to a LocalDate instance allows comparing day, month, and year, without the time portion
-        return localDate1.equals(localDate2);
+    static Date epochDayToDate(long epochDay) {
+        return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant());
     }
 
 }
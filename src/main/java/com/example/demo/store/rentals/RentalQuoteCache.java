@@ -0,0 +1,347 @@
+package com.example.demo.store.rentals;
+
+import com.example.demo.store.rentals.exceptions.RentalRequestException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of rental quotes; i.e. the day type counts and charges of finalized rental agreements, keyed by
+ * (tool type, checkout date, rental days, discount percent).  Placed in front of the pricing step of checkout (see
+ * finalizeAgreement()), so repeated price checks of the same rental shape are not priced from scratch.
+ *
+ * - Structure: the cache is set associative; a key hashes to a set of WAYS slots, and is only ever held in a slot of
+ *   its set.  So the cache is strictly bounded, a lookup scans at most WAYS slots without locking (quotes are immutable
+ *   and published through an AtomicReferenceArray), and an insert locks only its own set.
+ *
+ * - Eviction is frequency aware (TinyLFU): every lookup is counted in a small count-min sketch of recent key
+ *   frequencies.  When a set is full, a new quote replaces the set's least frequently requested quote, but only if the
+ *   new quote's key has been requested more often; so a burst of one-off price checks cannot flush the popular quotes.
+ *   The sketch's counters are halved periodically, so old popularity fades.
+ *
+ * - Invalidation: a quote remembers the PricingPlan and the calendar index (see RentalCalendarIndex) it was priced with;
+ *   both are replaced, never modified, when the rates (a catalog reload, or a RentalCost setter) or the holidays (see
+ *   RentalDateManager.setHolidayCalendar()) change.  A quote whose plan or index is no longer current is a miss, and is
+ *   replaced by the re-priced quote.
+ *
+ * Metrics:
+ * - rental.quote.cache.requests{result}    counter of lookups; hit, or miss
+ * - rental.quote.cache.invalidated         counter of misses due to a quote whose rates or holidays had changed
+ * - rental.quote.cache.evictions           counter of quotes replaced by more frequently requested quotes
+ * - rental.quote.cache.rejections          counter of quotes not cached, as their set held more popular quotes
+ * - rental.quote.cache.size                gauge of the number of cached quotes
+ * - rental.quote.cache.hit.ratio           gauge of hits / lookups since startup
+ *
+ * The DISABLED instance (rental.quotes.cache.maximum-size=0) prices every agreement, and counts nothing.
+ */
+public class RentalQuoteCache {
+    public static final RentalQuoteCache DISABLED = new RentalQuoteCache(0, null);
+
+    //  Slots per set
+    static final int WAYS = 8;
+
+    private final boolean enabled;
+    private final int setMask;
+    private final AtomicReferenceArray<Quote> slots;
+    private final Object[] setLocks;
+    private final FrequencySketch frequencySketch;
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidated = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    //  maximumSize is rounded up to a power of two multiple of WAYS; 0 disables the cache.  The meter registry may be
+    //  null (e.g. in tests), in which case no meters are registered.
+    public RentalQuoteCache(int maximumSize, MeterRegistry meterRegistry) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("Invalid maximum size, " + maximumSize);
+        }
+        this.enabled = maximumSize > 0;
+
+        int numberOfSets = 1;
+        while (numberOfSets * WAYS < maximumSize) {
+            numberOfSets <<= 1;
+        }
+        this.setMask = numberOfSets - 1;
+        this.slots = new AtomicReferenceArray<>(enabled ? numberOfSets * WAYS : 0);
+        this.setLocks = new Object[enabled ? numberOfSets : 0];
+        for (int set = 0; set < setLocks.length; set++) {
+            setLocks[set] = new Object();
+        }
+        this.frequencySketch = enabled ? new FrequencySketch(numberOfSets * WAYS) : null;
+
+        if (enabled && meterRegistry != null) {
+            registerMeters(meterRegistry);
+        }
+    }
+
+    private void registerMeters(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("rental.quote.cache.requests", hits, LongAdder::sum)
+                .description("Rental quote cache lookups")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("rental.quote.cache.requests", misses, LongAdder::sum)
+                .description("Rental quote cache lookups")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("rental.quote.cache.invalidated", invalidated, LongAdder::sum)
+                .description("Rental quote cache misses due to changed rates or holidays")
+                .register(meterRegistry);
+        FunctionCounter.builder("rental.quote.cache.evictions", evictions, LongAdder::sum)
+                .description("Rental quotes evicted by more frequently requested quotes")
+                .register(meterRegistry);
+        FunctionCounter.builder("rental.quote.cache.rejections", rejections, LongAdder::sum)
+                .description("Rental quotes not cached in favor of more frequently requested quotes")
+                .register(meterRegistry);
+        Gauge.builder("rental.quote.cache.size", size, AtomicInteger::get)
+                .description("Cached rental quotes")
+                .register(meterRegistry);
+        Gauge.builder("rental.quote.cache.hit.ratio", this, RentalQuoteCache::getHitRatio)
+                .description("Rental quote cache hits / lookups")
+                .register(meterRegistry);
+    }
+
+    //  Finalizes the (initialized) agreement from a cached quote if there is a current one; otherwise finalizes it as
+    //  usual (RentalAgreement.finalizeAgreement()) and caches its quote.
+    RentalAgreement finalizeAgreement(RentalAgreement rentalAgreement, CheckoutMetrics checkoutMetrics) throws RentalRequestException {
+        if (!enabled) {
+            return rentalAgreement.finalizeAgreementTimed(checkoutMetrics);
+        }
+
+        long stageStart = checkoutMetrics.startTimer();
+        Key key = new Key(rentalAgreement.getToolType(), rentalAgreement.getStartEpochDay(),
+                rentalAgreement.getRequestedRentalDays(), rentalAgreement.getDiscountPercent());
+        int hash = key.hashCode();
+        frequencySketch.increment(hash);
+
+        PricingPlan pricingPlan = rentalAgreement.getPricingPlan();
+        RentalCalendarIndex calendarIndex = rentalAgreement.rentalDateManager.getCalendarIndex();
+        int firstSlot = (spread(hash) & setMask) * WAYS;
+        for (int slot = firstSlot; slot < firstSlot + WAYS; slot++) {
+            Quote quote = slots.get(slot);
+            if (quote != null && quote.key.equals(key)) {
+                if (quote.pricingPlan == pricingPlan && quote.calendarIndex == calendarIndex) {
+                    hits.increment();
+                    rentalAgreement.applyQuote(quote);
+                    checkoutMetrics.recordStage(CheckoutMetrics.Stage.PRICING, stageStart);
+                    return rentalAgreement;
+                }
+                invalidated.increment();
+                break;
+            }
+        }
+
+        misses.increment();
+        rentalAgreement.finalizeAgreementTimed(checkoutMetrics);
+        //  only cache a quote priced with the plan and index looked up above; otherwise it is already stale
+        if (rentalAgreement.getPricingCalendarIndex() == calendarIndex && rentalAgreement.getPricingPlan() == pricingPlan) {
+            admit(firstSlot, hash, new Quote(key, pricingPlan, rentalAgreement));
+        }
+        return rentalAgreement;
+    }
+
+    private void admit(int firstSlot, int hash, Quote candidate) {
+        synchronized (setLocks[firstSlot / WAYS]) {
+            int victimSlot = -1;
+            int victimFrequency = Integer.MAX_VALUE;
+            for (int slot = firstSlot; slot < firstSlot + WAYS; slot++) {
+                Quote quote = slots.get(slot);
+                if (quote == null) {
+                    slots.set(slot, candidate);
+                    size.incrementAndGet();
+                    return;
+                }
+                if (quote.key.equals(candidate.key)) {
+                    //  a stale (or concurrently cached) quote for the same key
+                    slots.set(slot, candidate);
+                    return;
+                }
+                int frequency = frequencySketch.frequency(quote.key.hashCode());
+                if (frequency < victimFrequency) {
+                    victimSlot = slot;
+                    victimFrequency = frequency;
+                }
+            }
+
+            if (frequencySketch.frequency(hash) > victimFrequency) {
+                slots.set(victimSlot, candidate);
+                evictions.increment();
+            } else {
+                rejections.increment();
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    //  The maximum number of cached quotes (maximumSize rounded up)
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    public int getSize() {
+        return size.get();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getInvalidated() {
+        return invalidated.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+    }
+
+    //  Spreads the hash so that keys differing only in their high bits use different sets
+    private static int spread(int hash) {
+        return (hash ^ (hash >>> 16)) * 0x45d9f3b;
+    }
+
+    private static final class Key {
+        private final String toolType;
+        private final long startEpochDay;
+        private final int rentalDays;
+        private final int discountPercent;
+        private final int hash;
+
+        private Key(String toolType, long startEpochDay, int rentalDays, int discountPercent) {
+            this.toolType = toolType;
+            this.startEpochDay = startEpochDay;
+            this.rentalDays = rentalDays;
+            this.discountPercent = discountPercent;
+            this.hash = Objects.hash(toolType, startEpochDay, rentalDays, discountPercent);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key key)) {
+                return false;
+            }
+            return startEpochDay == key.startEpochDay && rentalDays == key.rentalDays
+                    && discountPercent == key.discountPercent && Objects.equals(toolType, key.toolType);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    //  The results of finalizing an agreement (see RentalAgreement.applyQuote()), and the plan and index they were
+    //  priced with
+    static final class Quote {
+        private final Key key;
+        final PricingPlan pricingPlan;
+        final RentalCalendarIndex calendarIndex;
+        final int numberOfWeekdays;
+        final int numberOfWeekendDays;
+        final int numberOfHolidays;
+        final int billableDays;
+        final long preDiscountedChargeCents;
+        final long discountAmountCents;
+        final long finalChargeCents;
+
+        private Quote(Key key, PricingPlan pricingPlan, RentalAgreement rentalAgreement) {
+            this.key = key;
+            this.pricingPlan = pricingPlan;
+            this.calendarIndex = rentalAgreement.getPricingCalendarIndex();
+            this.numberOfWeekdays = rentalAgreement.getNumberOfWeekdays();
+            this.numberOfWeekendDays = rentalAgreement.getNumberOfWeekendDays();
+            this.numberOfHolidays = rentalAgreement.getNumberOfHolidays();
+            this.billableDays = rentalAgreement.getBillableDays();
+            this.preDiscountedChargeCents = rentalAgreement.getPreDiscountedChargeCents();
+            this.discountAmountCents = rentalAgreement.getDiscountAmountCents();
+            this.finalChargeCents = rentalAgreement.getFinalChargeCents();
+        }
+    }
+
+    //  Count-min sketch of key frequencies; four 4-bit (saturating at 15) counters per key, one in each row, of which
+    //  the minimum is the estimated frequency.  Once 10 increments per slot of the cache have been counted, every
+    //  counter is halved.
+    //
+    //  Counters are updated without synchronization; a lost increment (two threads incrementing the same counter at
+    //  once) only makes an estimate slightly low, which is harmless for an eviction heuristic.
+    private static final class FrequencySketch {
+        private static final int[] SEEDS = {0x97cb3127, 0xb3c2ae6f, 0x7ed55d16, 0xc761c23c};
+        private static final int MAXIMUM_COUNT = 15;
+
+        private final byte[][] rows;
+        private final int indexMask;
+        private final int sampleSize;
+        private int increments;
+
+        //  Four counters per row for each slot of the cache, so that few keys share a counter
+        private FrequencySketch(int capacity) {
+            int width = 16;
+            while (width < 4 * capacity) {
+                width <<= 1;
+            }
+            this.rows = new byte[SEEDS.length][width];
+            this.indexMask = width - 1;
+            this.sampleSize = 10 * capacity;
+        }
+
+        void increment(int hash) {
+            for (int row = 0; row < rows.length; row++) {
+                int index = index(hash, row);
+                if (rows[row][index] < MAXIMUM_COUNT) {
+                    rows[row][index]++;
+                }
+            }
+            if (++increments >= sampleSize) {
+                age();
+            }
+        }
+
+        int frequency(int hash) {
+            int frequency = MAXIMUM_COUNT;
+            for (int row = 0; row < rows.length; row++) {
+                frequency = Math.min(frequency, rows[row][index(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private synchronized void age() {
+            if (increments < sampleSize) {
+                return;
+            }
+            increments = 0;
+            for (byte[] counters : rows) {
+                for (int index = 0; index < counters.length; index++) {
+                    counters[index] >>= 1;
+                }
+            }
+        }
+
+        private int index(int hash, int row) {
+            int h = (hash + SEEDS[row]) * SEEDS[row];
+            return (h ^ (h >>> 17)) & indexMask;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.demo.store.rentals;
 
+import com.example.demo.json.serializers.RentalRequestDeserializer;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
@@ -10,9 +12,22 @@ import java.math.RoundingMode;
 /**
  * The RentalRequest class represents a rental request made by a customer.
  *
+ * The checkout date and discount are parsed once, when they are set (i.e. as the request body is read; see the
+ * RentalRequestDeserializer), into the checkout epoch day and the discount percent.  The checkout uses these typed values,
+ * and never re-parses the text; which is kept for the rejection messages and the agreement output.  An invalid value is
+ * held as INVALID_EPOCH_DAY or INVALID_DISCOUNT_PERCENT, and rejected by the checkout's validation (with the same reason
+ * as before; see CheckoutService.validateRentalRequest()).
+ *
  * The Cloneable interface to allow creating a copy of a RentalRequest object, primarily for testing purposes.
  */
+@JsonDeserialize(using = RentalRequestDeserializer.class)
 public class RentalRequest implements Cloneable{
+    //  The discount percent of a missing or invalid discount
+    public static final int INVALID_DISCOUNT_PERCENT = -1;
+    //  The longest rental accepted (five years); a longer rental is rejected before it is priced or reserved, so that a
+    //  single request (e.g. for 2,000,000,000 days) cannot tie up the pricing, or a unit, for millennia
+    public static final int MAX_RENTAL_DAYS = 5 * 365 + 1;
+
     @JsonProperty
     private String toolCode;
 
@@ -25,6 +40,12 @@ public class RentalRequest implements Cloneable{
     @JsonProperty
     private String discount;
 
+    @JsonIgnore
+    private long checkoutEpochDay = RentalDateManager.INVALID_EPOCH_DAY;
+
+    @JsonIgnore
+    private int discountPercent = INVALID_DISCOUNT_PERCENT;
+
     public RentalRequest() {}
 
     // primary purpose is to facilitate testing
@@ -51,9 +72,16 @@ public class RentalRequest implements Cloneable{
 
     public RentalRequest setCheckoutDate(String checkoutDate) {
         this.checkoutDate = checkoutDate;
+        this.checkoutEpochDay = RentalDateManager.getInstance().stringToEpochDay(checkoutDate);
         return this;
     }
 
+    //  The epoch day of the checkout date, or RentalDateManager.INVALID_EPOCH_DAY if it is not a valid date
+    @JsonIgnore
+    public long getCheckoutEpochDay() {
+        return checkoutEpochDay;
+    }
+
     public int getNumberOfRentalDays() {
         return numberOfRentalDays;
     }
@@ -69,6 +97,38 @@ public class RentalRequest implements Cloneable{
 
     public RentalRequest setDiscount(String discount) {
         this.discount = discount;
+        this.discountPercent = discount == null ? INVALID_DISCOUNT_PERCENT : parseDiscountPercent(discount);
         return this;
     }
+
+    //  The discount percent (0 - 100), or INVALID_DISCOUNT_PERCENT if the discount is missing or invalid
+    @JsonIgnore
+    public int getDiscountPercent() {
+        return discountPercent;
+    }
+
+    //  Parses the discount percent as Integer.parseInt() does, but returns INVALID_DISCOUNT_PERCENT (rather than throwing
+    //  an exception) if it is not a whole number from 0 to 100.
+    static int parseDiscountPercent(String discount) {
+        int length = discount.length();
+        int index = 0;
+        boolean negative = false;
+        if (length > 1 && (discount.charAt(0) == '-' || discount.charAt(0) == '+')) {
+            negative = discount.charAt(0) == '-';
+            index++;
+        }
+        if (index == length) {
+            return INVALID_DISCOUNT_PERCENT;
+        }
+
+        int percent = 0;
+        for (; index < length; index++) {
+            int digit = Character.digit(discount.charAt(index), 10);
+            if (digit < 0) {
+                return INVALID_DISCOUNT_PERCENT;
+            }
+            percent = Math.min(percent * 10 + digit, 101);
+        }
+        return percent > 100 || (negative && percent != 0) ? INVALID_DISCOUNT_PERCENT : percent;
+    }
 }
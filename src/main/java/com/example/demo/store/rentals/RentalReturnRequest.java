@@ -0,0 +1,23 @@
+package com.example.demo.store.rentals;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The RentalReturnRequest class represents the return of a rented tool unit; the rental is identified by the agreement
+ * id returned with its checkout (the "Agreement id" of the rental agreement), e.g. {"agreementId":"0b5d3c1e-..."}.
+ */
+public class RentalReturnRequest {
+    @JsonProperty
+    private String agreementId;
+
+    public RentalReturnRequest() {}
+
+    public String getAgreementId() {
+        return agreementId;
+    }
+
+    public RentalReturnRequest setAgreementId(String agreementId) {
+        this.agreementId = agreementId;
+        return this;
+    }
+}
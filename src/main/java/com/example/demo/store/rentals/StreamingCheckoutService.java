@@ -0,0 +1,92 @@
+package com.example.demo.store.rentals;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Streaming (NDJSON) checkout.
+ *
+ * Reads newline-delimited RentalRequest JSON objects from an input stream, using Jackson's streaming parser, checks out
+ * each request as soon as it has been read, and writes one newline-delimited result per request to the output stream
+ * (the same result format as the batch checkout; see BatchCheckoutResult).
+ *
+ * - Memory use is bounded regardless of the size of the input: only one request (and its result) is in memory at any
+ *   time, plus the parser and generator buffers.
+ * - Backpressure is implicit: requests are read, checked out, and written on the same thread; so when writing falls
+ *   behind (i.e. the client is not reading the results) writes block, and no further requests are read.
+ * - A request which cannot be bound to a RentalRequest, or which fails validation, produces an error result without
+ *   ending the stream.  Malformed JSON ends the stream with a final error result, since the parser cannot recover.
+ */
+@Service
+public class StreamingCheckoutService {
+    //  Number of results written between explicit flushes of the output stream
+    static final int FLUSH_INTERVAL = 64;
+
+    private final CheckoutService checkoutService;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter resultWriter;
+
+    public StreamingCheckoutService(CheckoutService checkoutService, ObjectMapper objectMapper) {
+        this.checkoutService = checkoutService;
+        this.objectMapper = objectMapper;
+        //  results are only flushed every FLUSH_INTERVAL (see checkout())
+        this.resultWriter = objectMapper.writerFor(BatchCheckoutResult.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    //  Returns the number of requests read (and results written)
+    public int checkout(InputStream rentalRequests, OutputStream results) throws IOException {
+        int index = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(rentalRequests);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(results)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            //  a newline is written explicitly after every result, rather than the default (space) root value separator
+            generator.setRootValueSeparator(null);
+
+            while (true) {
+                JsonNode rentalRequestNode;
+                try {
+                    if (parser.nextToken() == null) {
+                        break;
+                    }
+                    rentalRequestNode = parser.readValueAsTree();
+                } catch (JsonProcessingException e) {
+                    writeResult(generator, BatchCheckoutResult.failure(index++, e));
+                    break;
+                }
+
+                writeResult(generator, checkoutEntry(index++, rentalRequestNode));
+                if (index % FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+            generator.flush();
+        }
+        return index;
+    }
+
+    private BatchCheckoutResult checkoutEntry(int index, JsonNode rentalRequestNode) {
+        try {
+            RentalRequest rentalRequest = objectMapper.treeToValue(rentalRequestNode, RentalRequest.class);
+            return BatchCheckoutResult.success(index, checkoutService.checkout(rentalRequest));
+        } catch (Exception e) {
+            //  e.g. a RentalRequestException, or a binding failure (e.g. a non-numeric number of rental days)
+            return BatchCheckoutResult.failure(index, e);
+        }
+    }
+
+    private void writeResult(JsonGenerator generator, BatchCheckoutResult result) throws IOException {
+        resultWriter.writeValue(generator, result);
+        generator.writeRaw('\n');
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.demo.store.rentals;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind persistence of finalized rental agreements into the rental_agreement table.
+ *
+ * - record() only offers the agreement to a bounded queue; it never blocks, and never touches the database.  If the
+ *   queue is full the agreement is dropped rather than slowing down checkout: it is counted, logged (at most once per
+ *   dropped-log-interval-ms, with the number of drops not logged since), and record() returns false; so the checkout
+ *   is rejected (503) and its reservation released.
+ *
+ * - A single writer thread drains the queue into JDBC batch inserts.  A batch is flushed when it reaches batch-size
+ *   agreements, or flush-interval-ms after its first agreement was taken from the queue; whichever comes first.
+ *
+ * - On shutdown the queue is drained and flushed before the application context closes the DataSource.  The lifecycle
+ *   phase is lower than the web server's, so this recorder is stopped only after the web server has stopped accepting
+ *   (and finished) requests.
+ *
+ * Metrics:
+ * - rental.agreements.write-behind.queue.depth     gauge of the agreements waiting to be written
+ * - rental.agreements.write-behind.flush           timer (percentile histogram) of each batch insert
+ * - rental.agreements.write-behind.batch.size      distribution of the number of agreements per batch insert
+ * - rental.agreements.write-behind.written         counter of agreements inserted
+ * - rental.agreements.write-behind.dropped         counter of agreements dropped because the queue was full
+ * - rental.agreements.write-behind.failed          counter of agreements in batch inserts which failed
+ */
+@Component
+public class WriteBehindRentalAgreementRecorder implements RentalAgreementRecorder, SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindRentalAgreementRecorder.class);
+
+    static final String INSERT_SQL = """
+            INSERT INTO rental_agreement (tool_code, tool_type, tool_brand, rental_days, checkout_date, due_date,
+                daily_charge, charge_days, pre_discount_charge, discount_percent, discount_amount, final_charge, recorded_at,
+                unit_serial_number, agreement_id)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final BlockingQueue<RentalAgreement> queue;
+    private final long droppedLogIntervalNanos;
+    //  The time of the last dropped agreement log, and the drops since which were not logged; see logDropped()
+    private final AtomicLong lastDroppedLogNanos;
+    private final AtomicLong unloggedDrops = new AtomicLong();
+
+    private final Timer flushTimer;
+    private final DistributionSummary batchSizeSummary;
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public WriteBehindRentalAgreementRecorder(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry, boolean enabled,
+                                              int batchSize, long flushIntervalMillis, int queueCapacity) {
+        this(jdbcTemplate, meterRegistry, enabled, batchSize, flushIntervalMillis, queueCapacity, 10_000);
+    }
+
+    @Autowired
+    public WriteBehindRentalAgreementRecorder(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                                              @Value("${rental.agreements.write-behind.enabled:true}") boolean enabled,
+                                              @Value("${rental.agreements.write-behind.batch-size:500}") int batchSize,
+                                              @Value("${rental.agreements.write-behind.flush-interval-ms:200}") long flushIntervalMillis,
+                                              @Value("${rental.agreements.write-behind.queue-capacity:50000}") int queueCapacity,
+                                              @Value("${rental.agreements.write-behind.dropped-log-interval-ms:10000}") long droppedLogIntervalMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.droppedLogIntervalNanos = TimeUnit.MILLISECONDS.toNanos(droppedLogIntervalMillis);
+        this.lastDroppedLogNanos = new AtomicLong(System.nanoTime() - droppedLogIntervalNanos);
+
+        Gauge.builder("rental.agreements.write-behind.queue.depth", queue, BlockingQueue::size)
+                .description("Rental agreements waiting to be written")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("rental.agreements.write-behind.flush")
+                .description("Time to insert a batch of rental agreements")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("rental.agreements.write-behind.batch.size")
+                .description("Rental agreements per batch insert")
+                .register(meterRegistry);
+        this.writtenCounter = Counter.builder("rental.agreements.write-behind.written")
+                .description("Rental agreements written")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("rental.agreements.write-behind.dropped")
+                .description("Rental agreements dropped because the write-behind queue was full")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("rental.agreements.write-behind.failed")
+                .description("Rental agreements in failed batch inserts")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean record(RentalAgreement rentalAgreement) {
+        if (!enabled || queue.offer(rentalAgreement)) {
+            return true;
+        }
+        droppedCounter.increment();
+        logDropped(rentalAgreement);
+        return false;
+    }
+
+    //  Logs the dropped agreement unless another one was logged within the interval; a full queue drops every
+    //  checkout, and logging each one would only add to the overload.  The drops not logged are counted into the next log.
+    private void logDropped(RentalAgreement rentalAgreement) {
+        long now = System.nanoTime();
+        long last = lastDroppedLogNanos.get();
+        if (now - last < droppedLogIntervalNanos || !lastDroppedLogNanos.compareAndSet(last, now)) {
+            unloggedDrops.incrementAndGet();
+            return;
+        }
+        logger.warn("Write-behind queue full, dropped rental agreement {} ({} unit {}, {} for {} days); {} other agreements dropped since the last log",
+                rentalAgreement.getAgreementId(), rentalAgreement.getToolCode(),
+                rentalAgreement.getReservation() == null ? null : rentalAgreement.getReservation().getSerialNumber(),
+                rentalAgreement.getCheckoutDate(), rentalAgreement.getRequestedRentalDays(), unloggedDrops.getAndSet(0));
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::writeBehind, "rental-agreement-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    //  The writer stops waiting for full batches, writes everything still queued, and exits; wait for it to finish
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    //  Stopped after the web server (see the class comment)
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void writeBehind() {
+        List<RentalAgreement> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                fillBatch(batch);
+            } catch (InterruptedException e) {
+                //  not expected (the thread is never interrupted); write what has been taken and carry on
+                Thread.currentThread().interrupt();
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    //  Waits (up to the flush interval) for the first agreement, then takes agreements until the batch is full or the
+    //  flush interval has elapsed since the first one.  While stopping, takes whatever is queued without waiting.
+    private void fillBatch(List<RentalAgreement> batch) throws InterruptedException {
+        RentalAgreement first = running ? queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS) : queue.poll();
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remainingNanos = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remainingNanos <= 0 || !running) {
+                return;
+            }
+            RentalAgreement next = queue.poll(remainingNanos, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    // package-private for testing
+    void flush(List<RentalAgreement> batch) {
+        long start = System.nanoTime();
+        Timestamp recordedAt = new Timestamp(System.currentTimeMillis());
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    bindAgreement(ps, batch.get(i), recordedAt);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return batch.size();
+                }
+            });
+            writtenCounter.increment(batch.size());
+        } catch (RuntimeException e) {
+            //  a failed batch is not retried; the agreements have already been returned to the client
+            failedCounter.increment(batch.size());
+            logger.error("Failed to write a batch of {} rental agreements", batch.size(), e);
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batchSizeSummary.record(batch.size());
+        }
+    }
+
+    static void bindAgreement(PreparedStatement ps, RentalAgreement rentalAgreement, Timestamp recordedAt) throws SQLException {
+        long checkoutEpochDay = rentalAgreement.getStartEpochDay();
+        ps.setString(1, rentalAgreement.getToolCode());
+        ps.setString(2, rentalAgreement.getToolType());
+        ps.setString(3, rentalAgreement.getToolBrand());
+        ps.setInt(4, rentalAgreement.getRequestedRentalDays());
+        ps.setDate(5, Date.valueOf(LocalDate.ofEpochDay(checkoutEpochDay)));
+        ps.setDate(6, Date.valueOf(LocalDate.ofEpochDay(checkoutEpochDay + rentalAgreement.getRequestedRentalDays())));
+        ps.setBigDecimal(7, BigDecimal.valueOf(rentalAgreement.getDailyRentalChargeCents(), 2));
+        ps.setInt(8, rentalAgreement.getBillableDays());
+        ps.setBigDecimal(9, BigDecimal.valueOf(rentalAgreement.getPreDiscountedChargeCents(), 2));
+        ps.setInt(10, rentalAgreement.getDiscountPercent());
+        ps.setBigDecimal(11, BigDecimal.valueOf(rentalAgreement.getDiscountAmountCents(), 2));
+        ps.setBigDecimal(12, BigDecimal.valueOf(rentalAgreement.getFinalChargeCents(), 2));
+        ps.setTimestamp(13, recordedAt);
+        ps.setString(14, rentalAgreement.getReservation() == null ? null : rentalAgreement.getReservation().getSerialNumber());
+        ps.setString(15, rentalAgreement.getAgreementId());
+    }
+}
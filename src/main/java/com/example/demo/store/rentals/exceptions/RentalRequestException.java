@@ -1,15 +1,109 @@
 package com.example.demo.store.rentals.exceptions;
 
+import com.example.demo.store.rentals.RentalRequest;
+
+//  A rejected rental request.  Rejections are expected (e.g. a malformed discount or an unknown tool code), and their
+//  stack trace is of no use; so the exception is stackless, i.e. it does not pay for filling in (and later printing) the
+//  stack trace on every rejected request.  The reason identifies the rejection; its code, the HTTP status, and the
+//  request field rejected.
+//
 public class RentalRequestException extends  Exception {
+    //  The reason a rental request was rejected; e.g. used to tag the rejected request metrics, and as the error code
+    //  of the error response.  The message prefix (if any) is followed by the rejected value; see of(Reason, Object).
+    public enum Reason {
+        INVALID_REQUEST("invalid-request", 400, null, null),
+        MALFORMED_REQUEST("malformed-request", 400, null, null),
+        INVALID_RENTAL_DAYS("invalid-rental-days", 400, "numberOfRentalDays", "Rental days must be greater than 0! Given number of days = "),
+        TOO_MANY_RENTAL_DAYS("too-many-rental-days", 400, "numberOfRentalDays",
+                "Rental days must be at most " + RentalRequest.MAX_RENTAL_DAYS + "! Given number of days = "),
+        MISSING_DISCOUNT("missing-discount", 400, "discount", "Discount percent is required!, Given discount percent = "),
+        INVALID_DISCOUNT("invalid-discount", 400, "discount", "Discount percent must be between 0 and 100! Given discount percent = "),
+        MISSING_TOOL_CODE("missing-tool-code", 400, "toolCode", "Tool code is required!, Given tool code = "),
+        UNKNOWN_TOOL_CODE("unknown-tool-code", 404, "toolCode", "No tool found for tool code = "),
+        INVALID_CHECKOUT_DATE("invalid-checkout-date", 400, "checkoutDate", "Invalid date format: "),
+        TOOL_UNAVAILABLE("tool-unavailable", 409, "toolCode", null),
+        MISSING_AGREEMENT_ID("missing-agreement-id", 400, "agreementId", "Agreement id is required!, Given agreement id = "),
+        NO_RENTAL_TO_RETURN("no-rental-to-return", 404, "agreementId", "No rental to return for agreement id = "),
+        AGREEMENT_NOT_RECORDED("agreement-not-recorded", 503, null, "The rental agreement could not be recorded, try again later; tool code = ");
+
+        private final String code;
+        private final int status;
+        private final String field;
+        private final String messagePrefix;
+
+        Reason(String code, int status, String field, String messagePrefix) {
+            this.code = code;
+            this.status = status;
+            this.field = field;
+            this.messagePrefix = messagePrefix;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        //  The HTTP status of the error response
+        public int getStatus() {
+            return status;
+        }
+
+        //  The rental request field rejected, or null if the rejection is not of a single field
+        public String getField() {
+            return field;
+        }
+    }
+
+    private final Reason reason;
+    private final Object rejectedValue;
+    private String message;
+
     public RentalRequestException(String message) {
-        super(message);
+        this(Reason.INVALID_REQUEST, message);
     }
 
     public RentalRequestException(String message, Throwable cause) {
-        super(message, cause);
+        this(Reason.INVALID_REQUEST, message, cause);
     }
 
     public RentalRequestException(Throwable cause) {
-        super(cause);
+        this(Reason.INVALID_REQUEST, cause == null ? null : cause.toString(), cause);
+    }
+
+    public RentalRequestException(Reason reason, String message) {
+        this(reason, message, null);
+    }
+
+    public RentalRequestException(Reason reason, String message, Throwable cause) {
+        this(reason, message, null, cause);
+    }
+
+    private RentalRequestException(Reason reason, String message, Object rejectedValue, Throwable cause) {
+        super(null, cause, false, false);
+        this.reason = reason;
+        this.message = message;
+        this.rejectedValue = rejectedValue;
+    }
+
+    //  A rejection of the given value, whose message (the reason's message prefix followed by the value) is only
+    //  formatted if it is asked for; e.g. not for rejections that are only counted.
+    public static RentalRequestException of(Reason reason, Object rejectedValue) {
+        return new RentalRequestException(reason, null, rejectedValue, null);
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public Object getRejectedValue() {
+        return rejectedValue;
+    }
+
+    @Override
+    public String getMessage() {
+        //  a benign race; every thread formats the same message
+        if (message == null && reason.messagePrefix != null) {
+            message = reason.messagePrefix + rejectedValue;
+        }
+        return message;
     }
 }
@@ -0,0 +1,39 @@
+CREATE TABLE tool (
+        id BIGINT AUTO_INCREMENT PRIMARY KEY,
+        tool_code VARCHAR(10),
+        tool_type VARCHAR(25),
+        brand VARCHAR(25)
+);
+
+CREATE TABLE rental_cost (
+        id BIGINT AUTO_INCREMENT PRIMARY KEY,
+        tool_type VARCHAR(25),
+        daily_charge VARCHAR(10),
+        weekday_charge boolean,
+        weekend_charge boolean,
+        holiday_charge boolean
+);
+
+CREATE TABLE rental_agreement (
+        id BIGINT AUTO_INCREMENT PRIMARY KEY,
+        tool_code VARCHAR(10),
+        tool_type VARCHAR(25),
+        tool_brand VARCHAR(25),
+        rental_days INT,
+        checkout_date DATE,
+        due_date DATE,
+        daily_charge DECIMAL(12, 2),
+        charge_days INT,
+        pre_discount_charge DECIMAL(12, 2),
+        discount_percent INT,
+        discount_amount DECIMAL(12, 2),
+        final_charge DECIMAL(12, 2),
+        recorded_at TIMESTAMP,
+        unit_serial_number VARCHAR(20)
+);
+
+CREATE TABLE tool_unit (
+        id BIGINT AUTO_INCREMENT PRIMARY KEY,
+        tool_code VARCHAR(10),
+        serial_number VARCHAR(20)
+);
@@ -0,0 +1,17 @@
+-- Typed and indexed tool catalog
+--   - rental_cost.daily_charge moves from VARCHAR(10) to DECIMAL(10, 2); the existing values (e.g. '1.99') are converted
+--   - a tool code, and the rental cost of a tool type, are unique
+--   - tool lookups by type and brand (ToolRepository.findByType, findByBrand) are index lookups rather than full scans
+--   - every tool's type must have a rental cost
+
+ALTER TABLE rental_cost ALTER COLUMN daily_charge SET DATA TYPE DECIMAL(10, 2);
+ALTER TABLE rental_cost ALTER COLUMN daily_charge SET NOT NULL;
+ALTER TABLE rental_cost ALTER COLUMN tool_type SET NOT NULL;
+ALTER TABLE rental_cost ADD CONSTRAINT uk_rental_cost_tool_type UNIQUE (tool_type);
+
+ALTER TABLE tool ALTER COLUMN tool_code SET NOT NULL;
+ALTER TABLE tool ALTER COLUMN tool_type SET NOT NULL;
+ALTER TABLE tool ADD CONSTRAINT uk_tool_tool_code UNIQUE (tool_code);
+ALTER TABLE tool ADD CONSTRAINT fk_tool_rental_cost FOREIGN KEY (tool_type) REFERENCES rental_cost (tool_type);
+CREATE INDEX ix_tool_tool_type ON tool (tool_type);
+CREATE INDEX ix_tool_brand ON tool (brand);
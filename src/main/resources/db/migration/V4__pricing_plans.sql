@@ -0,0 +1,9 @@
+-- Pricing plans (see PricingPlan)
+--   - optional rates per day type; a charged day type without a rate is charged the daily charge
+--   - optional peak season surcharges, e.g. '06-01..08-31:+25%, 12-20..01-05:+50%'
+--   The existing rental costs have neither, so they price exactly as before.
+
+ALTER TABLE rental_cost ADD COLUMN weekday_rate DECIMAL(10, 2);
+ALTER TABLE rental_cost ADD COLUMN weekend_rate DECIMAL(10, 2);
+ALTER TABLE rental_cost ADD COLUMN holiday_rate DECIMAL(10, 2);
+ALTER TABLE rental_cost ADD COLUMN peak_seasons VARCHAR(255);
@@ -0,0 +1,13 @@
+-- Returned tool units (see ToolInventory.returnUnit())
+--   - one row per return; it cancels one rental_agreement of the same unit, checkout date and due date, so the unit's
+--     reservation is not restored on restart
+--   - the rental_agreement rows are kept as they are, as the record of the rentals
+
+CREATE TABLE rental_return (
+        id BIGINT AUTO_INCREMENT PRIMARY KEY,
+        tool_code VARCHAR(10) NOT NULL,
+        unit_serial_number VARCHAR(20),
+        checkout_date DATE NOT NULL,
+        due_date DATE NOT NULL,
+        returned_at TIMESTAMP NOT NULL
+);
@@ -0,0 +1,13 @@
+-- Rental agreement ids (see ToolInventory.returnRental())
+--   - each agreement is given a random id when its unit is reserved; the id is in the checkout response, and a return
+--     names the agreement it gives back by that id
+--   - a return row references the agreement it cancels; a return stored before this migration has no agreement id, and
+--     still cancels one agreement of the same unit, checkout date and due date
+--   - the agreements stored before this migration are given random ids; those ids were never handed out, so their units
+--     can no longer be returned (a return by tool code and dates is no longer accepted)
+
+ALTER TABLE rental_agreement ADD COLUMN agreement_id VARCHAR(36);
+UPDATE rental_agreement SET agreement_id = CAST(RANDOM_UUID() AS VARCHAR(36)) WHERE agreement_id IS NULL;
+ALTER TABLE rental_agreement ADD CONSTRAINT uk_rental_agreement_agreement_id UNIQUE (agreement_id);
+
+ALTER TABLE rental_return ADD COLUMN agreement_id VARCHAR(36);
@@ -0,0 +1,53 @@
+package com.example.demo;
+
+import com.example.demo.store.inventory.ToolInventory;
+import com.example.demo.store.rentals.CheckoutService;
+import com.example.demo.store.rentals.RentalAgreement;
+import com.example.demo.store.rentals.RentalRequest;
+import com.example.demo.store.rentals.exceptions.RentalRequestException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A tool (and its units) inserted into the database after startup can be checked out without a catalog reload; i.e. the
+ * ToolService finds it, and the ToolInventory loads its units before the checkout reserves one.  Runs against its own
+ * in-memory database, as the other application tests count the seeded tools.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:catalog-additions")
+public class CatalogAdditionsTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private ToolInventory toolInventory;
+
+    @Test
+    void toolAddedSinceStartupCanBeCheckedOut() throws RentalRequestException {
+        jdbcTemplate.update("INSERT INTO tool (tool_code, tool_type, brand) VALUES ('LADR', 'Ladder', 'Ridgid')");
+        jdbcTemplate.update("INSERT INTO tool_unit (tool_code, serial_number) VALUES ('LADR', 'LADR-001')");
+        int laddersBefore = toolInventory.getToolTypeAvailability("Ladder").getNumberOfUnits();
+        RentalRequest rentalRequest = new RentalRequest()
+                .setToolCode("LADR")
+                .setCheckoutDate("07/02/20")
+                .setNumberOfRentalDays(3)
+                .setDiscount("10");
+
+        RentalAgreement rentalAgreement = checkoutService.checkout(rentalRequest);
+        assertNotNull(rentalAgreement.getAgreementId());
+        assertEquals(1, toolInventory.getNumberOfUnits("LADR"));
+        assertEquals(laddersBefore + 1, toolInventory.getToolTypeAvailability("Ladder").getNumberOfUnits());
+
+        //  its only unit is now rented
+        RentalRequestException unavailable = assertThrows(RentalRequestException.class,
+                () -> checkoutService.checkout(rentalRequest));
+        assertEquals(RentalRequestException.Reason.TOOL_UNAVAILABLE, unavailable.getReason());
+    }
+}
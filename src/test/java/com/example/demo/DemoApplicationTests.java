@@ -1,13 +1,75 @@
 package com.example.demo;
 
+import com.example.demo.services.ToolService;
+import com.example.demo.store.inventory.ToolInventory;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
 class DemoApplicationTests {
 
+    @Autowired
+    private WebServerPhaseProbe webServerPhaseProbe;
+
     @Test
     void contextLoads() {
     }
 
+    //  The catalog and the units are loaded before the lifecycle phase the web server starts in; so the first request
+    //  is never served from an empty catalog or inventory
+    @Test
+    void catalogAndInventoryAreLoadedBeforeTheWebServerStarts() {
+        assertTrue(webServerPhaseProbe.catalogReloadsAtStart >= 1);
+        assertEquals(4, webServerPhaseProbe.ladderUnitsAtStart);
+    }
+
+    @TestConfiguration
+    static class WebServerPhaseProbeConfiguration {
+        @Bean
+        WebServerPhaseProbe webServerPhaseProbe(ToolService toolService, ToolInventory toolInventory) {
+            return new WebServerPhaseProbe(toolService, toolInventory);
+        }
+    }
+
+    //  Started before the web server; i.e. in a lower lifecycle phase than Spring Boot's WebServerStartStopLifecycle
+    static class WebServerPhaseProbe implements SmartLifecycle {
+        private final ToolService toolService;
+        private final ToolInventory toolInventory;
+        private volatile boolean running;
+        private volatile long catalogReloadsAtStart = -1;
+        private volatile int ladderUnitsAtStart = -1;
+
+        WebServerPhaseProbe(ToolService toolService, ToolInventory toolInventory) {
+            this.toolService = toolService;
+            this.toolInventory = toolInventory;
+        }
+
+        @Override
+        public void start() {
+            catalogReloadsAtStart = toolService.getCatalogStatistics().getReloadCount();
+            ladderUnitsAtStart = toolInventory.getNumberOfUnits("LADW");
+            running = true;
+        }
+
+        @Override
+        public void stop() {
+            running = false;
+        }
+
+        @Override
+        public boolean isRunning() {
+            return running;
+        }
+
+        @Override
+        public int getPhase() {
+            return SmartLifecycle.DEFAULT_PHASE - 2048;
+        }
+    }
 }
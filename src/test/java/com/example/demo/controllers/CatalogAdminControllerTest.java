@@ -0,0 +1,101 @@
+package com.example.demo.controllers;
+
+import com.example.demo.entities.Tool;
+import com.example.demo.repository.ToolRepository;
+import com.example.demo.services.ToolService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Tests the CatalogAdminController endpoints through the web layer; i.e. a reload rebuilds the catalog snapshot from
+ * the repository, and both endpoints return the catalog statistics.
+ *
+ * The ToolService is the real one, over a mocked ToolRepository.
+ */
+@WebMvcTest(CatalogAdminController.class)
+@Import(CatalogAdminControllerTest.CatalogConfiguration.class)
+public class CatalogAdminControllerTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ToolRepository toolRepository;
+
+    @TestConfiguration
+    static class CatalogConfiguration {
+        @Bean
+        ToolService toolService(ToolRepository toolRepository) {
+            return new ToolService(toolRepository);
+        }
+    }
+
+    //  The catalog is loaded from the repository at startup, before the first test
+    @BeforeEach
+    void setup() {
+        Mockito.clearInvocations(toolRepository);
+    }
+
+    @Test
+    void reloadRebuildsTheCatalogFromTheRepository() throws Exception {
+        JsonNode before = statistics();
+
+        Mockito.when(toolRepository.findAll()).thenReturn(List.of(tool("LADW"), tool("CHNS"), tool("CHNS")));
+        mockMvc.perform(post("/admin/catalog/reload"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numberOfTools").value(3))
+                .andExpect(jsonPath("$.numberOfToolCodes").value(2))
+                .andExpect(jsonPath("$.reloadCount").value(before.get("reloadCount").asLong() + 1));
+
+        JsonNode after = statistics();
+        assertEquals(3, after.get("numberOfTools").asInt());
+        assertEquals(before.get("reloadCount").asLong() + 1, after.get("reloadCount").asLong());
+        Mockito.verify(toolRepository).findAll();
+    }
+
+    @Test
+    void statisticsAreReadOnly() throws Exception {
+        JsonNode statistics = statistics();
+        for (String field : List.of("numberOfTools", "numberOfToolCodes", "loadedAtMillis", "lastReloadDurationNanos",
+                "reloadCount", "hitCount", "missCount", "unknownToolCodeCount", "coalescedLookupCount")) {
+            assertTrue(statistics.has(field), field);
+        }
+
+        //  only a POST reloads the catalog
+        mockMvc.perform(get("/admin/catalog/reload")).andExpect(status().isMethodNotAllowed());
+        assertEquals(statistics.get("reloadCount"), statistics().get("reloadCount"));
+        Mockito.verify(toolRepository, Mockito.never()).findAll();
+    }
+
+    private JsonNode statistics() throws Exception {
+        return objectMapper.readTree(mockMvc.perform(get("/admin/catalog/statistics"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private static Tool tool(String toolCode) {
+        Tool tool = new Tool();
+        tool.setTool_code(toolCode);
+        tool.setTool_type("Type");
+        tool.setBrand("Brand");
+        return tool;
+    }
+}
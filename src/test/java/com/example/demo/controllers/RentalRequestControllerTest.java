@@ -0,0 +1,236 @@
+package com.example.demo.controllers;
+
+import com.example.demo.entities.RentalCost;
+import com.example.demo.entities.Tool;
+import com.example.demo.entities.ToolUnit;
+import com.example.demo.json.serializers.RentalAgreementSerializer;
+import com.example.demo.services.ToolService;
+import com.example.demo.store.inventory.ToolInventory;
+import com.example.demo.store.rentals.BatchCheckoutService;
+import com.example.demo.store.rentals.CheckoutMetrics;
+import com.example.demo.store.rentals.CheckoutService;
+import com.example.demo.store.rentals.RentalAgreementJsonWriter;
+import com.example.demo.store.rentals.RentalAgreementRecorder;
+import com.example.demo.store.rentals.StreamingCheckoutService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Tests the RentalRequestController endpoints through the web layer; i.e. the request binding, the status codes and the
+ * response bodies of the single, batch, streaming and as-string checkouts, and of returns.
+ *
+ * The checkout services are the real ones, over a mocked ToolService and an inventory holding a single LADW unit; so a
+ * second checkout of the same days is rejected until the first is returned.
+ */
+@WebMvcTest(RentalRequestController.class)
+@Import(RentalRequestControllerTest.CheckoutConfiguration.class)
+public class RentalRequestControllerTest {
+    static final ToolService mockToolService = Mockito.mock(ToolService.class);
+    static final ToolInventory toolInventory = new ToolInventory(null, null, null);
+
+    private static final String LADDER_REQUEST =
+            "{\"toolCode\":\"LADW\",\"checkoutDate\":\"07/02/20\",\"numberOfRentalDays\":3,\"discount\":\"10\"}";
+    private static final String UNKNOWN_TOOL_REQUEST =
+            "{\"toolCode\":\"NONE\",\"checkoutDate\":\"07/02/20\",\"numberOfRentalDays\":3,\"discount\":\"10\"}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @TestConfiguration
+    static class CheckoutConfiguration {
+        @Bean
+        CheckoutService checkoutService() {
+            return new CheckoutService(mockToolService, CheckoutMetrics.NOOP, RentalAgreementRecorder.NOOP, toolInventory);
+        }
+
+        @Bean(destroyMethod = "shutdown")
+        ExecutorService checkoutBatchExecutor() {
+            return Executors.newFixedThreadPool(2);
+        }
+
+        @Bean
+        BatchCheckoutService batchCheckoutService(ExecutorService checkoutBatchExecutor) {
+            return new BatchCheckoutService(mockToolService, checkoutBatchExecutor, RentalAgreementRecorder.NOOP, toolInventory);
+        }
+
+        @Bean
+        StreamingCheckoutService streamingCheckoutService(CheckoutService checkoutService, ObjectMapper objectMapper) {
+            return new StreamingCheckoutService(checkoutService, objectMapper);
+        }
+
+        @Bean
+        RentalAgreementSerializer rentalAgreementSerializer() {
+            return new RentalAgreementSerializer();
+        }
+
+        @Bean
+        RentalAgreementJsonWriter rentalAgreementJsonWriter(ObjectMapper objectMapper) {
+            return new RentalAgreementJsonWriter(objectMapper.getSerializationConfig().getTimeZone());
+        }
+
+        @Bean
+        CheckoutMetrics checkoutMetrics() {
+            return CheckoutMetrics.NOOP;
+        }
+    }
+
+    @BeforeEach
+    void setup() {
+        RentalCost rentalCost = new RentalCost();
+        rentalCost.setToolType("Ladder");
+        rentalCost.setDailyCharge(new BigDecimal("1.99"));
+        rentalCost.setWeekdayCharge(true);
+        rentalCost.setWeekendCharge(true);
+        rentalCost.setHolidayCharge(false);
+        Tool ladder = new Tool();
+        ladder.setTool_code("LADW");
+        ladder.setTool_type("Ladder");
+        ladder.setBrand("Werner");
+        ladder.setRentalCost(rentalCost);
+        Mockito.reset(mockToolService);
+        Mockito.when(mockToolService.findByCode(Mockito.anyString())).thenReturn(List.of());
+        Mockito.when(mockToolService.findByCode("LADW")).thenReturn(List.of(ladder));
+
+        //  a fresh inventory (without reservations) for every test
+        ToolUnit toolUnit = new ToolUnit();
+        toolUnit.setToolCode("LADW");
+        toolUnit.setSerialNumber("LADW-001");
+        toolInventory.loadUnits(List.of(toolUnit));
+    }
+
+    //  The agreement id of the reservation of the LADW unit, from 07/02/20 for 3 days
+    private static String rentedAgreementId() {
+        long checkoutEpochDay = LocalDate.of(2020, 7, 2).toEpochDay();
+        return toolInventory.findOverlappingReservations("LADW", checkoutEpochDay, checkoutEpochDay + 3).get(0).getAgreementId();
+    }
+
+    @Test
+    void checkedOutUnitIsReturnedByAgreementId() throws Exception {
+        MvcResult checkout = mockMvc.perform(post("/rental/checkout").contentType(MediaType.APPLICATION_JSON).content(LADDER_REQUEST))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$['Tool code']").value("LADW"))
+                .andExpect(jsonPath("$['Due date']").value("07/05/20"))
+                .andExpect(jsonPath("$['Final Charge']").value(3.58))
+                .andReturn();
+        String agreementId = objectMapper.readTree(checkout.getResponse().getContentAsString()).get("Agreement id").asText();
+        assertEquals(rentedAgreementId(), agreementId);
+
+        //  the only unit is rented
+        mockMvc.perform(post("/rental/checkout").contentType(MediaType.APPLICATION_JSON).content(LADDER_REQUEST))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code").value("tool-unavailable"))
+                .andExpect(jsonPath("$.field").value("toolCode"));
+
+        String returnRequest = "{\"agreementId\":\"" + agreementId + "\"}";
+        mockMvc.perform(post("/rental/return").contentType(MediaType.APPLICATION_JSON).content(returnRequest))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"serialNumber\":\"LADW-001\",\"checkoutDate\":\"07/02/20\",\"dueDate\":\"07/05/20\"}", true));
+        mockMvc.perform(post("/rental/return").contentType(MediaType.APPLICATION_JSON).content(returnRequest))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code").value("no-rental-to-return"))
+                .andExpect(jsonPath("$.field").value("agreementId"));
+        mockMvc.perform(post("/rental/return").contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("missing-agreement-id"));
+
+        //  the returned unit can be rented again
+        mockMvc.perform(post("/rental/checkout").contentType(MediaType.APPLICATION_JSON).content(LADDER_REQUEST))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void batchReturnsOneResultPerRequestInOrder() throws Exception {
+        String batch = "[" + LADDER_REQUEST + "," + UNKNOWN_TOOL_REQUEST + "," + LADDER_REQUEST + ",null]";
+        mockMvc.perform(post("/rental/checkout/batch").contentType(MediaType.APPLICATION_JSON).content(batch))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(4))
+                .andExpect(jsonPath("$[0].index").value(0))
+                .andExpect(jsonPath("$[0].agreement['Tool code']").value("LADW"))
+                .andExpect(jsonPath("$[0].error").doesNotExist())
+                .andExpect(jsonPath("$[1].index").value(1))
+                .andExpect(jsonPath("$[1].agreement").doesNotExist())
+                .andExpect(jsonPath("$[1].error.code").value("unknown-tool-code"))
+                .andExpect(jsonPath("$[1].error.field").value("toolCode"))
+                .andExpect(jsonPath("$[1].error.message").value("No tool found for tool code = NONE"))
+                //  the batch's first entry rented the only unit
+                .andExpect(jsonPath("$[2].error.code").value("tool-unavailable"))
+                .andExpect(jsonPath("$[3].error.code").value("invalid-request"));
+
+        mockMvc.perform(post("/rental/checkout/batch").contentType(MediaType.APPLICATION_JSON).content("[{\"toolCode\":"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("malformed-request"));
+    }
+
+    @Test
+    void streamWritesOneResultLinePerRequest() throws Exception {
+        String requests = LADDER_REQUEST + "\n" + UNKNOWN_TOOL_REQUEST + "\n" + "{\"toolCode\":\"LADW\",";
+        MvcResult result = mockMvc.perform(post("/rental/checkout/stream")
+                        .contentType(MediaType.APPLICATION_NDJSON).content(requests))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertEquals(3, lines.length);
+        JsonNode agreement = objectMapper.readTree(lines[0]);
+        assertEquals(0, agreement.get("index").asInt());
+        assertEquals("LADW", agreement.get("agreement").get("Tool code").asText());
+        JsonNode unknownTool = objectMapper.readTree(lines[1]);
+        assertEquals(1, unknownTool.get("index").asInt());
+        assertEquals("unknown-tool-code", unknownTool.get("error").get("code").asText());
+        //  malformed JSON ends the stream with a final error
+        JsonNode malformed = objectMapper.readTree(lines[2]);
+        assertEquals(2, malformed.get("index").asInt());
+        assertEquals("malformed-request", malformed.get("error").get("code").asText());
+
+        //  the stream only accepts NDJSON
+        mockMvc.perform(post("/rental/checkout/stream").contentType(MediaType.APPLICATION_JSON).content(LADDER_REQUEST))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+
+    @Test
+    void asStringCheckoutReturnsTheAgreementIdInAHeader() throws Exception {
+        MvcResult result = mockMvc.perform(post("/rental/checkout/as-string").contentType(MediaType.APPLICATION_JSON).content(LADDER_REQUEST))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/plain;charset=UTF-8"))
+                .andExpect(header().exists(RentalRequestController.AGREEMENT_ID_HEADER))
+                .andExpect(content().string(startsWith("\"")))
+                .andReturn();
+
+        //  the body is a JSON string literal holding the agreement's toString() output
+        String agreement = objectMapper.readValue(result.getResponse().getContentAsString(), String.class);
+        assertTrue(agreement.contains("Tool code: LADW"), agreement);
+        assertEquals(rentedAgreementId(),
+                result.getResponse().getHeader(RentalRequestController.AGREEMENT_ID_HEADER));
+
+        mockMvc.perform(post("/rental/checkout/as-string").contentType(MediaType.APPLICATION_JSON).content(UNKNOWN_TOOL_REQUEST))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist(RentalRequestController.AGREEMENT_ID_HEADER))
+                .andExpect(jsonPath("$.code").value("unknown-tool-code"));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.demo.controllers;
+
+import com.example.demo.json.serializers.RentalAgreementSerializer;
+import com.example.demo.store.rentals.BatchCheckoutService;
+import com.example.demo.store.rentals.CheckoutMetrics;
+import com.example.demo.store.rentals.CheckoutService;
+import com.example.demo.store.rentals.RentalAgreementJsonWriter;
+import com.example.demo.store.rentals.RentalRequest;
+import com.example.demo.store.rentals.StreamingCheckoutService;
+import com.example.demo.store.rentals.exceptions.RentalRequestException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Tests the RentalRequestExceptionHandler; i.e. every rejection reason is answered with its status, and a JSON error
+ * holding its code, the rejected field and the message, and an unreadable request body is a malformed-request.
+ *
+ * The services are mocked; the checkout is rejected with each reason in turn.
+ */
+@WebMvcTest(RentalRequestController.class)
+public class RentalRequestExceptionHandlerTest {
+    private static final String RENTAL_REQUEST =
+            "{\"toolCode\":\"LADW\",\"checkoutDate\":\"07/02/20\",\"numberOfRentalDays\":3,\"discount\":\"10\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private CheckoutService checkoutService;
+    @MockBean
+    private BatchCheckoutService batchCheckoutService;
+    @MockBean
+    private StreamingCheckoutService streamingCheckoutService;
+    @MockBean
+    private RentalAgreementSerializer rentalAgreementSerializer;
+    @MockBean
+    private RentalAgreementJsonWriter rentalAgreementJsonWriter;
+    @MockBean
+    private CheckoutMetrics checkoutMetrics;
+
+    @ParameterizedTest(name = "{0}")
+    @EnumSource(RentalRequestException.Reason.class)
+    void rejectionIsAnsweredWithTheStatusAndFieldOfItsReason(RentalRequestException.Reason reason) throws Exception {
+        RentalRequestException rejection = RentalRequestException.of(reason, "rejected");
+        Mockito.when(checkoutService.checkout(Mockito.any(RentalRequest.class))).thenThrow(rejection);
+
+        ResultActions response = mockMvc.perform(post("/rental/checkout").contentType(MediaType.APPLICATION_JSON).content(RENTAL_REQUEST))
+                .andExpect(status().is(reason.getStatus()))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.type").value("RentalRequestException"))
+                .andExpect(jsonPath("$.code").value(reason.getCode()));
+        if (reason.getField() == null) {
+            response.andExpect(jsonPath("$.field").doesNotExist());
+        } else {
+            response.andExpect(jsonPath("$.field").value(reason.getField()));
+        }
+        if (rejection.getMessage() == null) {
+            response.andExpect(jsonPath("$.message").doesNotExist());
+        } else {
+            response.andExpect(jsonPath("$.message").value(rejection.getMessage()));
+        }
+    }
+
+    @Test
+    void unreadableRequestIsMalformed() throws Exception {
+        mockMvc.perform(post("/rental/checkout").contentType(MediaType.APPLICATION_JSON).content("{\"toolCode\":"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"type\":\"RentalRequestException\",\"code\":\"malformed-request\","
+                        + "\"message\":\"Malformed rental request\"}", true));
+        mockMvc.perform(post("/rental/return").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("malformed-request"));
+        Mockito.verifyNoInteractions(checkoutService);
+    }
+}
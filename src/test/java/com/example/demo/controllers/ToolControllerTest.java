@@ -0,0 +1,209 @@
+package com.example.demo.controllers;
+
+import com.example.demo.entities.Tool;
+import com.example.demo.entities.ToolUnit;
+import com.example.demo.repository.ToolRepository;
+import com.example.demo.repository.ToolUnitRepository;
+import com.example.demo.services.ToolService;
+import com.example.demo.store.inventory.ToolInventory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Tests the ToolController listing and availability endpoints through the web layer; i.e. the keyset pagination
+ * parameters (and the rejection of invalid ones), the streamed listing, and the availability of a tool's units.
+ *
+ * The ToolService and ToolInventory are the real ones, over mocked repositories holding four tools and three units.
+ */
+@WebMvcTest(ToolController.class)
+@Import(ToolControllerTest.InventoryConfiguration.class)
+public class ToolControllerTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Tool> tools = List.of(
+            tool(1, "LADW", "Ladder", "Werner"),
+            tool(2, "CHNS", "Chainsaw", "Stihl"),
+            tool(3, "JAKR", "Jackhammer", "Ridgid"),
+            tool(4, "JAKD", "Jackhammer", "DeWalt"));
+    private final List<ToolUnit> toolUnits = List.of(unit("LADW", "LADW-001"), unit("LADW", "LADW-002"), unit("CHNS", "CHNS-001"));
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ToolInventory toolInventory;
+
+    @MockBean
+    private ToolRepository toolRepository;
+    @MockBean
+    private ToolUnitRepository toolUnitRepository;
+    @MockBean
+    private JdbcTemplate jdbcTemplate;
+
+    @TestConfiguration
+    static class InventoryConfiguration {
+        @Bean
+        ToolService toolService(ToolRepository toolRepository) {
+            return new ToolService(toolRepository);
+        }
+
+        @Bean
+        ToolInventory toolInventory(ToolUnitRepository toolUnitRepository, ToolService toolService, JdbcTemplate jdbcTemplate) {
+            return new ToolInventory(toolUnitRepository, toolService, jdbcTemplate);
+        }
+    }
+
+    @BeforeEach
+    void setup() {
+        //  the repository queries; the tools after the given id (or tool code), in id (or tool code) order
+        Mockito.when(toolRepository.findAll()).thenReturn(tools);
+        Mockito.when(toolRepository.findPageOrderById(Mockito.anyLong(), Mockito.any(Limit.class))).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            Limit limit = invocation.getArgument(1);
+            return tools.stream().filter(tool -> tool.getId() > afterId)
+                    .sorted(Comparator.comparing(Tool::getId)).limit(limit.max()).toList();
+        });
+        Mockito.when(toolRepository.findPageOrderByCode(Mockito.anyString(), Mockito.any(Limit.class))).thenAnswer(invocation -> {
+            String afterCode = invocation.getArgument(0);
+            Limit limit = invocation.getArgument(1);
+            return tools.stream().filter(tool -> tool.getTool_code().compareTo(afterCode) > 0)
+                    .sorted(Comparator.comparing(Tool::getTool_code)).limit(limit.max()).toList();
+        });
+        Mockito.when(toolRepository.streamAllOrderById()).thenAnswer(invocation -> tools.stream());
+
+        //  a fresh inventory (without reservations) for every test
+        toolInventory.loadUnits(toolUnits, tools);
+    }
+
+    @Test
+    void toolsArePagedByCursor() throws Exception {
+        mockMvc.perform(get("/tools"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(4))
+                .andExpect(jsonPath("$[0].tool_code").value("LADW"));
+
+        assertEquals(List.of("LADW", "CHNS", "JAKR", "JAKD"), listToolCodes("/tools?limit=2", 2));
+        assertEquals(List.of("CHNS", "JAKD", "JAKR", "LADW"), listToolCodes("/tools?limit=3&sort=code", 3));
+        assertEquals(List.of("LADW", "CHNS", "JAKR", "JAKD"), listToolCodes("/tools?sort=ID", 100));
+    }
+
+    @Test
+    void invalidPaginationParametersAreRejected() throws Exception {
+        mockMvc.perform(get("/tools?limit=0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("The limit must be from 1 to 1000: 0"));
+        mockMvc.perform(get("/tools?limit=1001"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/tools?sort=price"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Invalid sort order: price (expected id or code)"));
+        //  base64 of "not-a-cursor", and a token which is not base64 at all
+        mockMvc.perform(get("/tools?cursor=bm90LWEtY3Vyc29y"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Invalid cursor: bm90LWEtY3Vyc29y"));
+        mockMvc.perform(get("/tools?cursor=***"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Invalid cursor: ***"));
+        mockMvc.perform(get("/tools?limit=ten"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamedToolsMatchTheFullListing() throws Exception {
+        String streamed = mockMvc.perform(get("/tools/stream"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsString();
+        String listed = mockMvc.perform(get("/tools")).andReturn().getResponse().getContentAsString();
+
+        assertEquals(objectMapper.readTree(listed), objectMapper.readTree(streamed));
+    }
+
+    @Test
+    void availabilityListsTheRentalsOverlappingTheDates() throws Exception {
+        long checkoutEpochDay = LocalDate.of(2020, 7, 2).toEpochDay();
+        assertNotNull(toolInventory.reserve("LADW", checkoutEpochDay, checkoutEpochDay + 4));
+
+        mockMvc.perform(get("/tool/code/LADW/availability?from=07/01/20&to=07/03/20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.toolCode").value("LADW"))
+                .andExpect(jsonPath("$.from").value("07/01/20"))
+                .andExpect(jsonPath("$.to").value("07/03/20"))
+                .andExpect(jsonPath("$.numberOfUnits").value(2))
+                .andExpect(jsonPath("$.availableUnits").value(1))
+                .andExpect(jsonPath("$.available").value(true))
+                .andExpect(jsonPath("$.rentals.length()").value(1))
+                .andExpect(jsonPath("$.rentals[0].checkoutDate").value("07/02/20"))
+                .andExpect(jsonPath("$.rentals[0].dueDate").value("07/05/20"));
+        mockMvc.perform(get("/tool/code/LADW/availability?from=07/06/20&to=07/06/20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.availableUnits").value(2))
+                .andExpect(jsonPath("$.rentals.length()").value(0));
+    }
+
+    @Test
+    void availabilityOfAnUnknownToolOrInvalidDatesIsRejected() throws Exception {
+        mockMvc.perform(get("/tool/code/NONE/availability?from=07/01/20&to=07/03/20"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string("No units found for tool code: NONE"));
+        mockMvc.perform(get("/tool/code/LADW/availability?from=2020-07-01&to=07/03/20"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/tool/code/LADW/availability?from=07/03/20&to=07/01/20"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("The 'to' date must not be before the 'from' date: 07/03/20 - 07/01/20"));
+        mockMvc.perform(get("/tool/code/LADW/availability?from=07/01/20"))
+                .andExpect(status().isBadRequest());
+    }
+
+    //  Follows the nextCursor of each page to the last page (whose nextCursor is null); returns the tool codes listed
+    private List<String> listToolCodes(String url, int limit) throws Exception {
+        List<String> toolCodes = new ArrayList<>();
+        while (url != null) {
+            JsonNode page = objectMapper.readTree(mockMvc.perform(get(url))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            assertTrue(page.get("tools").size() <= limit, url);
+            page.get("tools").forEach(tool -> toolCodes.add(tool.get("tool_code").asText()));
+            url = page.get("nextCursor").isNull() ? null : "/tools?limit=" + limit + "&cursor=" + page.get("nextCursor").asText();
+        }
+        return toolCodes;
+    }
+
+    private static Tool tool(long id, String toolCode, String toolType, String brand) {
+        Tool tool = new Tool();
+        ReflectionTestUtils.setField(tool, "id", id);
+        tool.setTool_code(toolCode);
+        tool.setTool_type(toolType);
+        tool.setBrand(brand);
+        return tool;
+    }
+
+    private static ToolUnit unit(String toolCode, String serialNumber) {
+        ToolUnit toolUnit = new ToolUnit();
+        toolUnit.setToolCode(toolCode);
+        toolUnit.setSerialNumber(serialNumber);
+        return toolUnit;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.demo.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * A Hibernate StatementInspector which records the SQL statements prepared by the current thread; used to hold
+ * repository methods (and requests) to a statement budget, e.g. to catch N+1 selects of an association.
+ *
+ * Registered with the session factory by the hibernate.session_factory.statement_inspector property; see
+ * ToolRepositoryStatementCountTest.  Statements issued through JdbcTemplate (rather than Hibernate) are not counted.
+ */
+public class SqlStatementCounter implements StatementInspector {
+    public static final String PROPERTY =
+            "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.example.demo.repository.SqlStatementCounter";
+
+    private static final ThreadLocal<List<String>> statements = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        List<String> recorded = statements.get();
+        if (recorded != null) {
+            recorded.add(sql);
+        }
+        return sql;
+    }
+
+    //  Runs the action, and fails if it prepared more than budget SQL statements (listing the statements)
+    public static <T> T assertStatementBudget(String description, int budget, Supplier<T> action) {
+        List<String> recorded = new ArrayList<>();
+        statements.set(recorded);
+        T result;
+        try {
+            result = action.get();
+        } finally {
+            statements.remove();
+        }
+        if (recorded.size() > budget) {
+            fail(String.format("%s prepared %d SQL statements; the budget is %d:%n  %s",
+                    description, recorded.size(), budget, String.join(System.lineSeparator() + "  ", recorded)));
+        }
+        return result;
+    }
+}
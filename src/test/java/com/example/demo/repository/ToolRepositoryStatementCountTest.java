@@ -0,0 +1,93 @@
+package com.example.demo.repository;
+
+import com.example.demo.entities.Tool;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.example.demo.repository.SqlStatementCounter.assertStatementBudget;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Holds the ToolRepository finders, and the tool listing endpoints, to a budget of one SQL statement; i.e. each tool's
+ * RentalCost is fetched with the tool, rather than by an additional select per tool.  Also checks that the paginated
+ * and streamed listings return the same tools as the full listing.
+ */
+@SpringBootTest(properties = SqlStatementCounter.PROPERTY)
+@AutoConfigureMockMvc
+public class ToolRepositoryStatementCountTest {
+
+    @Autowired
+    private ToolRepository toolRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void findersFetchRentalCostsInOneStatement() {
+        List<Tool> tools = (List<Tool>) assertStatementBudget("findAll", 1, toolRepository::findAll);
+        assertEquals(4, tools.size());
+        tools.forEach(tool -> assertNotNull(tool.getRentalCosts(), tool.getTool_code()));
+
+        List<Tool> jackhammers = (List<Tool>) assertStatementBudget("findByType", 1,
+                () -> toolRepository.findByType("Jackhammer"));
+        assertEquals(2, jackhammers.size());
+        jackhammers.forEach(tool -> assertEquals(new BigDecimal("2.99"), tool.getRentalCosts().getDailyCharge()));
+
+        List<Tool> ladders = (List<Tool>) assertStatementBudget("findByCode", 1, () -> toolRepository.findByCode("LADW"));
+        assertEquals(new BigDecimal("1.99"), ladders.get(0).getRentalCosts().getDailyCharge());
+
+        Optional<Tool> chainsaw = assertStatementBudget("findByBrand", 1, () -> toolRepository.findByBrand("Stihl"));
+        assertEquals(new BigDecimal("1.49"), chainsaw.orElseThrow().getRentalCosts().getDailyCharge());
+    }
+
+    @Test
+    void toolListingEndpointsIssueOneStatement() {
+        assertStatementBudget("GET /tools", 1, () -> perform("/tools"));
+        assertStatementBudget("GET /tool/type/Jackhammer", 1, () -> perform("/tool/type/Jackhammer"));
+        assertStatementBudget("GET /tool/brand/Werner", 1, () -> perform("/tool/brand/Werner"));
+        assertStatementBudget("GET /tools?limit=2", 1, () -> perform("/tools?limit=2"));
+        assertStatementBudget("GET /tools?limit=2&sort=code", 1, () -> perform("/tools?limit=2&sort=code"));
+        assertStatementBudget("GET /tools/stream", 1, () -> perform("/tools/stream"));
+    }
+
+    @Test
+    void paginatedAndStreamedListingsMatchTheFullListing() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode allTools = objectMapper.readTree(perform("/tools").getResponse().getContentAsString());
+        assertEquals(4, allTools.size());
+
+        List<String> toolCodes = new ArrayList<>();
+        String url = "/tools?sort=code&limit=3";
+        while (url != null) {
+            JsonNode page = objectMapper.readTree(perform(url).getResponse().getContentAsString());
+            page.get("tools").forEach(tool -> toolCodes.add(tool.get("tool_code").asText()));
+            url = page.get("nextCursor").isNull() ? null : "/tools?limit=3&cursor=" + page.get("nextCursor").asText();
+        }
+        assertEquals(List.of("CHNS", "JAKD", "JAKR", "LADW"), toolCodes);
+
+        assertEquals(allTools, objectMapper.readTree(perform("/tools/stream").getResponse().getContentAsString()));
+        mockMvc.perform(get("/tools?limit=0")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/tools?cursor=bm90LWEtY3Vyc29y")).andExpect(status().isBadRequest());
+    }
+
+    private MvcResult perform(String url) {
+        try {
+            return mockMvc.perform(get(url)).andExpect(status().isOk()).andReturn();
+        } catch (Exception e) {
+            throw new AssertionError("GET " + url + " failed", e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.demo.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests SingleFlight; i.e. a call in flight is shared by concurrent callers of the same key (its result, or its
+ * exception), calls of other keys are not, and a key is forgotten once its call has completed.
+ */
+public class SingleFlightTest {
+
+    @Test
+    void concurrentCallersShareTheExceptionOfTheCallInFlight() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("Database unavailable");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("LADW", () -> {
+            started.countDown();
+            awaitQuietly(release);
+            throw failure;
+        }), executor);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(
+                () -> singleFlight.execute("LADW", () -> {
+                    throw new AssertionError("The call in flight was not shared");
+                }), executor);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (singleFlight.getCoalescedCount() < 1) {
+            assertTrue(System.nanoTime() < deadline, "Call was not coalesced");
+            Thread.sleep(1);
+        }
+        //  a call of another key is not held up by the call in flight
+        assertEquals("JAKR", singleFlight.execute("JAKR", () -> "JAKR"));
+        release.countDown();
+
+        ExecutionException leaderException = assertThrows(ExecutionException.class, () -> leader.get(10, TimeUnit.SECONDS));
+        ExecutionException followerException = assertThrows(ExecutionException.class, () -> follower.get(10, TimeUnit.SECONDS));
+        assertSame(failure, leaderException.getCause());
+        assertSame(failure, followerException.getCause());
+        assertEquals(2, singleFlight.getExecutedCount());
+        assertEquals(1, singleFlight.getCoalescedCount());
+        assertEquals(0, singleFlight.getInFlightCount());
+        executor.shutdown();
+    }
+
+    @Test
+    void keysAreForgottenOnceTheirCallHasCompleted() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals("LADW 1", singleFlight.execute("LADW", () -> "LADW " + calls.incrementAndGet()));
+        assertEquals("LADW 2", singleFlight.execute("LADW", () -> "LADW " + calls.incrementAndGet()));
+        assertEquals("null 3", singleFlight.execute(null, () -> "null " + calls.incrementAndGet()));
+        assertEquals(3, singleFlight.getExecutedCount());
+        assertEquals(0, singleFlight.getCoalescedCount());
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.RentalCost;
+import com.example.demo.entities.Tool;
+import com.example.demo.repository.ToolRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the ToolService catalog snapshot; i.e. tool code lookups are served from the snapshot once it has been
+ * loaded, tools added since the load are found, recently looked up unknown tool codes are answered without a repository
+ * lookup, and the hit/miss/reload counters are maintained;
+ * and that concurrent identical repository lookups are coalesced, before and after the catalog is loaded.
+ */
+public class ToolServiceTest {
+
+    @Test
+    void findByCodeIsServedFromTheCatalogSnapshot() {
+        ToolRepository mockToolRepository = Mockito.mock(ToolRepository.class);
+        ToolService toolService = new ToolService(mockToolRepository);
+
+        Tool ladder = newTool("LADW", "Ladder", "Werner");
+        Tool jackhammer = newTool("JAKR", "Jackhammer", "Ridgid");
+        Mockito.when(mockToolRepository.findAll()).thenReturn(List.of(ladder, jackhammer));
+        Mockito.when(mockToolRepository.findByCode(Mockito.anyString())).thenReturn(List.of());
+
+        //  Before the catalog is loaded every lookup is a miss, and is served by the repository
+        assertTrue(toolService.findByCode("LADW").isEmpty());
+        Mockito.verify(mockToolRepository, Mockito.times(1)).findByCode("LADW");
+
+        toolService.reloadCatalog();
+        assertEquals(List.of(ladder), toolService.findByCode("LADW"));
+        assertEquals(List.of(jackhammer), toolService.findByCode("JAKR"));
+        assertSame(ladder.getRentalCosts(), toolService.findByCode("LADW").get(0).getRentalCosts());
+        Mockito.verify(mockToolRepository, Mockito.times(1)).findByCode("LADW");
+        Mockito.verify(mockToolRepository, Mockito.never()).findByCode("JAKR");
+
+        //  An unknown tool code reaches the repository once, and is then remembered as unknown; one longer than the
+        //  tool_code column, and null, never reach it
+        assertTrue(toolService.findByCode("NONE").isEmpty());
+        assertTrue(toolService.findByCode("NONE").isEmpty());
+        assertTrue(toolService.findByCode("LADW".repeat(1000)).isEmpty());
+        assertTrue(toolService.findByCode(null).isEmpty());
+        Mockito.verify(mockToolRepository, Mockito.times(1)).findByCode("NONE");
+        Mockito.verify(mockToolRepository, Mockito.times(2)).findByCode(Mockito.any());
+
+        ToolCatalogStatistics statistics = toolService.getCatalogStatistics();
+        assertEquals(2, statistics.getNumberOfTools());
+        assertEquals(2, statistics.getNumberOfToolCodes());
+        assertEquals(1, statistics.getReloadCount());
+        assertEquals(3, statistics.getHitCount());
+        assertEquals(2, statistics.getMissCount());
+        assertEquals(3, statistics.getUnknownToolCodeCount());
+    }
+
+    @Test
+    void reloadCatalogReplacesTheSnapshot() {
+        ToolRepository mockToolRepository = Mockito.mock(ToolRepository.class);
+        ToolService toolService = new ToolService(mockToolRepository);
+
+        Tool chainsaw = newTool("CHNS", "Chainsaw", "Stihl");
+        Mockito.when(mockToolRepository.findAll()).thenReturn(List.of(chainsaw));
+        toolService.reloadCatalog();
+        assertEquals(List.of(chainsaw), toolService.findByCode("CHNS"));
+
+        Tool replacementChainsaw = newTool("CHNS", "Chainsaw", "Husqvarna");
+        Mockito.when(mockToolRepository.findAll()).thenReturn(List.of(replacementChainsaw));
+        toolService.reloadCatalog();
+        assertEquals(List.of(replacementChainsaw), toolService.findByCode("CHNS"));
+        assertEquals(2, toolService.getCatalogStatistics().getReloadCount());
+    }
+
+    @Test
+    void toolsAddedSinceTheLoadAreFoundWithoutAReload() {
+        ToolRepository mockToolRepository = Mockito.mock(ToolRepository.class);
+        ToolService toolService = new ToolService(mockToolRepository);
+
+        Tool ladder = newTool("LADW", "Ladder", "Werner");
+        Tool chainsaw = newTool("CHNS", "Chainsaw", "Stihl");
+        Mockito.when(mockToolRepository.findAll()).thenReturn(List.of(ladder));
+        Mockito.when(mockToolRepository.findByCode("CHNS")).thenReturn(List.of(), List.of(chainsaw));
+        toolService.reloadCatalog();
+
+        //  not yet added; remembered as unknown (until the TTL expires, or the catalog is reloaded)
+        assertTrue(toolService.findByCode("CHNS").isEmpty());
+        assertTrue(toolService.findByCode("CHNS").isEmpty());
+        Mockito.verify(mockToolRepository, Mockito.times(1)).findByCode("CHNS");
+        toolService.reloadCatalog();
+
+        //  added; found by the repository once, and then served from memory
+        assertEquals(List.of(chainsaw), toolService.findByCode("CHNS"));
+        assertEquals(List.of(chainsaw), toolService.findByCode("CHNS"));
+        Mockito.verify(mockToolRepository, Mockito.times(2)).findByCode("CHNS");
+
+        ToolCatalogStatistics statistics = toolService.getCatalogStatistics();
+        assertEquals(1, statistics.getHitCount());
+        assertEquals(2, statistics.getMissCount());
+        assertEquals(1, statistics.getUnknownToolCodeCount());
+
+        //  and from the snapshot once the catalog is reloaded
+        Mockito.when(mockToolRepository.findAll()).thenReturn(List.of(ladder, chainsaw));
+        toolService.reloadCatalog();
+        assertEquals(List.of(chainsaw), toolService.findByCode("CHNS"));
+        Mockito.verify(mockToolRepository, Mockito.times(2)).findByCode("CHNS");
+    }
+
+    @Test
+    void concurrentMissesForTheSameToolCodeShareOneRepositoryLookup() throws Exception {
+        ToolRepository mockToolRepository = Mockito.mock(ToolRepository.class);
+        ToolService toolService = new ToolService(mockToolRepository);
+
+        //  the repository lookup is held until every other lookup is waiting for it
+        Tool ladder = newTool("LADW", "Ladder", "Werner");
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(mockToolRepository.findByCode("LADW")).thenAnswer(invocation -> {
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return List.of(ladder);
+        });
+
+        int numberOfLookups = 8;
+        List<List<Tool>> results = concurrentLookups(toolService, "LADW", numberOfLookups, release);
+        assertEquals(List.of(ladder), results.get(0));
+        for (List<Tool> result : results) {
+            assertSame(results.get(0), result);
+        }
+        Mockito.verify(mockToolRepository, Mockito.times(1)).findByCode("LADW");
+
+        //  once the lookup has completed, the next miss queries the repository again
+        toolService.findByCode("LADW");
+        Mockito.verify(mockToolRepository, Mockito.times(2)).findByCode("LADW");
+
+        ToolCatalogStatistics statistics = toolService.getCatalogStatistics();
+        assertEquals(numberOfLookups + 1, statistics.getMissCount());
+        assertEquals(numberOfLookups - 1, statistics.getCoalescedLookupCount());
+    }
+
+    @Test
+    void concurrentMissesForAToolAddedSinceTheLoadShareOneRepositoryLookup() throws Exception {
+        ToolRepository mockToolRepository = Mockito.mock(ToolRepository.class);
+        ToolService toolService = new ToolService(mockToolRepository);
+
+        Mockito.when(mockToolRepository.findAll()).thenReturn(List.of(newTool("LADW", "Ladder", "Werner")));
+        toolService.reloadCatalog();
+
+        Tool chainsaw = newTool("CHNS", "Chainsaw", "Stihl");
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(mockToolRepository.findByCode("CHNS")).thenAnswer(invocation -> {
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return List.of(chainsaw);
+        });
+
+        int numberOfLookups = 8;
+        for (List<Tool> result : concurrentLookups(toolService, "CHNS", numberOfLookups, release)) {
+            assertEquals(List.of(chainsaw), result);
+        }
+        Mockito.verify(mockToolRepository, Mockito.times(1)).findByCode("CHNS");
+
+        //  once found, the tool is served from memory
+        assertEquals(List.of(chainsaw), toolService.findByCode("CHNS"));
+        Mockito.verify(mockToolRepository, Mockito.times(1)).findByCode("CHNS");
+
+        ToolCatalogStatistics statistics = toolService.getCatalogStatistics();
+        assertEquals(numberOfLookups, statistics.getMissCount());
+        assertEquals(numberOfLookups - 1, statistics.getCoalescedLookupCount());
+        assertEquals(1, statistics.getHitCount());
+    }
+
+    //  Looks the tool code up concurrently; the repository lookup (which waits for the latch) is released once every
+    //  other lookup is waiting for it.  Returns the results in order.
+    private static List<List<Tool>> concurrentLookups(ToolService toolService, String tool_code, int numberOfLookups,
+                                                      CountDownLatch release) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfLookups);
+        try {
+            List<Future<List<Tool>>> lookups = new ArrayList<>();
+            for (int i = 0; i < numberOfLookups; i++) {
+                lookups.add(executor.submit(() -> toolService.findByCode(tool_code)));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (toolService.getCatalogStatistics().getCoalescedLookupCount() < numberOfLookups - 1) {
+                assertTrue(System.nanoTime() < deadline, "Lookups were not coalesced");
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            List<List<Tool>> results = new ArrayList<>();
+            for (Future<List<Tool>> lookup : lookups) {
+                results.add(lookup.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void findPageReturnsACursorOnlyWhenThereAreMoreTools() {
+        ToolRepository mockToolRepository = Mockito.mock(ToolRepository.class);
+        ToolService toolService = new ToolService(mockToolRepository);
+
+        Tool chainsaw = newTool("CHNS", "Chainsaw", "Stihl");
+        Tool jackhammer = newTool("JAKD", "Jackhammer", "DeWalt");
+        Tool ladder = newTool("LADW", "Ladder", "Werner");
+        Mockito.when(mockToolRepository.findPageOrderByCode(Mockito.eq(""), Mockito.any(Limit.class))).thenReturn(List.of(chainsaw, jackhammer, ladder));
+        Mockito.when(mockToolRepository.findPageOrderByCode(Mockito.eq("JAKD"), Mockito.any(Limit.class))).thenReturn(List.of(ladder));
+
+        //  a page of two; the third tool is only read to find out that there is a next page
+        ToolPage first = toolService.findPage(ToolCatalogCursor.first(ToolCatalogCursor.Order.CODE), 2);
+        assertEquals(List.of(chainsaw, jackhammer), first.getTools());
+        assertNotNull(first.getNextCursor());
+
+        ToolPage second = toolService.findPage(ToolCatalogCursor.decode(first.getNextCursor()), 2);
+        assertEquals(List.of(ladder), second.getTools());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void cursorTokensRoundTrip() {
+        ToolCatalogCursor byId = ToolCatalogCursor.decode(ToolCatalogCursor.afterId(42).encode());
+        assertEquals(ToolCatalogCursor.Order.ID, byId.getOrder());
+        assertEquals(42, byId.getLastId());
+        assertEquals("aWQ6NDI", ToolCatalogCursor.afterId(42).encode());
+
+        ToolCatalogCursor byCode = ToolCatalogCursor.decode(ToolCatalogCursor.afterCode("LADW").encode());
+        assertEquals(ToolCatalogCursor.Order.CODE, byCode.getOrder());
+        assertEquals("LADW", byCode.getLastCode());
+
+        assertEquals(ToolCatalogCursor.Order.CODE, ToolCatalogCursor.Order.of("Code"));
+        assertThrows(IllegalArgumentException.class, () -> ToolCatalogCursor.Order.of("brand"));
+        assertThrows(IllegalArgumentException.class, () -> ToolCatalogCursor.decode("not a token!"));
+        assertThrows(IllegalArgumentException.class, () -> ToolCatalogCursor.decode("aWQ6eA"));      // id:x
+        assertThrows(IllegalArgumentException.class, () -> ToolCatalogCursor.decode("YnJhbmQ6eA"));  // brand:x
+    }
+
+    private static Tool newTool(String code, String type, String brand) {
+        RentalCost rentalCost = new RentalCost();
+        rentalCost.setToolType(type);
+        rentalCost.setDailyCharge(new BigDecimal("1.99"));
+        rentalCost.setWeekdayCharge(true);
+        rentalCost.setWeekendCharge(true);
+        rentalCost.setHolidayCharge(false);
+
+        Tool tool = new Tool();
+        tool.setTool_code(code);
+        tool.setTool_type(type);
+        tool.setBrand(brand);
+        tool.setRentalCost(rentalCost);
+        return tool;
+    }
+}
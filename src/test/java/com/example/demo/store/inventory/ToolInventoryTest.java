@@ -0,0 +1,216 @@
+package com.example.demo.store.inventory;
+
+import com.example.demo.entities.ToolUnit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the ToolInventory; i.e. a unit is never reserved twice for overlapping days (including under concurrent
+ * reservations), released (and returned) units can be reserved again, tool codes without units can never be reserved, and the
+ * overlapping reservations (availability) queries agree with a linear scan.
+ */
+public class ToolInventoryTest {
+
+    @Test
+    void unitsAreNotReservedForOverlappingDays() {
+        ToolInventory toolInventory = newInventory("JAKR", 2);
+
+        Reservation first = toolInventory.reserve("JAKR", 100, 110);
+        Reservation second = toolInventory.reserve("JAKR", 105, 106);
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNotEquals(first.getSerialNumber(), second.getSerialNumber());
+
+        //  both units are reserved on day 105; but only the first unit is reserved on day 100
+        assertNull(toolInventory.reserve("JAKR", 95, 106));
+        assertEquals(1, toolInventory.countAvailableUnits("JAKR", 100, 101));
+        assertEquals(0, toolInventory.countAvailableUnits("JAKR", 105, 106));
+
+        //  the end day is exclusive; so reservations may abut
+        assertNotNull(toolInventory.reserve("JAKR", 110, 120));
+        assertNotNull(toolInventory.reserve("JAKR", 90, 100));
+        assertEquals(0, toolInventory.countAvailableUnits("JAKR", 90, 120));
+    }
+
+    @Test
+    void releasedUnitCanBeReservedAgain() {
+        ToolInventory toolInventory = newInventory("LADW", 1);
+
+        Reservation reservation = toolInventory.reserve("LADW", 200, 203);
+        assertNotNull(reservation);
+        assertNull(toolInventory.reserve("LADW", 202, 204));
+
+        assertTrue(toolInventory.release(reservation));
+        assertFalse(toolInventory.release(reservation));
+        assertNotNull(toolInventory.reserve("LADW", 202, 204));
+    }
+
+    //  A return gives back exactly the reservation of the given agreement id, and only once
+    @Test
+    void returnedUnitsCanBeReservedAgain() {
+        ToolInventory toolInventory = newInventory("JAKR", 2);
+
+        Reservation first = toolInventory.reserve("JAKR", 300, 304);
+        Reservation second = toolInventory.reserve("JAKR", 300, 304);
+        assertNull(toolInventory.reserve("JAKR", 300, 304));
+        assertNotNull(first.getAgreementId());
+        assertNotEquals(first.getAgreementId(), second.getAgreementId());
+        assertNull(toolInventory.returnRental("no-such-agreement"));
+        assertNull(toolInventory.returnRental(null));
+
+        assertSame(second, toolInventory.returnRental(second.getAgreementId()));
+        assertEquals(1, toolInventory.countAvailableUnits("JAKR", 300, 304));
+        assertEquals(List.of(first), toolInventory.findOverlappingReservations("JAKR", 300, 304));
+        assertNull(toolInventory.returnRental(second.getAgreementId()));
+
+        //  a released reservation can no longer be returned
+        assertTrue(toolInventory.release(first));
+        assertNull(toolInventory.returnRental(first.getAgreementId()));
+        assertEquals(2, toolInventory.countAvailableUnits("JAKR", 300, 304));
+
+        assertNotNull(ToolInventory.UNTRACKED.returnRental("any-agreement"));
+    }
+
+    @Test
+    void toolCodeWithoutUnitsIsNeverReserved() {
+        ToolInventory toolInventory = newInventory("JAKR", 2);
+
+        assertEquals(0, toolInventory.getNumberOfUnits("CHNS"));
+        assertNull(toolInventory.reserve("CHNS", 100, 101));
+        assertThrows(IllegalArgumentException.class, () -> toolInventory.reserve("JAKR", 100, 100));
+    }
+
+    @Test
+    void untrackedInventoryReservesNothing() {
+        Reservation reservation = ToolInventory.UNTRACKED.reserve("JAKR", 100, 101);
+        assertNotNull(reservation);
+        assertNull(reservation.getSerialNumber());
+        assertNotNull(ToolInventory.UNTRACKED.reserve("JAKR", 100, 101));
+        assertFalse(ToolInventory.UNTRACKED.release(reservation));
+    }
+
+    //  Many threads race to reserve overlapping days; no unit may ever hold overlapping reservations.
+    @Test
+    void concurrentReservationsNeverDoubleBookAUnit() throws InterruptedException {
+        int numberOfUnits = 4;
+        int numberOfThreads = 16;
+        int reservationsPerThread = 500;
+        ToolInventory toolInventory = newInventory("CHNS", numberOfUnits);
+
+        ConcurrentLinkedQueue<Reservation> reservations = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        for (int thread = 0; thread < numberOfThreads; thread++) {
+            int seed = thread;
+            executor.submit(() -> {
+                start.await();
+                for (int attempt = 0; attempt < reservationsPerThread; attempt++) {
+                    long firstEpochDay = (seed * 7L + attempt * 3L) % 1000;
+                    Reservation reservation = toolInventory.reserve("CHNS", firstEpochDay, firstEpochDay + 1 + attempt % 5);
+                    if (reservation != null) {
+                        reservations.add(reservation);
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        //  no two reservations of the same unit overlap
+        List<Reservation> all = new ArrayList<>(reservations);
+        for (int i = 0; i < all.size(); i++) {
+            for (int j = i + 1; j < all.size(); j++) {
+                Reservation a = all.get(i);
+                Reservation b = all.get(j);
+                if (a.getSerialNumber().equals(b.getSerialNumber())) {
+                    assertTrue(a.getEndEpochDay() <= b.getFirstEpochDay() || b.getEndEpochDay() <= a.getFirstEpochDay(),
+                            "unit " + a.getSerialNumber() + " is double booked");
+                }
+            }
+        }
+
+        //  every unit has been reserved; i.e. the reservations were spread across the units
+        assertEquals(numberOfUnits, all.stream().map(Reservation::getSerialNumber).distinct().count());
+    }
+
+    //  The overlap query (binary search of each unit's sorted reservations) must return exactly the reservations a
+    //  linear scan of every reservation finds, in the same order.
+    @Test
+    void overlappingReservationsMatchALinearScan() {
+        ToolInventory toolInventory = newInventory("LADW", 3);
+        List<Reservation> reserved = new ArrayList<>();
+        Random random = new Random(42);
+        for (int attempt = 0; attempt < 2_000; attempt++) {
+            long firstEpochDay = random.nextInt(5_000);
+            Reservation reservation = toolInventory.reserve("LADW", firstEpochDay, firstEpochDay + 1 + random.nextInt(14));
+            if (reservation != null) {
+                reserved.add(reservation);
+            }
+        }
+
+        for (int query = 0; query < 1_000; query++) {
+            long firstEpochDay = random.nextInt(5_100) - 50;
+            long endEpochDay = firstEpochDay + 1 + random.nextInt(60);
+
+            List<Reservation> expected = reserved.stream()
+                    .filter(r -> r.getFirstEpochDay() < endEpochDay && r.getEndEpochDay() > firstEpochDay)
+                    .sorted(Comparator.comparing(Reservation::getSerialNumber)
+                            .thenComparingLong(Reservation::getFirstEpochDay))
+                    .toList();
+            assertEquals(expected, toolInventory.findOverlappingReservations("LADW", firstEpochDay, endEpochDay));
+
+            ToolAvailability availability = toolInventory.getAvailability("LADW", firstEpochDay, endEpochDay);
+            long busyUnits = expected.stream().map(Reservation::getSerialNumber).distinct().count();
+            assertEquals(3 - busyUnits, availability.getAvailableUnits());
+            assertEquals(busyUnits < 3, availability.isAvailable());
+        }
+    }
+
+    //  Stored reservations are restored onto their recorded unit; or onto any free unit if the unit is not known
+    @Test
+    void storedReservationsAreRestored() {
+        ToolInventory toolInventory = newInventory("JAKD", 2);
+
+        Reservation restored = toolInventory.restoreReservation("agreement-1", "JAKD", "JAKD-002", 100, 105);
+        assertNotNull(restored);
+        assertEquals("JAKD-002", restored.getSerialNumber());
+        assertNull(toolInventory.restoreReservation("agreement-2", "JAKD", "JAKD-002", 104, 106));
+
+        Reservation unknownUnit = toolInventory.restoreReservation("agreement-3", "JAKD", null, 104, 106);
+        assertNotNull(unknownUnit);
+        assertEquals("JAKD-001", unknownUnit.getSerialNumber());
+
+        assertEquals(List.of(unknownUnit, restored), toolInventory.findOverlappingReservations("JAKD", 104, 105));
+        assertFalse(toolInventory.getAvailability("JAKD", 104, 105).isAvailable());
+
+        //  a restored reservation is returned by its stored agreement id
+        assertSame(restored, toolInventory.returnRental("agreement-1"));
+        assertNull(toolInventory.returnRental("agreement-2"));
+    }
+
+    static ToolInventory newInventory(String toolCode, int numberOfUnits) {
+        List<ToolUnit> toolUnits = new ArrayList<>();
+        for (int unit = 1; unit <= numberOfUnits; unit++) {
+            ToolUnit toolUnit = new ToolUnit();
+            toolUnit.setToolCode(toolCode);
+            toolUnit.setSerialNumber(String.format("%s-%03d", toolCode, unit));
+            toolUnits.add(toolUnit);
+        }
+        ToolInventory toolInventory = new ToolInventory(null, null, null);
+        toolInventory.loadUnits(toolUnits);
+        return toolInventory;
+    }
+}
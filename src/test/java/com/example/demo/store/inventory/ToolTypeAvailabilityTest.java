@@ -0,0 +1,161 @@
+package com.example.demo.store.inventory;
+
+import com.example.demo.entities.Tool;
+import com.example.demo.entities.ToolUnit;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the ToolTypeAvailability counts; i.e. the min/max available units agree with a per-day count over random rentals
+ * and returns (including concurrent ones), and the counts follow the ToolInventory's reservations, releases and returns
+ * across the tool codes of a type.
+ */
+public class ToolTypeAvailabilityTest {
+
+    @Test
+    void minAndMaxAvailableUnitsMatchPerDayCounts() {
+        int numberOfUnits = 8;
+        int numberOfDays = 365;
+        long firstEpochDay = 19_000;
+        ToolTypeAvailability toolTypeAvailability = new ToolTypeAvailability("Ladder", numberOfUnits, firstEpochDay, numberOfDays);
+        int[] rented = new int[numberOfDays];
+        List<long[]> rentals = new ArrayList<>();
+        Random random = new Random(14);
+
+        for (int step = 0; step < 2_000; step++) {
+            if (!rentals.isEmpty() && random.nextInt(3) == 0) {
+                long[] rental = rentals.remove(random.nextInt(rentals.size()));
+                toolTypeAvailability.giveBack(rental[0], rental[1]);
+                for (long day = rental[0]; day < rental[1]; day++) {
+                    rented[(int) (day - firstEpochDay)]--;
+                }
+            } else {
+                long first = firstEpochDay + random.nextInt(numberOfDays);
+                long end = Math.min(first + 1 + random.nextInt(30), firstEpochDay + numberOfDays);
+                toolTypeAvailability.rent(first, end);
+                for (long day = first; day < end; day++) {
+                    rented[(int) (day - firstEpochDay)]++;
+                }
+                rentals.add(new long[]{first, end});
+            }
+
+            long first = firstEpochDay + random.nextInt(numberOfDays);
+            long end = first + 1 + random.nextInt((int) (firstEpochDay + numberOfDays - first));
+            int minRented = Integer.MAX_VALUE;
+            int maxRented = Integer.MIN_VALUE;
+            for (long day = first; day < end; day++) {
+                minRented = Math.min(minRented, rented[(int) (day - firstEpochDay)]);
+                maxRented = Math.max(maxRented, rented[(int) (day - firstEpochDay)]);
+            }
+            assertEquals(numberOfUnits - maxRented, toolTypeAvailability.minAvailableUnits(first, end));
+            assertEquals(numberOfUnits - minRented, toolTypeAvailability.maxAvailableUnits(first, end));
+        }
+    }
+
+    @Test
+    void rangesOutsideTheWindowAreClippedOrRejected() {
+        ToolTypeAvailability toolTypeAvailability = new ToolTypeAvailability("Chainsaw", 3, 100, 10);
+
+        //  days 95 - 99 are not counted
+        toolTypeAvailability.rent(95, 102);
+        assertEquals(2, toolTypeAvailability.availableUnits(100));
+        assertEquals(3, toolTypeAvailability.availableUnits(102));
+        assertEquals(2, toolTypeAvailability.minAvailableUnits(90, 105));
+        assertEquals(3, toolTypeAvailability.maxAvailableUnits(90, 105));
+
+        toolTypeAvailability.giveBack(95, 102);
+        assertEquals(3, toolTypeAvailability.minAvailableUnits(100, 110));
+        assertThrows(IllegalArgumentException.class, () -> toolTypeAvailability.minAvailableUnits(110, 120));
+    }
+
+    @Test
+    void countsFollowInventoryReservationsAcrossToolCodes() {
+        List<ToolUnit> toolUnits = List.of(unit("JAKD", "JAKD-001"), unit("JAKR", "JAKR-001"), unit("JAKR", "JAKR-002"),
+                unit("LADW", "LADW-001"));
+        List<Tool> tools = List.of(tool("JAKD", "Jackhammer"), tool("JAKR", "Jackhammer"), tool("LADW", "Ladder"));
+        ToolInventory toolInventory = new ToolInventory(null, null, null);
+        toolInventory.loadUnits(toolUnits, tools);
+        long day = LocalDate.of(2024, 7, 1).toEpochDay();
+
+        Reservation jakd = toolInventory.reserve("JAKD", day, day + 5);
+        Reservation jakr = toolInventory.reserve("JAKR", day + 3, day + 8);
+        assertNotNull(jakd);
+        assertNotNull(jakr);
+
+        ToolTypeAvailabilityRange jackhammers = toolInventory.getToolTypeAvailability("Jackhammer", day, day + 10);
+        assertEquals(3, jackhammers.getNumberOfUnits());
+        assertEquals(1, jackhammers.getMinAvailableUnits());
+        assertEquals(3, jackhammers.getMaxAvailableUnits());
+        assertEquals(1, toolInventory.getToolTypeAvailability("Ladder", day, day + 10).getMaxAvailableUnits());
+
+        assertTrue(toolInventory.release(jakd));
+        assertEquals(2, toolInventory.getToolTypeAvailability("Jackhammer", day, day + 10).getMinAvailableUnits());
+        assertNull(toolInventory.getToolTypeAvailability("Chainsaw", day, day + 10));
+
+        assertSame(jakr, toolInventory.returnRental(jakr.getAgreementId()));
+        assertEquals(3, toolInventory.getToolTypeAvailability("Jackhammer", day, day + 10).getMinAvailableUnits());
+    }
+
+    //  Concurrent rentals and returns (each thread returns every rental it made) leave no day rented; and every query
+    //  made meanwhile sees a consistent snapshot, i.e. never more units rented than were ever rented at once
+    @Test
+    void concurrentUpdatesAreNotLost() throws Exception {
+        int numberOfThreads = 8;
+        int rentalsPerThread = 2_000;
+        ToolTypeAvailability toolTypeAvailability = new ToolTypeAvailability("Ladder", numberOfThreads, 0, 1_000);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        try {
+            List<Future<?>> threads = new ArrayList<>();
+            for (int thread = 0; thread < numberOfThreads; thread++) {
+                long seed = thread;
+                threads.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    start.await();
+                    for (int rental = 0; rental < rentalsPerThread; rental++) {
+                        long first = random.nextInt(990);
+                        long end = first + 1 + random.nextInt(10);
+                        toolTypeAvailability.rent(first, end);
+                        //  each thread has at most one rental out at a time
+                        assertTrue(toolTypeAvailability.minAvailableUnits(0, 1_000) >= 0);
+                        toolTypeAvailability.giveBack(first, end);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> thread : threads) {
+                thread.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(numberOfThreads, toolTypeAvailability.minAvailableUnits(0, 1_000));
+        assertEquals(numberOfThreads, toolTypeAvailability.maxAvailableUnits(0, 1_000));
+    }
+
+    private static ToolUnit unit(String toolCode, String serialNumber) {
+        ToolUnit toolUnit = new ToolUnit();
+        toolUnit.setToolCode(toolCode);
+        toolUnit.setSerialNumber(serialNumber);
+        return toolUnit;
+    }
+
+    private static Tool tool(String toolCode, String toolType) {
+        Tool tool = new Tool();
+        tool.setTool_code(toolCode);
+        tool.setTool_type(toolType);
+        return tool;
+    }
+}
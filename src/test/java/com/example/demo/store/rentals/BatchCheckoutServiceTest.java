@@ -0,0 +1,127 @@
+package com.example.demo.store.rentals;
+
+import com.example.demo.data.ScenarioRequest;
+import com.example.demo.services.ToolService;
+import com.example.demo.store.inventory.ToolInventory;
+import com.example.demo.store.rentals.exceptions.RentalRequestException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the BatchCheckoutService; i.e. results are returned in the original order, invalid entries produce errors
+ * without failing the batch, and each distinct tool code is looked up only once per batch.
+ */
+public class BatchCheckoutServiceTest extends RentalDemoTestBase {
+    static ToolService mockToolService = Mockito.mock(ToolService.class);
+    static ExecutorService executor = Executors.newFixedThreadPool(4);
+    static BatchCheckoutService batchCheckoutService = new BatchCheckoutService(mockToolService, executor);
+
+    @BeforeAll
+    static void setup() throws IOException {
+        RentalDemoTestBase.setupTestData();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void batchResultsMatchIndividualScenarioResultsInOrder() throws RentalRequestException {
+        Mockito.reset(mockToolService);
+        Mockito.when(mockToolService.findByCode(Mockito.anyString())).thenAnswer(invocation -> {
+            String toolCode = invocation.getArgument(0);
+            return demoTestData.getTools().stream()
+                    .filter(tool -> tool.getTool_code().equals(toolCode))
+                    .toList();
+        });
+
+        //  Repeat the scenarios enough times to span several chunks, and include an entry with an unknown tool code,
+        //  a non-numeric discount, and a null entry.
+        List<RentalRequest> rentalRequests = new ArrayList<>();
+        List<BigDecimal> expectedFinalCharges = new ArrayList<>();
+        for (int repeat = 0; repeat < 20; repeat++) {
+            for (ScenarioRequest scenario : demoTestData.getScenarios()) {
+                rentalRequests.add(scenario.getRentalRequest());
+                expectedFinalCharges.add(scenario.getExpectedFinalCharge());
+            }
+        }
+        rentalRequests.add(new RentalRequest().setToolCode("NONE").setCheckoutDate("07/02/20").setNumberOfRentalDays(3).setDiscount("10"));
+        expectedFinalCharges.add(BigDecimal.ONE.negate());
+        rentalRequests.add(new RentalRequest().setToolCode("LADW").setCheckoutDate("07/02/20").setNumberOfRentalDays(3).setDiscount("abc"));
+        expectedFinalCharges.add(BigDecimal.ONE.negate());
+        rentalRequests.add(null);
+        expectedFinalCharges.add(BigDecimal.ONE.negate());
+
+        List<BatchCheckoutResult> results = batchCheckoutService.checkout(rentalRequests);
+        assertEquals(rentalRequests.size(), results.size());
+
+        for (int index = 0; index < results.size(); index++) {
+            BatchCheckoutResult result = results.get(index);
+            assertEquals(index, result.getIndex());
+            if (expectedFinalCharges.get(index).compareTo(BigDecimal.ZERO) < 0) {
+                assertFalse(result.isSuccess(), "entry " + index);
+                assertNull(result.getAgreement());
+                assertNotNull(result.getError().getMessage());
+            } else {
+                assertTrue(result.isSuccess(), "entry " + index);
+                assertEquals(expectedFinalCharges.get(index), result.getAgreement().getFinalCharge());
+                assertEquals(rentalRequests.get(index).getToolCode(), result.getAgreement().getToolCode());
+            }
+        }
+
+        //  Each distinct tool code is looked up exactly once
+        long distinctToolCodes = rentalRequests.stream()
+                .filter(rentalRequest -> rentalRequest != null)
+                .map(RentalRequest::getToolCode)
+                .distinct()
+                .count();
+        Mockito.verify(mockToolService, Mockito.times((int) distinctToolCodes)).findByCode(Mockito.anyString());
+        Mockito.verify(mockToolService, Mockito.times(1)).findByCode("JAKR");
+    }
+
+    //  An unexpected failure is reported as a fixed internal error; neither its class nor its message is returned
+    @Test
+    void unexpectedFailuresAreInternalErrors() throws RentalRequestException {
+        Mockito.reset(mockToolService);
+        Mockito.when(mockToolService.findByCode("LADW")).thenReturn(demoTestData.getTools().stream()
+                .filter(tool -> tool.getTool_code().equals("LADW"))
+                .toList());
+        RentalAgreementRecorder failingRecorder = rentalAgreement -> {
+            throw new IllegalStateException("connection to jdbc:h2:mem:demodb lost");
+        };
+        BatchCheckoutService failingBatchCheckoutService = new BatchCheckoutService(mockToolService, executor,
+                failingRecorder, ToolInventory.UNTRACKED);
+
+        List<BatchCheckoutResult> results = failingBatchCheckoutService.checkout(List.of(
+                new RentalRequest().setToolCode("LADW").setCheckoutDate("07/02/20").setNumberOfRentalDays(3).setDiscount("10")));
+        BatchCheckoutResult.Error error = results.get(0).getError();
+        assertEquals("InternalError", error.getType());
+        assertEquals("internal-error", error.getCode());
+        assertNull(error.getField());
+        assertNull(error.getMessage());
+    }
+
+    @Test
+    void emptyAndOversizedBatches() throws RentalRequestException {
+        assertTrue(batchCheckoutService.checkout(List.of()).isEmpty());
+        assertTrue(batchCheckoutService.checkout(null).isEmpty());
+
+        List<RentalRequest> oversizedBatch = new ArrayList<>();
+        for (int i = 0; i <= BatchCheckoutService.MAX_BATCH_SIZE; i++) {
+            oversizedBatch.add(new RentalRequest());
+        }
+        assertThrows(RentalRequestException.class, () -> batchCheckoutService.checkout(oversizedBatch));
+    }
+}
@@ -2,13 +2,18 @@ package com.example.demo.store.rentals;
 
 import com.example.demo.entities.RentalCost;
 import com.example.demo.entities.Tool;
+import com.example.demo.entities.ToolUnit;
 import com.example.demo.services.ToolService;
+import com.example.demo.store.inventory.Reservation;
+import com.example.demo.store.inventory.ToolInventory;
 import com.example.demo.store.rentals.exceptions.RentalRequestException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -87,4 +92,194 @@ public class CheckoutServiceTest {
         rentalRequest.setToolCode(null);
         assertThrows(RentalRequestException.class, () -> checkoutService.checkout(rentalRequest));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testRejectedCheckoutsAreCountedByReason() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CheckoutService instrumentedCheckoutService = new CheckoutService(mockToolService, new CheckoutMetrics(meterRegistry));
+
+        // when ToolService is called to find a tool by code, return an empty list; i.e. an unknown tool code.
+        Mockito.when(mockToolService.findByCode(Mockito.anyString())).thenReturn(new ArrayList<>());
+
+        RentalRequest unknownToolCodeRequest = new RentalRequest()
+                .setToolCode("unknown_tool_code")
+                .setCheckoutDate("09/01/21")
+                .setNumberOfRentalDays(5)
+                .setDiscount("10");
+        RentalRequestException unknownToolCode = assertThrows(RentalRequestException.class,
+                () -> instrumentedCheckoutService.checkout(unknownToolCodeRequest));
+        assertEquals(RentalRequestException.Reason.UNKNOWN_TOOL_CODE, unknownToolCode.getReason());
+
+        RentalRequest invalidRentalDaysRequest = new RentalRequest()
+                .setToolCode("unknown_tool_code")
+                .setCheckoutDate("09/01/21")
+                .setNumberOfRentalDays(0)
+                .setDiscount("10");
+        RentalRequestException invalidRentalDays = assertThrows(RentalRequestException.class,
+                () -> instrumentedCheckoutService.checkout(invalidRentalDaysRequest));
+        assertEquals(RentalRequestException.Reason.INVALID_RENTAL_DAYS, invalidRentalDays.getReason());
+
+        assertEquals(2.0, meterRegistry.get("rental.checkout.requests").tag("outcome", "rejected").counter().count());
+        assertEquals(0.0, meterRegistry.get("rental.checkout.requests").tag("outcome", "success").counter().count());
+        assertEquals(1.0, meterRegistry.get("rental.checkout.rejected").tag("reason", "UNKNOWN_TOOL_CODE").counter().count());
+        assertEquals(1.0, meterRegistry.get("rental.checkout.rejected").tag("reason", "INVALID_RENTAL_DAYS").counter().count());
+
+        //  only the request with a valid number of rental days got past validation (to the tool lookup)
+        assertEquals(1L, meterRegistry.get("rental.checkout.stage").tag("stage", "validation").timer().count());
+        assertEquals(0L, meterRegistry.get("rental.checkout.stage").tag("stage", "tool-lookup").timer().count());
+        assertEquals(0L, meterRegistry.get("rental.checkout").timer().count());
+    }
+
+    //  A rental of more than MAX_RENTAL_DAYS is rejected before the tool is looked up (let alone priced or reserved)
+    @Test
+    void testRentalDaysAreLimited() throws RentalRequestException {
+        Tool tool = RentalQuoteCacheTest.tool("Ladder", "1.99", true, true, false);
+        ToolService toolService = Mockito.mock(ToolService.class);
+        Mockito.when(toolService.findByCode(tool.getTool_code())).thenReturn(List.of(tool));
+        CheckoutService limitedCheckoutService = new CheckoutService(toolService);
+
+        for (int rentalDays : new int[] {RentalRequest.MAX_RENTAL_DAYS + 1, 2_000_000_000, Integer.MAX_VALUE}) {
+            RentalRequest rentalRequest = new RentalRequest()
+                    .setToolCode(tool.getTool_code())
+                    .setCheckoutDate("07/02/20")
+                    .setNumberOfRentalDays(rentalDays)
+                    .setDiscount("10");
+            RentalRequestException tooManyDays = assertThrows(RentalRequestException.class,
+                    () -> limitedCheckoutService.checkout(rentalRequest));
+            assertEquals(RentalRequestException.Reason.TOO_MANY_RENTAL_DAYS, tooManyDays.getReason());
+            assertEquals(400, tooManyDays.getReason().getStatus());
+            assertEquals("numberOfRentalDays", tooManyDays.getReason().getField());
+            assertEquals("Rental days must be at most 1826! Given number of days = " + rentalDays, tooManyDays.getMessage());
+        }
+        Mockito.verifyNoInteractions(toolService);
+
+        RentalAgreement longestRental = limitedCheckoutService.checkout(new RentalRequest()
+                .setToolCode(tool.getTool_code())
+                .setCheckoutDate("07/02/20")
+                .setNumberOfRentalDays(RentalRequest.MAX_RENTAL_DAYS)
+                .setDiscount("10"));
+        assertEquals(RentalRequest.MAX_RENTAL_DAYS, longestRental.getRequestedRentalDays());
+    }
+
+    @Test
+    void testRejectionsAreStacklessWithErrorCodes() {
+        // A non-numeric discount is rejected as an invalid discount (rather than escaping as a NumberFormatException)
+        RentalRequest rentalRequest = new RentalRequest()
+                .setToolCode("LADW")
+                .setCheckoutDate("07/02/20")
+                .setNumberOfRentalDays(5)
+                .setDiscount("abc");
+        RentalRequestException invalidDiscount = assertThrows(RentalRequestException.class, () -> checkoutService.checkout(rentalRequest));
+        assertEquals(RentalRequestException.Reason.INVALID_DISCOUNT, invalidDiscount.getReason());
+        assertEquals("invalid-discount", invalidDiscount.getReason().getCode());
+        assertEquals("discount", invalidDiscount.getReason().getField());
+        assertEquals("abc", invalidDiscount.getRejectedValue());
+        assertEquals("Discount percent must be between 0 and 100! Given discount percent = abc", invalidDiscount.getMessage());
+        assertEquals(0, invalidDiscount.getStackTrace().length);
+
+        BatchCheckoutResult.Error error = BatchCheckoutResult.Error.of(invalidDiscount);
+        assertEquals("invalid-discount", error.getCode());
+        assertEquals("discount", error.getField());
+        assertEquals(invalidDiscount.getMessage(), error.getMessage());
+
+        RentalRequestException invalidDate = assertThrows(RentalRequestException.class,
+                () -> RentalDateManager.getInstance().stringToLocalDate("2020-07-02"));
+        assertEquals(RentalRequestException.Reason.INVALID_CHECKOUT_DATE, invalidDate.getReason());
+        assertEquals(0, invalidDate.getStackTrace().length);
+        assertEquals(404, RentalRequestException.Reason.UNKNOWN_TOOL_CODE.getStatus());
+    }
+
+    @Test
+    void testReturnedUnitsCanBeRentedAgain() throws RentalRequestException {
+        Tool tool = RentalQuoteCacheTest.tool("Ladder", "1.99", true, true, false);
+        ToolService toolService = Mockito.mock(ToolService.class);
+        Mockito.when(toolService.findByCode(tool.getTool_code())).thenReturn(List.of(tool));
+        ToolUnit toolUnit = new ToolUnit();
+        toolUnit.setToolCode(tool.getTool_code());
+        toolUnit.setSerialNumber("TEST-001");
+        ToolInventory toolInventory = new ToolInventory(null, null, null);
+        toolInventory.loadUnits(List.of(toolUnit));
+        RentalQuoteCache rentalQuoteCache = new RentalQuoteCache(100, null);
+        CheckoutService trackedCheckoutService = new CheckoutService(toolService, CheckoutMetrics.NOOP,
+                RentalAgreementRecorder.NOOP, toolInventory, rentalQuoteCache);
+
+        RentalRequest rentalRequest = new RentalRequest()
+                .setToolCode(tool.getTool_code())
+                .setCheckoutDate("07/02/20")
+                .setNumberOfRentalDays(3)
+                .setDiscount("10");
+        RentalAgreement rented = trackedCheckoutService.checkout(rentalRequest);
+
+        // The only unit is rented; the repeated checkout is still quoted (from the cache) before it is rejected
+        RentalRequestException unavailable = assertThrows(RentalRequestException.class, () -> trackedCheckoutService.checkout(rentalRequest));
+        assertEquals(RentalRequestException.Reason.TOOL_UNAVAILABLE, unavailable.getReason());
+        assertEquals(1, rentalQuoteCache.getHits());
+
+        // The rental is returned by its agreement id (and only once); not by its tool code and days
+        RentalRequestException missingId = assertThrows(RentalRequestException.class,
+                () -> trackedCheckoutService.returnRental(new RentalReturnRequest()));
+        assertEquals(RentalRequestException.Reason.MISSING_AGREEMENT_ID, missingId.getReason());
+        RentalReturnRequest returnRequest = new RentalReturnRequest().setAgreementId(rented.getAgreementId());
+        Reservation returned = trackedCheckoutService.returnRental(returnRequest);
+        assertEquals("TEST-001", returned.getSerialNumber());
+        assertEquals(rented.getAgreementId(), returned.getAgreementId());
+        RentalRequestException nothingToReturn = assertThrows(RentalRequestException.class, () -> trackedCheckoutService.returnRental(returnRequest));
+        assertEquals(RentalRequestException.Reason.NO_RENTAL_TO_RETURN, nothingToReturn.getReason());
+        assertEquals(404, nothingToReturn.getReason().getStatus());
+
+        RentalAgreement rentedAgain = trackedCheckoutService.checkout(rentalRequest);
+        assertEquals(rented.toString(), rentedAgain.toString());
+        assertEquals(2, rentalQuoteCache.getHits());
+    }
+
+    @Test
+    void testUnrecordedAgreementsAreRejectedAndTheirUnitsReleased() throws RentalRequestException {
+        Tool tool = RentalQuoteCacheTest.tool("Ladder", "1.99", true, true, false);
+        ToolService toolService = Mockito.mock(ToolService.class);
+        Mockito.when(toolService.findByCode(tool.getTool_code())).thenReturn(List.of(tool));
+        ToolUnit toolUnit = new ToolUnit();
+        toolUnit.setToolCode(tool.getTool_code());
+        toolUnit.setSerialNumber("TEST-001");
+        ToolInventory toolInventory = new ToolInventory(null, null, null);
+        toolInventory.loadUnits(List.of(toolUnit));
+        // The recorder drops agreements (as a full write-behind queue does) until it is told it has room
+        List<RentalAgreement> recorded = new ArrayList<>();
+        AtomicBoolean full = new AtomicBoolean(true);
+        RentalAgreementRecorder recorder = rentalAgreement -> !full.get() && recorded.add(rentalAgreement);
+        CheckoutService trackedCheckoutService = new CheckoutService(toolService, CheckoutMetrics.NOOP, recorder, toolInventory);
+
+        RentalRequest rentalRequest = new RentalRequest()
+                .setToolCode(tool.getTool_code())
+                .setCheckoutDate("07/02/20")
+                .setNumberOfRentalDays(3)
+                .setDiscount("10");
+        RentalRequestException notRecorded = assertThrows(RentalRequestException.class, () -> trackedCheckoutService.checkout(rentalRequest));
+        assertEquals(RentalRequestException.Reason.AGREEMENT_NOT_RECORDED, notRecorded.getReason());
+        assertEquals(503, notRecorded.getReason().getStatus());
+
+        // The unit was released; so the retried checkout rents it
+        full.set(false);
+        RentalAgreement rented = trackedCheckoutService.checkout(rentalRequest);
+        assertEquals("TEST-001", rented.getReservation().getSerialNumber());
+        assertEquals(List.of(rented), recorded);
+    }
+
+    @Test
+    void testDiscountPercentIsParsedAsAnInteger() {
+        for (String discount : new String[] {"0", "10", "100", "+10", "-0", "010", "0000100", "-1", "101", "2147483648",
+                "99999999999999999999", "abc", "1O", "1.5", " 10", "10 ", "+", "-", "++1", "\u0661\u0660"}) {
+            int expected;
+            try {
+                expected = Integer.parseInt(discount);
+            } catch (NumberFormatException e) {
+                expected = -1;
+            }
+            int parsed = new RentalRequest().setDiscount(discount).getDiscountPercent();
+            if (expected >= 0 && expected <= 100) {
+                assertEquals(expected, parsed, discount);
+            } else {
+                assertEquals(RentalRequest.INVALID_DISCOUNT_PERCENT, parsed, discount);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.demo.store.rentals;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the holiday rules, and their compilation into the calendar index:
+ * - The default calendar observes exactly the demo specification's holidays (July 4th, and Labor Day) over the whole
+ *   indexed span of years
+ * - Each kind of rule, including observance shifts into the previous and following year
+ * - Parsing of the rental.holidays syntax, and rejection of invalid rules
+ */
+public class HolidayCalendarTest {
+
+    @Test
+    public void defaultCalendarObservesTheSpecificationHolidays() {
+        RentalCalendarIndex calendarIndex = new RentalCalendarIndex(1900, 2199, HolidayCalendar.DEFAULT::observedEpochDays);
+
+        for (long epochDay = LocalDate.of(1900, 1, 1).toEpochDay(); epochDay <= LocalDate.of(2199, 12, 31).toEpochDay(); epochDay++) {
+            LocalDate day = LocalDate.ofEpochDay(epochDay);
+            assertEquals(isSpecificationHoliday(day), calendarIndex.isHoliday(epochDay), day.toString());
+        }
+    }
+
+    @Test
+    public void rulesDetermineTheObservedDay() {
+        // Christmas 2021 is a Saturday, and 2022 a Sunday
+        assertEquals(LocalDate.of(2021, 12, 25), observed("fixed:DECEMBER:25", 2021));
+        assertEquals(LocalDate.of(2021, 12, 24), observed("fixed:DECEMBER:25:nearest-weekday", 2021));
+        assertEquals(LocalDate.of(2021, 12, 27), observed("fixed:DECEMBER:25:next-weekday", 2021));
+        assertEquals(LocalDate.of(2022, 12, 26), observed("fixed:12:25:nearest-weekday", 2022));
+        assertEquals(LocalDate.of(2022, 12, 26), observed("fixed:12:25:next-weekday", 2022));
+        assertEquals(LocalDate.of(2023, 12, 25), observed("fixed:DECEMBER:25:next-weekday", 2023));
+
+        // Thanksgiving, and Memorial Day
+        assertEquals(LocalDate.of(2024, 11, 28), observed("nth:NOVEMBER:THURSDAY:4", 2024));
+        assertEquals(LocalDate.of(2024, 5, 27), observed("last:may:monday", 2024));
+        assertEquals(LocalDate.of(2021, 5, 31), observed("last:MAY:MONDAY", 2021));
+
+        // a 5th Friday in February only occurs in some (leap) years
+        assertEquals(Long.MIN_VALUE, HolidayRule.parse("nth:FEBRUARY:FRIDAY:5").observedEpochDay(2024));
+        assertEquals(LocalDate.of(2036, 2, 29), observed("nth:FEBRUARY:FRIDAY:5", 2036));
+    }
+
+    @Test
+    public void holidaysMayBeObservedInAdjacentYears() {
+        // New Year's Day 2022 is a Saturday; it is observed on Friday, December 31st 2021
+        HolidayCalendar holidayCalendar = HolidayCalendar.parse("fixed:JANUARY:1:nearest-weekday");
+
+        assertArrayEquals(new long[] {
+                LocalDate.of(2021, 1, 1).toEpochDay(),
+                LocalDate.of(2021, 12, 31).toEpochDay()
+        }, holidayCalendar.observedEpochDays(2021));
+        assertArrayEquals(new long[0], holidayCalendar.observedEpochDays(2022));
+
+        RentalCalendarIndex calendarIndex = new RentalCalendarIndex(2022, 2022, holidayCalendar::observedEpochDays);
+        assertTrue(calendarIndex.isHoliday(LocalDate.of(2021, 12, 31).toEpochDay()));
+        assertEquals(1, calendarIndex.countHolidays(LocalDate.of(2021, 12, 30).toEpochDay(), 5));
+    }
+
+    @Test
+    public void calendarsAreParsedAndInvalidRulesRejected() {
+        HolidayCalendar holidayCalendar = HolidayCalendar.parse(
+                " fixed:july:4:NEAREST-WEEKDAY ,nth:SEPTEMBER:MONDAY:1, last:MAY:MONDAY, fixed:JULY:4:nearest-weekday");
+        assertEquals(4, holidayCalendar.getRules().size());
+        assertEquals(holidayCalendar.toString(), HolidayCalendar.parse(holidayCalendar.toString()).toString());
+        // duplicate rules observe a single holiday
+        assertEquals(3, holidayCalendar.observedEpochDays(2024).length);
+        assertEquals(0, HolidayCalendar.parse(" ").getRules().size());
+
+        for (String invalidRule : new String[] {"", "fixed:JULY", "fixed:JULY:32", "fixed:FEBRUARY:29", "fixed:13:1",
+                "fixed:JULY:4:sometimes", "nth:SEPTEMBER:MONDAY:0", "nth:SEPTEMBER:MONDAY:6", "nth:SEPTEMBER:MONDAY",
+                "last:MAY:MONDAY:1", "last:MAY:FUNDAY", "easter"}) {
+            assertThrows(IllegalArgumentException.class, () -> HolidayRule.parse(invalidRule), invalidRule);
+        }
+    }
+
+    @Test
+    public void rentalDateManagerObservesTheConfiguredHolidays() {
+        RentalDateManager rentalDateManager = RentalDateManager.getInstance();
+        long christmas = LocalDate.of(2024, 12, 25).toEpochDay();
+        long julyFourth = LocalDate.of(2024, 7, 4).toEpochDay();
+        try {
+            rentalDateManager.setHolidayCalendar(HolidayCalendar.parse("fixed:DECEMBER:25"));
+            assertTrue(rentalDateManager.isHoliday(christmas));
+            assertFalse(rentalDateManager.isHoliday(julyFourth));
+            assertEquals(1, rentalDateManager.countHolidays(LocalDate.of(2024, 1, 1).toEpochDay(), 366));
+        } finally {
+            rentalDateManager.setHolidayCalendar(HolidayCalendar.DEFAULT);
+        }
+        assertFalse(rentalDateManager.isHoliday(christmas));
+        assertTrue(rentalDateManager.isHoliday(julyFourth));
+    }
+
+    private static LocalDate observed(String rule, int year) {
+        return LocalDate.ofEpochDay(HolidayRule.parse(rule).observedEpochDay(year));
+    }
+
+    //  Independent (brute force) determination of the specification's holidays; July 4th (observed on the closest
+    //  weekday), and Labor Day
+    private static boolean isSpecificationHoliday(LocalDate day) {
+        LocalDate julyFourth = LocalDate.of(day.getYear(), 7, 4);
+        LocalDate observedJulyFourth = switch (julyFourth.getDayOfWeek()) {
+            case SATURDAY -> julyFourth.minusDays(1);
+            case SUNDAY -> julyFourth.plusDays(1);
+            default -> julyFourth;
+        };
+        boolean laborDay = day.getMonthValue() == 9 && day.getDayOfMonth() <= 7 && day.getDayOfWeek().getValue() == 1;
+        return day.equals(observedJulyFourth) || laborDay;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.demo.store.rentals;
+
+import com.example.demo.entities.RentalCost;
+import com.example.demo.entities.Tool;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.MonthDay;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the pricing plans against day by day (brute force) pricing:
+ * - A rental cost without rates or peak seasons prices exactly as the weekday/weekend/holiday charge flags always have;
+ *   the daily charge times the number of charged days
+ * - Per day type rates, and peak season surcharges (including a season spanning the new year), over ranges within a
+ *   year, spanning years, and outside of the indexed span of years
+ * - Rejection of invalid and overlapping peak seasons
+ */
+public class PricingPlanTest {
+    private static final int[] NUMBER_OF_DAYS = {0, 1, 2, 5, 7, 30, 31, 90, 365, 366, 1000};
+
+    //  A narrow index, so that the longer ranges also span years outside of the indexed span of years
+    private final RentalCalendarIndex calendarIndex = new RentalCalendarIndex(2020, 2021, HolidayCalendar.DEFAULT::observedEpochDays);
+
+    @Test
+    public void chargeFlagsPriceAsTheDailyChargeTimesTheChargedDays() {
+        for (int flags = 0; flags < 8; flags++) {
+            RentalCost rentalCost = rentalCost("2.99", (flags & 1) != 0, (flags & 2) != 0, (flags & 4) != 0);
+            PricingPlan pricingPlan = rentalCost.getPricingPlan();
+
+            for (long first = LocalDate.of(2019, 12, 20).toEpochDay(); first <= LocalDate.of(2021, 1, 10).toEpochDay(); first += 13) {
+                for (int days : NUMBER_OF_DAYS) {
+                    int weekendDays = calendarIndex.countWeekendDays(first, days);
+                    int holidays = calendarIndex.countHolidays(first, days);
+                    int weekdays = days - weekendDays - holidays;
+                    int chargedDays = (rentalCost.getWeekdayCharge() ? weekdays : 0)
+                            + (rentalCost.getWeekendCharge() ? weekendDays : 0)
+                            + (rentalCost.getHolidayCharge() ? holidays : 0);
+
+                    String description = rentalCost.getWeekdayCharge() + "/" + rentalCost.getWeekendCharge() + "/"
+                            + rentalCost.getHolidayCharge() + " from " + LocalDate.ofEpochDay(first) + " for " + days + " day(s)";
+                    assertEquals(chargedDays, pricingPlan.chargedDays(weekdays, weekendDays, holidays), description);
+                    assertEquals(299L * chargedDays, pricingPlan.priceCents(calendarIndex, first, days), description);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void chargeFlagsDecideTheChargedDaysWhateverTheRate() {
+        //  a free day type is still charged (its days are charge days, priced at 0.00)
+        RentalCost rentalCost = rentalCost("0.00", true, false, true);
+        PricingPlan pricingPlan = rentalCost.getPricingPlan();
+        assertEquals(5 + 1, pricingPlan.chargedDays(5, 2, 1));
+        assertEquals(0L, pricingPlan.priceCents(calendarIndex, LocalDate.of(2020, 7, 1).toEpochDay(), 7));
+
+        rentalCost = rentalCost("1.99", true, true, true);
+        rentalCost.setWeekendRate(BigDecimal.ZERO);
+        assertEquals(5 + 2 + 1, rentalCost.getPricingPlan().chargedDays(5, 2, 1));
+
+        //  a missing (null) flag is not charged
+        rentalCost = rentalCost("1.99", true, true, true);
+        rentalCost.setWeekendCharge(null);
+        rentalCost.setHolidayCharge(null);
+        pricingPlan = rentalCost.getPricingPlan();
+        assertFalse(pricingPlan.isWeekendCharged());
+        assertEquals(5, pricingPlan.chargedDays(5, 2, 1));
+        assertEquals(0L, pricingPlan.getWeekendRateCents());
+    }
+
+    @Test
+    public void ratesAndPeakSeasonsPriceAsDayByDay() {
+        RentalCost rentalCost = rentalCost("2.99", true, true, false);
+        rentalCost.setWeekendRate(new BigDecimal("4.49"));
+        rentalCost.setHolidayRate(new BigDecimal("9.99"));
+        rentalCost.setPeakSeasons("06-01..08-31:+25%, 12-20..01-05:+50%, 02-28..03-01:+10%");
+        PricingPlan pricingPlan = rentalCost.getPricingPlan();
+
+        // the holiday rate is ignored, since holidays are not charged
+        assertEquals(299L, pricingPlan.getWeekdayRateCents());
+        assertEquals(449L, pricingPlan.getWeekendRateCents());
+        assertEquals(0L, pricingPlan.getHolidayRateCents());
+        assertEquals(3, pricingPlan.getNumberOfPeakSeasons());
+
+        for (long first = LocalDate.of(2019, 12, 1).toEpochDay(); first <= LocalDate.of(2021, 12, 31).toEpochDay(); first += 3) {
+            for (int days : NUMBER_OF_DAYS) {
+                assertEquals(dayByDayPriceCents(first, days), pricingPlan.priceCents(calendarIndex, first, days),
+                        LocalDate.ofEpochDay(first) + " for " + days + " day(s)");
+            }
+        }
+    }
+
+    @Test
+    public void rentalAgreementsArePricedByThePricingPlan() throws Exception {
+        RentalCost rentalCost = rentalCost("1.99", true, true, true);
+        rentalCost.setWeekendRate(new BigDecimal("2.99"));
+        rentalCost.setPeakSeasons("07-01..07-31:+50%");
+        Tool tool = new Tool();
+        tool.setTool_code("TEST");
+        tool.setRentalCost(rentalCost);
+
+        // Friday 07/03/20 (observed July 4th), Saturday, Sunday, and Monday; all within the peak season
+        RentalAgreement rentalAgreement = new RentalAgreement()
+                .setTool(tool)
+                .setRequestedRentalDays(4)
+                .setCheckoutDate("07/02/20")
+                .setDiscountPercent("0")
+                .finalizeAgreement();
+
+        assertEquals(4, rentalAgreement.getBillableDays());
+        assertEquals(199L, rentalAgreement.getDailyRentalChargeCents());
+        assertEquals(2 * (199L + 100L) + 2 * (299L + 150L), rentalAgreement.getPreDiscountedChargeCents());
+    }
+
+    @Test
+    public void invalidPeakSeasonsAreRejected() {
+        for (String peakSeasons : new String[] {"06-01..08-31", "06-01..08-31:25%", "06-01..08-31:+0%", "06-01-08-31:+5%",
+                "13-01..08-31:+5%", "06-31..08-31:+5%", "06-01..08-31:+5%, 08-31..09-30:+5%", "12-01..01-31:+5%, 01-15..02-15:+5%",
+                "06-01..08-31:+1001%"}) {
+            assertThrows(IllegalArgumentException.class, () -> new PricingPlan(100, 100, 100, peakSeasons), peakSeasons);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new PricingPlan(-1, 100, 100, null));
+        assertEquals(0, new PricingPlan(100, 100, 100, " , ").getNumberOfPeakSeasons());
+    }
+
+    //  Independent (brute force) pricing of ratesAndPeakSeasonsPriceAsDayByDay()'s plan
+    private long dayByDayPriceCents(long first, int days) {
+        long priceCents = 0;
+        for (long epochDay = first; epochDay < first + days; epochDay++) {
+            long rateCents = switch (calendarIndex.dayType(epochDay)) {
+                case RentalCalendarIndex.WEEKDAY -> 299L;
+                case RentalCalendarIndex.WEEKEND -> 449L;
+                default -> 0L;
+            };
+            MonthDay monthDay = MonthDay.from(LocalDate.ofEpochDay(epochDay));
+            if (!monthDay.isBefore(MonthDay.of(6, 1)) && !monthDay.isAfter(MonthDay.of(8, 31))) {
+                rateCents += (rateCents * 25 + 50) / 100;
+            } else if (!monthDay.isBefore(MonthDay.of(12, 20)) || !monthDay.isAfter(MonthDay.of(1, 5))) {
+                rateCents += (rateCents * 50 + 50) / 100;
+            } else if (monthDay.getMonthValue() == 2 && monthDay.getDayOfMonth() >= 28 || monthDay.equals(MonthDay.of(3, 1))) {
+                rateCents += (rateCents * 10 + 50) / 100;
+            }
+            priceCents += rateCents;
+        }
+        return priceCents;
+    }
+
+    private static RentalCost rentalCost(String dailyCharge, boolean weekdayCharge, boolean weekendCharge, boolean holidayCharge) {
+        RentalCost rentalCost = new RentalCost();
+        rentalCost.setDailyCharge(new BigDecimal(dailyCharge));
+        rentalCost.setWeekdayCharge(weekdayCharge);
+        rentalCost.setWeekendCharge(weekendCharge);
+        rentalCost.setHolidayCharge(holidayCharge);
+        return rentalCost;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.demo.store.rentals;
+
+import com.example.demo.entities.Tool;
+import com.example.demo.entities.ToolUnit;
+import com.example.demo.json.serializers.CustomToStringJsonSerializer;
+import com.example.demo.json.serializers.RentalAgreementSerializer;
+import com.example.demo.store.inventory.ToolInventory;
+import com.example.demo.store.rentals.exceptions.RentalRequestException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the hand-written serialization of RentalAgreements against Jackson; i.e. the RentalAgreementJsonWriter output is
+ * byte-for-byte the Jackson (annotation driven) output, and the RentalAgreementSerializer output is the Jackson output
+ * of the CustomToStringJsonSerializer (as UTF-8), for every test data tool across a range of rentals, and for tools whose
+ * strings must be escaped.
+ */
+public class RentalAgreementJsonWriterTest extends RentalDemoTestBase {
+    private static final String[] CHECKOUT_DATES = {"07/02/20", "09/03/15", "12/31/99", "01/01/00", "7/4/21"};
+    private static final int[] RENTAL_DAYS = {1, 4, 7, 30, 365, 3650};
+    private static final String[] DISCOUNTS = {"0", "10", "25", "50", "100"};
+
+    //  Configured as Spring Boot configures its ObjectMapper
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final RentalAgreementJsonWriter rentalAgreementJsonWriter =
+            new RentalAgreementJsonWriter(objectMapper.getSerializationConfig().getTimeZone());
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        setupTestData();
+    }
+
+    @Test
+    void jsonIsIdenticalToJacksonOutput() throws Exception {
+        for (Tool tool : demoTestData.getTools()) {
+            for (String checkoutDate : CHECKOUT_DATES) {
+                for (int rentalDays : RENTAL_DAYS) {
+                    for (String discount : DISCOUNTS) {
+                        assertSameJson(finalizedAgreement(tool, checkoutDate, rentalDays, discount));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void stringsAreEscapedAsJacksonEscapesThem() throws Exception {
+        Tool tool = new Tool();
+        tool.setTool_code("Q\"B\\S/");
+        tool.setTool_type("Tab\tNew line\nReturn\r\u0001\u001f\u007f");
+        tool.setBrand("Br\u00e4nd \u20ac \ud83d\udd28 \"quoted\"");
+        tool.setRentalCost(demoTestData.getTools().get(0).getRentalCosts());
+
+        assertSameJson(finalizedAgreement(tool, "07/02/20", 5, "10"));
+    }
+
+    //  The agreement id of a reserved agreement is written first
+    @Test
+    void agreementIdIsIdenticalToJacksonOutput() throws Exception {
+        Tool tool = demoTestData.getTools().get(0);
+        ToolUnit toolUnit = new ToolUnit();
+        toolUnit.setToolCode(tool.getTool_code());
+        toolUnit.setSerialNumber("TEST-001");
+        ToolInventory toolInventory = new ToolInventory(null, null, null);
+        toolInventory.loadUnits(List.of(toolUnit));
+        RentalAgreement rentalAgreement = finalizedAgreement(tool, "07/02/20", 5, "10");
+        CheckoutService.reserveToolUnit(rentalAgreement, toolInventory);
+
+        assertSameJson(rentalAgreement);
+        assertTrue(new String(rentalAgreementJsonWriter.toJsonBytes(rentalAgreement), StandardCharsets.UTF_8)
+                .startsWith("{\"Agreement id\":\"" + rentalAgreement.getAgreementId() + "\",\"Tool code\":"));
+    }
+
+    @Test
+    void jsonIsWrittenInTheObjectMappersTimeZone() throws Exception {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().timeZone(TimeZone.getTimeZone("Pacific/Kiritimati")).build();
+        RentalAgreementJsonWriter rentalAgreementJsonWriter = new RentalAgreementJsonWriter(objectMapper.getSerializationConfig().getTimeZone());
+        RentalAgreement rentalAgreement = finalizedAgreement(demoTestData.getTools().get(0), "07/02/20", 5, "10");
+
+        assertEquals(objectMapper.writeValueAsString(rentalAgreement),
+                new String(rentalAgreementJsonWriter.toJsonBytes(rentalAgreement), StandardCharsets.UTF_8));
+    }
+
+    //  As the endpoint wrote it before; the Jackson string, encoded by the String message converter (as UTF-8)
+    @Test
+    void toStringJsonIsIdenticalToJacksonOutput() throws Exception {
+        ObjectMapper toStringObjectMapper = new ObjectMapper();
+        toStringObjectMapper.registerModule(new SimpleModule().addSerializer(RentalAgreement.class, new CustomToStringJsonSerializer()));
+        RentalAgreementSerializer rentalAgreementSerializer = new RentalAgreementSerializer();
+
+        List<RentalAgreement> rentalAgreements = new ArrayList<>();
+        for (Tool tool : demoTestData.getTools()) {
+            for (int rentalDays : RENTAL_DAYS) {
+                rentalAgreements.add(finalizedAgreement(tool, "07/02/20", rentalDays, "10"));
+            }
+        }
+        Tool tool = new Tool();
+        tool.setTool_code("Q\"B\\S/");
+        tool.setTool_type("Tab\tNew line\nReturn\r\u0001\u001f\u007f");
+        tool.setBrand("Br\u00e4nd \u20ac \ud83d\udd28 \"quoted\"");
+        tool.setRentalCost(demoTestData.getTools().get(0).getRentalCosts());
+        rentalAgreements.add(finalizedAgreement(tool, "07/02/20", 5, "10"));
+
+        for (RentalAgreement rentalAgreement : rentalAgreements) {
+            byte[] expected = toStringObjectMapper.writeValueAsString(rentalAgreement).getBytes(StandardCharsets.UTF_8);
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            rentalAgreementSerializer.write(rentalAgreement, actual);
+
+            assertEquals(new String(expected, StandardCharsets.UTF_8), actual.toString(StandardCharsets.UTF_8));
+            assertArrayEquals(expected, actual.toByteArray());
+            assertArrayEquals(expected, rentalAgreementSerializer.toJsonBytes(rentalAgreement));
+        }
+    }
+
+    @Test
+    void toStringFormatsMoneyAsUnitedStatesCurrency() throws Exception {
+        NumberFormat currencyFormatter = NumberFormat.getCurrencyInstance(Locale.US);
+        for (long cents : new long[] {0, 5, 60, 199, 99999, 100000, 123456789, 100000000000L, Long.MAX_VALUE}) {
+            assertEquals(currencyFormatter.format(BigDecimal.valueOf(cents, 2)),
+                    RentalAgreement.appendCurrency(new StringBuilder(), cents).toString());
+        }
+
+        RentalAgreement rentalAgreement = finalizedAgreement(demoTestData.getTools().get(0), "07/02/20", 3650, "10");
+        assertTrue(rentalAgreement.toString().contains("    Final charge: " + currencyFormatter.format(rentalAgreement.getFinalCharge()) + "\n"));
+        assertTrue(rentalAgreement.toString().contains("    Discount percent: 10%\n"));
+    }
+
+    private void assertSameJson(RentalAgreement rentalAgreement) throws IOException {
+        byte[] expected = objectMapper.writeValueAsBytes(rentalAgreement);
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        rentalAgreementJsonWriter.write(rentalAgreement, actual);
+
+        assertEquals(new String(expected, StandardCharsets.UTF_8), actual.toString(StandardCharsets.UTF_8));
+        assertArrayEquals(expected, actual.toByteArray());
+        assertArrayEquals(expected, rentalAgreementJsonWriter.toJsonBytes(rentalAgreement));
+    }
+
+    private static RentalAgreement finalizedAgreement(Tool tool, String checkoutDate, int rentalDays, String discount)
+            throws RentalRequestException {
+        return new RentalAgreement()
+                .setTool(tool)
+                .setRequestedRentalDays(rentalDays)
+                .setCheckoutDate(checkoutDate)
+                .setDiscountPercent(discount)
+                .finalizeAgreement();
+    }
+}
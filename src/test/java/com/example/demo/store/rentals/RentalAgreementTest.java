@@ -361,9 +361,97 @@ public class RentalAgreementTest extends RentalDemoTestBase {
         assertEquals(expectedFinalCharge, actualFinalCharge);
     }
 
+    //
+    //  Differential test of the fixed-point (long cents) pricing against the original BigDecimal pricing (reproduced in
+    //  bigDecimalPricing() below); the pre-discount charge, discount amount and final charge must be identical, including
+    //  the HALF_UP rounding of the discount amount, for every discount percent and a range of daily charges and rentals.
+    //
+    @Test
+    void fixedPointPricingMatchesBigDecimalPricing() {
+        String[] dailyCharges = {"0.01", "0.05", "0.99", "1.49", "1.99", "2.99", "9.95", "12.50", "99.99", "1234.56"};
+        int[] rentalDays = {1, 2, 3, 4, 5, 6, 7, 9, 10, 11, 13, 17, 30, 31, 45, 90, 180, 365, 366, 1000, 3650};
+
+        for (String dailyCharge : dailyCharges) {
+            RentalCost rentalCost = new RentalCost();
+            rentalCost.setDailyCharge(new BigDecimal(dailyCharge));
+            rentalCost.setWeekdayCharge(true);
+            rentalCost.setWeekendCharge(true);
+            rentalCost.setHolidayCharge(true);
+            Tool tool = new Tool();
+            tool.setTool_code("TEST");
+            tool.setRentalCost(rentalCost);
+
+            for (int numberOfRentalDays : rentalDays) {
+                for (int discountPercent = 0; discountPercent <= 100; discountPercent++) {
+                    RentalAgreement rentalAgreement = assertDoesNotThrow(() -> new RentalAgreement()
+                            .setTool(tool)
+                            .setRequestedRentalDays(numberOfRentalDays)
+                            .setCheckoutDate("07/02/20"));
+                    rentalAgreement.setDiscountPercent(Integer.toString(discountPercent));
+
+                    rentalAgreement.calculateNumberOfEachTypeOfRentalDay();
+                    rentalAgreement.calculateBillableDays();
+                    rentalAgreement.calculatePreDiscountCharge();
+                    rentalAgreement.calculateDiscountAmount();
+                    rentalAgreement.calculateFinalCharge();
+
+                    BigDecimal[] expected = bigDecimalPricing(dailyCharge, rentalAgreement.getBillableDays(), discountPercent);
+                    String context = String.format("daily charge %s, %d days, %d%%", dailyCharge, numberOfRentalDays, discountPercent);
+                    assertEquals(expected[0], rentalAgreement.getPreDiscountedCharge(), context);
+                    assertEquals(expected[1], rentalAgreement.getDiscountAmount(), context);
+                    assertEquals(expected[2], rentalAgreement.getFinalCharge(), context);
+                }
+            }
+        }
+    }
+
+    //  The original BigDecimal pricing; returns the pre-discount charge, discount amount, and final charge
+    private static BigDecimal[] bigDecimalPricing(String dailyCharge, int billableDays, int discountPercent) {
+        BigDecimal preDiscountedCharge = new BigDecimal(dailyCharge).multiply(new BigDecimal(billableDays)).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal discountPercentAsBigDecimal = new BigDecimal(discountPercent).divide(new BigDecimal(100), 2, RoundingMode.HALF_UP);
+        BigDecimal discountAmount = preDiscountedCharge.multiply(discountPercentAsBigDecimal).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal finalCharge = preDiscountedCharge.subtract(discountAmount).setScale(2, RoundingMode.HALF_UP);
+        return new BigDecimal[] {preDiscountedCharge, discountAmount, finalCharge};
+    }
+
+    //
+    //  The closed-form day type counting (and due date calculation) used by finalizeAgreement() must produce exactly
+    //  the same results as building, and then classifying, the list of possibly billable days.  Compare both approaches
+    //  over checkout dates spanning the holidays of several years and rental periods up to multiple years.
+    //
+    @Test
+    void closedFormDayTypeCountsMatchListOfPossiblyBillableDays() {
+        Mockito.when(mockToolService.findByCode(Mockito.anyString())).thenReturn(reusableToolList);
+
+        String[] checkoutDates = {"07/02/15", "09/03/15", "07/02/20", "07/03/24", "07/04/24", "08/30/24", "09/01/24",
+                                  "12/31/19", "06/28/21", "02/28/23"};
+        int[] rentalDayCounts = {1, 2, 3, 4, 5, 6, 7, 9, 10, 31, 63, 90, 365, 366, 800};
+
+        for (String checkoutDate : checkoutDates) {
+            for (int rentalDays : rentalDayCounts) {
+                RentalRequest rentalRequest = reusableSingleDayWeekDayRentalRequest.clone()
+                        .setCheckoutDate(checkoutDate)
+                        .setNumberOfRentalDays(rentalDays);
+
+                RentalAgreement listBasedAgreement = assertDoesNotThrow(() -> validateRequestAndInitializeRentalAgreement(rentalRequest, mockToolService));
+                listBasedAgreement.calculateNumberOfEachTypeOfRentalDay(listBasedAgreement.buildListOfPossiblyBillableDays());
+
+                RentalAgreement closedFormAgreement = assertDoesNotThrow(() -> validateRequestAndInitializeRentalAgreement(rentalRequest, mockToolService));
+                closedFormAgreement.calculateDueDate();
+                closedFormAgreement.calculateNumberOfEachTypeOfRentalDay();
+
+                String description = checkoutDate + " for " + rentalDays + " day(s)";
+                assertEquals(listBasedAgreement.getDueDate(), closedFormAgreement.getDueDate(), description);
+                assertEquals(listBasedAgreement.getNumberOfHolidays(), closedFormAgreement.getNumberOfHolidays(), description);
+                assertEquals(listBasedAgreement.getNumberOfWeekendDays(), closedFormAgreement.getNumberOfWeekendDays(), description);
+                assertEquals(listBasedAgreement.getNumberOfWeekdays(), closedFormAgreement.getNumberOfWeekdays(), description);
+            }
+        }
+    }
+
     /**
      * finalize agreement wraps all the method calls below into a single method call.
-     * - buildListOfPossiblyBillableDays
+     * - calculateDueDate
      * - calculateNumberOfEachTypeOfRentalDay
      * - calculateBillableDays
      * - calculatePreDiscountCharge
@@ -3,7 +3,19 @@ package com.example.demo.store.rentals;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.text.SimpleDateFormat;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -16,6 +28,8 @@ import static org.junit.jupiter.api.Assertions.*;
  * - Determination of correct Labor Day date
  *      Also vary the years being tested to ensure that the correct Labor Day date is determined.
  * - Determine if a date is a weekend or a weekday
+ * - Classify and count day types using the calendar index
+ * - Parse and format dates, including concurrent use of the (singleton) RentalDateManager
  */
 public class RentalDayManagerTest {
     static RentalDateManager defaultRentalDateManager = RentalDateManager.getInstance();
@@ -90,4 +104,156 @@ public class RentalDayManagerTest {
         // Test a weekday
         assertFalse(defaultRentalDateManager.isWeekend(actualDayIsMonday.getTime()));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void validateDateParsingAndFormatting() {
+        // Well-formed input, handled by the fast path
+        assertEquals(LocalDate.of(2020, 7, 2), assertDoesNotThrow(() -> defaultRentalDateManager.stringToLocalDate("07/02/20")));
+        assertEquals(LocalDate.of(2015, 9, 3), assertDoesNotThrow(() -> defaultRentalDateManager.stringToLocalDate("09/03/15")));
+        assertEquals(LocalDate.of(2024, 2, 29), assertDoesNotThrow(() -> defaultRentalDateManager.stringToLocalDate("02/29/24")));
+
+        // Single digit months and days are handled by the fallback formatter
+        assertEquals(LocalDate.of(2020, 7, 2), assertDoesNotThrow(() -> defaultRentalDateManager.stringToLocalDate("7/2/20")));
+
+        // Invalid input
+        assertFalse(defaultRentalDateManager.isValidInputDateFormat("2021-09-01"));
+        assertFalse(defaultRentalDateManager.isValidInputDateFormat("02/29/23"));
+        assertFalse(defaultRentalDateManager.isValidInputDateFormat("13/01/20"));
+        assertFalse(defaultRentalDateManager.isValidInputDateFormat(null));
+
+        // Formatting, including a round trip through a Date instance
+        assertEquals("07/05/20", defaultRentalDateManager.localDateToString(LocalDate.of(2020, 7, 5)));
+        assertEquals("09/03/15", assertDoesNotThrow(() ->
+                defaultRentalDateManager.dateToString(defaultRentalDateManager.stringToDate("09/03/15"))));
+    }
+
+    //  A year of more than two digits is the literal year, as SimpleDateFormat("MM/dd/yy") parses it
+    @Test
+    public void validateYearsOfMoreThanTwoDigits() throws Exception {
+        SimpleDateFormat simpleDateFormat = new SimpleDateFormat("MM/dd/yy");
+        for (String inputDate : new String[] {"07/02/2020", "7/4/2021", "12/31/1999", "02/29/2024", "1/1/2199", "07/02/20"}) {
+            LocalDate expected = simpleDateFormat.parse(inputDate).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+            assertEquals(expected, defaultRentalDateManager.stringToLocalDate(inputDate), inputDate);
+            assertEquals(expected.toEpochDay(), defaultRentalDateManager.stringToEpochDay(inputDate), inputDate);
+        }
+
+        // (SimpleDateFormat switches to the Julian calendar before 1582; java.time does not)
+        assertEquals(LocalDate.of(999, 1, 1), defaultRentalDateManager.stringToLocalDate("01/01/0999"));
+
+        // Up to four digits, and (unlike the lenient SimpleDateFormat) only valid dates
+        assertFalse(defaultRentalDateManager.isValidInputDateFormat("07/02/20200"));
+        assertFalse(defaultRentalDateManager.isValidInputDateFormat("07/02/2"));
+        assertFalse(defaultRentalDateManager.isValidInputDateFormat("02/29/2023"));
+        assertFalse(defaultRentalDateManager.isValidInputDateFormat("01/01/0000"));
+        assertFalse(defaultRentalDateManager.isValidInputDateFormat("07/02/-2020"));
+    }
+
+    //
+    //  The RentalDateManager is a JVM wide singleton; so concurrently parse and format many different dates from
+    //  multiple threads and verify that no thread ever observes another thread's result.
+    //
+    @Test
+    public void validateConcurrentDateParsingAndFormatting() throws Exception {
+        int numberOfThreads = 8;
+        int iterationsPerThread = 20_000;
+
+        List<LocalDate> dates = new ArrayList<>();
+        for (LocalDate date = LocalDate.of(2015, 1, 1); date.getYear() < 2026; date = date.plusDays(1)) {
+            dates.add(date);
+        }
+        List<String> dateStrings = dates.stream().map(defaultRentalDateManager::localDateToString).toList();
+
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        CountDownLatch startingGate = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < numberOfThreads; t++) {
+                int threadOffset = t * 97;
+                results.add(executor.submit(() -> {
+                    startingGate.await();
+                    int corruptedResults = 0;
+                    for (int i = 0; i < iterationsPerThread; i++) {
+                        int index = (threadOffset + i * 31) % dates.size();
+                        String dateString = dateStrings.get(index);
+                        if (!dates.get(index).equals(defaultRentalDateManager.stringToLocalDate(dateString))) {
+                            corruptedResults++;
+                        }
+                        if (!dateString.equals(defaultRentalDateManager.dateToString(defaultRentalDateManager.stringToDate(dateString)))) {
+                            corruptedResults++;
+                        }
+                    }
+                    return corruptedResults;
+                }));
+            }
+
+            startingGate.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals(0, result.get(60, TimeUnit.SECONDS).intValue());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    //
+    //  The calendar index must classify every day exactly as classifying each day individually would; and the
+    //  cumulative counts must match a day-by-day count for ranges within a year, spanning years, and outside the
+    //  indexed span of years.
+    //
+    @Test
+    public void validateCalendarIndexClassificationAndCounts() {
+        RentalCalendarIndex calendarIndex = defaultRentalDateManager.getCalendarIndex();
+
+        long firstEpochDay = LocalDate.of(2014, 12, 1).toEpochDay();
+        long lastEpochDay = LocalDate.of(2026, 1, 31).toEpochDay();
+        for (long epochDay = firstEpochDay; epochDay <= lastEpochDay; epochDay++) {
+            LocalDate day = LocalDate.ofEpochDay(epochDay);
+            boolean weekend = day.getDayOfWeek().getValue() >= 6;
+            boolean holiday = isObservedHoliday(day);
+            assertEquals(holiday, calendarIndex.isHoliday(epochDay), day.toString());
+            assertEquals(weekend && !holiday, calendarIndex.isWeekend(epochDay), day.toString());
+        }
+
+        // a narrow index forces the requested ranges to span years outside of the indexed span
+        RentalCalendarIndex narrowCalendarIndex = new RentalCalendarIndex(2020, 2020,
+                year -> new long[] { LocalDate.of(year, 9, 1).with(TemporalAdjusters.firstInMonth(DayOfWeek.MONDAY)).toEpochDay() });
+
+        int[] numberOfDays = {0, 1, 5, 7, 31, 365, 366, 1000};
+        for (long first = LocalDate.of(2019, 12, 25).toEpochDay(); first <= LocalDate.of(2021, 1, 5).toEpochDay(); first += 11) {
+            for (int days : numberOfDays) {
+                int expectedWeekendDays = 0;
+                int expectedHolidays = 0;
+                int expectedNarrowHolidays = 0;
+                for (long epochDay = first; epochDay < first + days; epochDay++) {
+                    LocalDate day = LocalDate.ofEpochDay(epochDay);
+                    if (isObservedHoliday(day)) {
+                        expectedHolidays++;
+                    } else if (day.getDayOfWeek().getValue() >= 6) {
+                        expectedWeekendDays++;
+                    }
+                    if (day.getMonthValue() == 9 && day.getDayOfMonth() <= 7 && day.getDayOfWeek().getValue() == 1) {
+                        expectedNarrowHolidays++;
+                    }
+                }
+
+                String description = LocalDate.ofEpochDay(first) + " for " + days + " day(s)";
+                assertEquals(expectedWeekendDays, calendarIndex.countWeekendDays(first, days), description);
+                assertEquals(expectedHolidays, calendarIndex.countHolidays(first, days), description);
+                assertEquals(days - expectedWeekendDays - expectedHolidays, calendarIndex.countWeekdays(first, days), description);
+                assertEquals(expectedNarrowHolidays, narrowCalendarIndex.countHolidays(first, days), description);
+            }
+        }
+    }
+
+    //  Independent (brute force) determination of the observed holidays; July 4th and Labor Day
+    private static boolean isObservedHoliday(LocalDate day) {
+        LocalDate julyFourth = LocalDate.of(day.getYear(), 7, 4);
+        LocalDate observedJulyFourth = switch (julyFourth.getDayOfWeek()) {
+            case SATURDAY -> julyFourth.minusDays(1);
+            case SUNDAY -> julyFourth.plusDays(1);
+            default -> julyFourth;
+        };
+        boolean laborDay = day.getMonthValue() == 9 && day.getDayOfMonth() <= 7 && day.getDayOfWeek().getValue() == 1;
+        return day.equals(observedJulyFourth) || laborDay;
+    }
+}
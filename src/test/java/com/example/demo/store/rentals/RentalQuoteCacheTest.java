@@ -0,0 +1,147 @@
+package com.example.demo.store.rentals;
+
+import com.example.demo.entities.RentalCost;
+import com.example.demo.entities.Tool;
+import com.example.demo.store.rentals.exceptions.RentalRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the quote cache:
+ * - A quoted agreement is identical to a freshly priced one
+ * - Quotes are invalidated when the rates or the holidays behind them change
+ * - Eviction is frequency aware; one-off price checks do not flush frequently requested quotes
+ */
+public class RentalQuoteCacheTest {
+    private static final String[] CHECKOUT_DATES = {"07/02/20", "09/03/15", "12/31/99", "7/4/21"};
+    private static final int[] RENTAL_DAYS = {1, 4, 7, 30, 365};
+    private static final String[] DISCOUNTS = {"0", "10", "25"};
+
+    @Test
+    public void quotedAgreementsAreIdenticalToPricedAgreements() throws Exception {
+        Tool tool = tool("Ladder", "1.99", true, true, false);
+        RentalQuoteCache rentalQuoteCache = new RentalQuoteCache(1000, null);
+
+        for (int pass = 0; pass < 2; pass++) {
+            for (String checkoutDate : CHECKOUT_DATES) {
+                for (int rentalDays : RENTAL_DAYS) {
+                    for (String discount : DISCOUNTS) {
+                        RentalAgreement quoted = rentalQuoteCache.finalizeAgreement(
+                                initializedAgreement(tool, checkoutDate, rentalDays, discount), CheckoutMetrics.NOOP);
+                        RentalAgreement priced = initializedAgreement(tool, checkoutDate, rentalDays, discount).finalizeAgreement();
+                        assertEquals(priced.toString(), quoted.toString());
+                        assertEquals(priced.getDueDate(), quoted.getDueDate());
+                        assertEquals(priced.getNumberOfWeekdays(), quoted.getNumberOfWeekdays());
+                        assertEquals(priced.getNumberOfWeekendDays(), quoted.getNumberOfWeekendDays());
+                        assertEquals(priced.getNumberOfHolidays(), quoted.getNumberOfHolidays());
+                        assertEquals(priced.getFinalChargeCents(), quoted.getFinalChargeCents());
+                    }
+                }
+            }
+        }
+
+        int numberOfShapes = CHECKOUT_DATES.length * RENTAL_DAYS.length * DISCOUNTS.length;
+        assertEquals(numberOfShapes, rentalQuoteCache.getMisses());
+        assertEquals(numberOfShapes, rentalQuoteCache.getHits());
+        assertEquals(numberOfShapes, rentalQuoteCache.getSize());
+        assertEquals(0.5, rentalQuoteCache.getHitRatio());
+    }
+
+    @Test
+    public void quotesAreInvalidatedWhenRatesOrHolidaysChange() throws Exception {
+        Tool tool = tool("Ladder", "1.99", true, true, true);
+        RentalQuoteCache rentalQuoteCache = new RentalQuoteCache(1000, null);
+
+        // 07/03/20 (observed July 4th) through 07/06/20; a holiday, two weekend days, and a weekday
+        assertEquals(796L, quote(rentalQuoteCache, tool).getFinalChargeCents());
+        assertEquals(796L, quote(rentalQuoteCache, tool).getFinalChargeCents());
+        assertEquals(1, rentalQuoteCache.getHits());
+
+        tool.getRentalCosts().setWeekendRate(new BigDecimal("2.99"));
+        assertEquals(996L, quote(rentalQuoteCache, tool).getFinalChargeCents());
+        assertEquals(1, rentalQuoteCache.getInvalidated());
+
+        RentalDateManager rentalDateManager = RentalDateManager.getInstance();
+        tool.getRentalCosts().setHolidayCharge(false);
+        try {
+            assertEquals(797L, quote(rentalQuoteCache, tool).getFinalChargeCents());
+            rentalDateManager.setHolidayCalendar(HolidayCalendar.parse("nth:SEPTEMBER:MONDAY:1"));
+            RentalAgreement rentalAgreement = quote(rentalQuoteCache, tool);
+            assertEquals(0, rentalAgreement.getNumberOfHolidays());
+            assertEquals(996L, rentalAgreement.getFinalChargeCents());
+            assertEquals(3, rentalQuoteCache.getInvalidated());
+        } finally {
+            rentalDateManager.setHolidayCalendar(HolidayCalendar.DEFAULT);
+        }
+        assertEquals(797L, quote(rentalQuoteCache, tool).getFinalChargeCents());
+        assertEquals(1, rentalQuoteCache.getHits());
+        assertEquals(1, rentalQuoteCache.getSize());
+    }
+
+    @Test
+    public void frequentlyRequestedQuotesAreNotEvictedByOneOffQuotes() throws Exception {
+        Tool tool = tool("Ladder", "1.99", true, true, false);
+        RentalQuoteCache rentalQuoteCache = new RentalQuoteCache(64, null);
+        assertEquals(64, rentalQuoteCache.getCapacity());
+
+        // 16 popular quotes, each requested 5 times
+        for (int request = 0; request < 5; request++) {
+            for (int rentalDays = 1; rentalDays <= 16; rentalDays++) {
+                rentalQuoteCache.finalizeAgreement(initializedAgreement(tool, "07/02/20", rentalDays, "0"), CheckoutMetrics.NOOP);
+            }
+        }
+        // a flood of 500 one-off quotes
+        for (int rentalDays = 100; rentalDays < 600; rentalDays++) {
+            rentalQuoteCache.finalizeAgreement(initializedAgreement(tool, "07/02/20", rentalDays, "0"), CheckoutMetrics.NOOP);
+        }
+        assertTrue(rentalQuoteCache.getSize() <= rentalQuoteCache.getCapacity());
+
+        long hits = rentalQuoteCache.getHits();
+        for (int rentalDays = 1; rentalDays <= 16; rentalDays++) {
+            rentalQuoteCache.finalizeAgreement(initializedAgreement(tool, "07/02/20", rentalDays, "0"), CheckoutMetrics.NOOP);
+        }
+        assertEquals(16, rentalQuoteCache.getHits() - hits);
+    }
+
+    @Test
+    public void disabledCachePricesEveryAgreement() throws Exception {
+        Tool tool = tool("Ladder", "1.99", true, true, false);
+        for (int request = 0; request < 3; request++) {
+            assertEquals(597L, quote(RentalQuoteCache.DISABLED, tool).getFinalChargeCents());
+        }
+        assertFalse(RentalQuoteCache.DISABLED.isEnabled());
+        assertEquals(0, RentalQuoteCache.DISABLED.getHits() + RentalQuoteCache.DISABLED.getMisses());
+        assertThrows(IllegalArgumentException.class, () -> new RentalQuoteCache(-1, null));
+    }
+
+    private static RentalAgreement quote(RentalQuoteCache rentalQuoteCache, Tool tool) throws RentalRequestException {
+        return rentalQuoteCache.finalizeAgreement(initializedAgreement(tool, "07/02/20", 4, "0"), CheckoutMetrics.NOOP);
+    }
+
+    private static RentalAgreement initializedAgreement(Tool tool, String checkoutDate, int rentalDays, String discount)
+            throws RentalRequestException {
+        return new RentalAgreement()
+                .setTool(tool)
+                .setRequestedRentalDays(rentalDays)
+                .setCheckoutDate(checkoutDate)
+                .setDiscountPercent(discount);
+    }
+
+    static Tool tool(String toolType, String dailyCharge, boolean weekdayCharge, boolean weekendCharge, boolean holidayCharge) {
+        RentalCost rentalCost = new RentalCost();
+        rentalCost.setToolType(toolType);
+        rentalCost.setDailyCharge(new BigDecimal(dailyCharge));
+        rentalCost.setWeekdayCharge(weekdayCharge);
+        rentalCost.setWeekendCharge(weekendCharge);
+        rentalCost.setHolidayCharge(holidayCharge);
+        Tool tool = new Tool();
+        tool.setTool_code("TEST");
+        tool.setTool_type(toolType);
+        tool.setBrand("Brand");
+        tool.setRentalCost(rentalCost);
+        return tool;
+    }
+}
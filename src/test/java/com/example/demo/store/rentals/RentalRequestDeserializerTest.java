@@ -0,0 +1,101 @@
+package com.example.demo.store.rentals;
+
+import com.example.demo.store.rentals.exceptions.RentalRequestException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the RentalRequestDeserializer against Jackson's bean deserializer:
+ * - Every request (including coerced, null, unknown and malformed properties) is read exactly as the bean deserializer
+ *   reads it, or rejected by both
+ * - The checkout date and discount are parsed as they are read, and the agreement is initialized from the parsed values
+ */
+public class RentalRequestDeserializerTest {
+    private static final List<String> REQUESTS = List.of(
+            "{\"toolCode\":\"LADW\",\"checkoutDate\":\"07/02/20\",\"numberOfRentalDays\":3,\"discount\":\"10\"}",
+            "{\"discount\":\"0\",\"numberOfRentalDays\":1,\"checkoutDate\":\"7/4/21\",\"toolCode\":\"JAKR\"}",
+            "{\"toolCode\":\"LADW\",\"checkoutDate\":\"2020-07-02\",\"numberOfRentalDays\":\"5\",\"discount\":10}",
+            "{\"toolCode\":\"LADW\",\"checkoutDate\":\"02/30/24\",\"numberOfRentalDays\":5,\"discount\":\"abc\"}",
+            "{\"toolCode\":null,\"checkoutDate\":null,\"numberOfRentalDays\":null,\"discount\":null}",
+            "{\"toolCode\":\"LADW\",\"unknown\":{\"nested\":[1,2,3]},\"discount\":\"+10\"}",
+            "{}",
+            "{\"toolCode\":\"LADW\",\"numberOfRentalDays\":\"abc\"}",
+            "{\"toolCode\":\"LADW\",\"numberOfRentalDays\":2.5}",
+            "{\"toolCode\":[\"LADW\"]}",
+            "[]",
+            "\"LADW\"");
+
+    //  Configured as Spring Boot configures its ObjectMapper (e.g. unknown properties are ignored)
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper beanObjectMapper = Jackson2ObjectMapperBuilder.json()
+            .mixIn(RentalRequest.class, BeanDeserialized.class)
+            .build();
+
+    @JsonDeserialize(using = JsonDeserializer.None.class)
+    private interface BeanDeserialized {
+    }
+
+    @Test
+    void requestsAreReadAsTheBeanDeserializerReadsThem() {
+        for (boolean failOnUnknownProperties : new boolean[] {false, true}) {
+            ObjectMapper mapper = objectMapper.copy().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, failOnUnknownProperties);
+            ObjectMapper beanMapper = beanObjectMapper.copy().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, failOnUnknownProperties);
+
+            for (String json : REQUESTS) {
+                RentalRequest expected;
+                try {
+                    expected = beanMapper.readValue(json, RentalRequest.class);
+                } catch (Exception e) {
+                    assertThrows(e.getClass(), () -> mapper.readValue(json, RentalRequest.class), json);
+                    continue;
+                }
+                RentalRequest rentalRequest = assertDoesNotThrow(() -> mapper.readValue(json, RentalRequest.class), json);
+                assertEquals(expected.getToolCode(), rentalRequest.getToolCode(), json);
+                assertEquals(expected.getCheckoutDate(), rentalRequest.getCheckoutDate(), json);
+                assertEquals(expected.getNumberOfRentalDays(), rentalRequest.getNumberOfRentalDays(), json);
+                assertEquals(expected.getDiscount(), rentalRequest.getDiscount(), json);
+                assertEquals(expected.getCheckoutEpochDay(), rentalRequest.getCheckoutEpochDay(), json);
+                assertEquals(expected.getDiscountPercent(), rentalRequest.getDiscountPercent(), json);
+            }
+        }
+    }
+
+    @Test
+    void checkoutDateAndDiscountAreParsedAsTheyAreRead() throws Exception {
+        RentalRequest rentalRequest = objectMapper.readValue(REQUESTS.get(1), RentalRequest.class);
+        assertEquals(LocalDate.of(2021, 7, 4).toEpochDay(), rentalRequest.getCheckoutEpochDay());
+        assertEquals(0, rentalRequest.getDiscountPercent());
+
+        RentalRequest numericDiscount = objectMapper.readValue(REQUESTS.get(2), RentalRequest.class);
+        assertEquals("10", numericDiscount.getDiscount());
+        assertEquals(10, numericDiscount.getDiscountPercent());
+        assertEquals(5, numericDiscount.getNumberOfRentalDays());
+        assertEquals(RentalDateManager.INVALID_EPOCH_DAY, numericDiscount.getCheckoutEpochDay());
+
+        RentalRequest invalid = objectMapper.readValue(REQUESTS.get(3), RentalRequest.class);
+        assertEquals(RentalDateManager.INVALID_EPOCH_DAY, invalid.getCheckoutEpochDay());
+        assertEquals(RentalRequest.INVALID_DISCOUNT_PERCENT, invalid.getDiscountPercent());
+
+        // the agreement keeps the checkout date as given, and is started on the parsed epoch day
+        RentalAgreement rentalAgreement = new RentalAgreement()
+                .setCheckoutDate(rentalRequest.getCheckoutDate(), rentalRequest.getCheckoutEpochDay())
+                .setDiscountPercent(rentalRequest.getDiscountPercent());
+        assertEquals("7/4/21", rentalAgreement.getCheckoutDate());
+        assertEquals(rentalRequest.getCheckoutEpochDay(), rentalAgreement.getStartEpochDay());
+        assertEquals(RentalDateManager.getInstance().stringToDate("7/4/21"), rentalAgreement.getStartDate());
+
+        RentalRequestException invalidCheckoutDate = assertThrows(RentalRequestException.class,
+                () -> new RentalAgreement().setCheckoutDate(invalid.getCheckoutDate(), invalid.getCheckoutEpochDay()));
+        assertEquals(RentalRequestException.Reason.INVALID_CHECKOUT_DATE, invalidCheckoutDate.getReason());
+        assertEquals("Invalid date format: 02/30/24", invalidCheckoutDate.getMessage());
+    }
+}
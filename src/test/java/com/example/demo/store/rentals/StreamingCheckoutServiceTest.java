@@ -0,0 +1,103 @@
+package com.example.demo.store.rentals;
+
+import com.example.demo.data.ScenarioRequest;
+import com.example.demo.services.ToolService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the StreamingCheckoutService; i.e. NDJSON rental requests in, one NDJSON result per request out (in order),
+ * and invalid requests produce error results without ending the stream.
+ */
+public class StreamingCheckoutServiceTest extends RentalDemoTestBase {
+    static ToolService mockToolService = Mockito.mock(ToolService.class);
+    static ObjectMapper objectMapper = new ObjectMapper();
+    static StreamingCheckoutService streamingCheckoutService =
+            new StreamingCheckoutService(new CheckoutService(mockToolService), objectMapper);
+
+    @BeforeAll
+    static void setup() throws IOException {
+        RentalDemoTestBase.setupTestData();
+
+        Mockito.when(mockToolService.findByCode(Mockito.anyString())).thenAnswer(invocation -> {
+            String toolCode = invocation.getArgument(0);
+            return demoTestData.getTools().stream()
+                    .filter(tool -> tool.getTool_code().equals(toolCode))
+                    .toList();
+        });
+    }
+
+    @Test
+    void streamScenarios() throws IOException {
+        //  Enough requests to span several flush intervals
+        StringBuilder rentalRequests = new StringBuilder();
+        List<BigDecimal> expectedFinalCharges = new ArrayList<>();
+        for (int repeat = 0; repeat < 30; repeat++) {
+            for (ScenarioRequest scenario : demoTestData.getScenarios()) {
+                rentalRequests.append(objectMapper.writeValueAsString(scenario.getRentalRequest())).append('\n');
+                expectedFinalCharges.add(scenario.getExpectedFinalCharge());
+            }
+        }
+        //  A request which can not be bound to a RentalRequest does not end the stream
+        rentalRequests.append("{\"toolCode\":\"JAKR\",\"numberOfRentalDays\":\"not a number\"}\n");
+        expectedFinalCharges.add(BigDecimal.ONE.negate());
+        rentalRequests.append(objectMapper.writeValueAsString(demoTestData.getScenarios().get(1).getRentalRequest())).append('\n');
+        expectedFinalCharges.add(demoTestData.getScenarios().get(1).getExpectedFinalCharge());
+
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+        int numberOfRequests = streamingCheckoutService.checkout(
+                new ByteArrayInputStream(rentalRequests.toString().getBytes(StandardCharsets.UTF_8)), results);
+        assertEquals(expectedFinalCharges.size(), numberOfRequests);
+
+        String[] resultLines = results.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(expectedFinalCharges.size(), resultLines.length);
+        for (int index = 0; index < resultLines.length; index++) {
+            JsonNode result = objectMapper.readTree(resultLines[index]);
+            assertEquals(index, result.get("index").asInt());
+            if (expectedFinalCharges.get(index).compareTo(BigDecimal.ZERO) < 0) {
+                assertTrue(result.has("error"), "result " + index);
+                assertFalse(result.has("agreement"), "result " + index);
+            } else {
+                assertEquals(expectedFinalCharges.get(index), result.get("agreement").get("Final Charge").decimalValue());
+            }
+        }
+    }
+
+    @Test
+    void malformedJsonEndsTheStreamWithAnError() throws IOException {
+        String rentalRequests = objectMapper.writeValueAsString(demoTestData.getScenarios().get(1).getRentalRequest())
+                + "\n{\"toolCode\": \n";
+
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+        assertEquals(2, streamingCheckoutService.checkout(
+                new ByteArrayInputStream(rentalRequests.getBytes(StandardCharsets.UTF_8)), results));
+
+        String[] resultLines = results.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, resultLines.length);
+        assertTrue(objectMapper.readTree(resultLines[0]).has("agreement"));
+        //  a malformed-request rejection, without the parser's message
+        JsonNode error = objectMapper.readTree(resultLines[1]).get("error");
+        assertEquals("malformed-request", error.get("code").asText());
+        assertEquals("Malformed rental request", error.get("message").asText());
+    }
+
+    @Test
+    void emptyStream() throws IOException {
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+        assertEquals(0, streamingCheckoutService.checkout(new ByteArrayInputStream(new byte[0]), results));
+        assertEquals(0, results.size());
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.demo.store.rentals;
+
+import com.example.demo.entities.Tool;
+import com.example.demo.services.ToolService;
+import com.example.demo.store.rentals.exceptions.RentalRequestException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the WriteBehindRentalAgreementRecorder; i.e. agreements are grouped into batch inserts by size or by time, the
+ * queue is flushed on stop, and a full queue drops agreements rather than blocking.
+ *
+ * The JdbcTemplate is mocked; each batch insert only records its size.
+ */
+public class WriteBehindRentalAgreementRecorderTest {
+
+    @Test
+    void agreementsAreBatchedBySize() {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        WriteBehindRentalAgreementRecorder recorder = newRecorder(batchSizes, meterRegistry, 10, 50, 100);
+
+        //  queue the agreements before starting the writer, so the batches are deterministic
+        for (int count = 0; count < 25; count++) {
+            recorder.record(new RentalAgreement());
+        }
+        assertEquals(25, recorder.getQueueDepth());
+
+        recorder.start();
+        recorder.stop();
+
+        assertEquals(List.of(10, 10, 5), batchSizes);
+        assertEquals(0, recorder.getQueueDepth());
+        assertEquals(25.0, meterRegistry.get("rental.agreements.write-behind.written").counter().count());
+        assertEquals(3L, meterRegistry.get("rental.agreements.write-behind.flush").timer().count());
+        assertEquals(0.0, meterRegistry.get("rental.agreements.write-behind.queue.depth").gauge().value());
+    }
+
+    @Test
+    void partialBatchIsFlushedAfterTheFlushInterval() throws InterruptedException {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        WriteBehindRentalAgreementRecorder recorder = newRecorder(batchSizes, new SimpleMeterRegistry(), 100, 50, 100);
+        recorder.start();
+        try {
+            for (int count = 0; count < 3; count++) {
+                recorder.record(new RentalAgreement());
+            }
+
+            //  written while the recorder is still running; i.e. not waiting for a full batch
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (batchSizes.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(List.of(3), batchSizes);
+            assertTrue(recorder.isRunning());
+        } finally {
+            recorder.stop();
+        }
+    }
+
+    @Test
+    void queuedAgreementsAreFlushedOnStop() {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        WriteBehindRentalAgreementRecorder recorder = newRecorder(batchSizes, meterRegistry, 100, 200, 100);
+
+        recorder.start();
+        for (int count = 0; count < 5; count++) {
+            recorder.record(new RentalAgreement());
+        }
+        recorder.stop();
+
+        assertFalse(recorder.isRunning());
+        assertEquals(5, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(5.0, meterRegistry.get("rental.agreements.write-behind.written").counter().count());
+    }
+
+    @Test
+    void agreementsAreDroppedWhenTheQueueIsFull() throws RentalRequestException {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        WriteBehindRentalAgreementRecorder recorder = newRecorder(batchSizes, meterRegistry, 10, 50, 2);
+
+        assertTrue(recorder.record(new RentalAgreement()));
+        assertTrue(recorder.record(new RentalAgreement()));
+        // the caller is told the agreement was dropped; see CheckoutService.recordAgreement()
+        assertFalse(recorder.record(checkedOutAgreement()));
+        assertFalse(recorder.record(checkedOutAgreement()));
+
+        assertEquals(2, recorder.getQueueDepth());
+        assertEquals(2.0, meterRegistry.get("rental.agreements.write-behind.dropped").counter().count());
+    }
+
+    @Test
+    void failedBatchIsCountedAndTheWriterCarriesOn() {
+        JdbcTemplate jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        Mockito.when(jdbcTemplate.batchUpdate(Mockito.anyString(), Mockito.any(BatchPreparedStatementSetter.class)))
+                .thenThrow(new RuntimeException("database unavailable"));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        WriteBehindRentalAgreementRecorder recorder =
+                new WriteBehindRentalAgreementRecorder(jdbcTemplate, meterRegistry, true, 10, 50, 100);
+
+        for (int count = 0; count < 15; count++) {
+            recorder.record(new RentalAgreement());
+        }
+        recorder.start();
+        recorder.stop();
+
+        assertEquals(15.0, meterRegistry.get("rental.agreements.write-behind.failed").counter().count());
+        assertEquals(0.0, meterRegistry.get("rental.agreements.write-behind.written").counter().count());
+    }
+
+    @Test
+    void disabledRecorderRecordsNothing() {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        JdbcTemplate jdbcTemplate = mockJdbcTemplate(batchSizes);
+        WriteBehindRentalAgreementRecorder recorder =
+                new WriteBehindRentalAgreementRecorder(jdbcTemplate, new SimpleMeterRegistry(), false, 10, 50, 100);
+
+        recorder.start();
+        recorder.record(new RentalAgreement());
+        recorder.stop();
+
+        assertFalse(recorder.isRunning());
+        assertEquals(0, recorder.getQueueDepth());
+        assertTrue(batchSizes.isEmpty());
+    }
+
+    //  A finalized agreement, as recorded by a checkout (whose tool, unit and dates are logged if it is dropped)
+    private static RentalAgreement checkedOutAgreement() throws RentalRequestException {
+        Tool tool = RentalQuoteCacheTest.tool("Ladder", "1.99", true, true, false);
+        ToolService toolService = Mockito.mock(ToolService.class);
+        Mockito.when(toolService.findByCode(tool.getTool_code())).thenReturn(List.of(tool));
+        return new CheckoutService(toolService).checkout(new RentalRequest()
+                .setToolCode(tool.getTool_code())
+                .setCheckoutDate("07/02/20")
+                .setNumberOfRentalDays(3)
+                .setDiscount("10"));
+    }
+
+    private static WriteBehindRentalAgreementRecorder newRecorder(List<Integer> batchSizes, SimpleMeterRegistry meterRegistry,
+                                                                  int batchSize, long flushIntervalMillis, int queueCapacity) {
+        return new WriteBehindRentalAgreementRecorder(mockJdbcTemplate(batchSizes), meterRegistry, true,
+                batchSize, flushIntervalMillis, queueCapacity);
+    }
+
+    //  A JdbcTemplate whose batch inserts only record the number of agreements in each batch
+    private static JdbcTemplate mockJdbcTemplate(List<Integer> batchSizes) {
+        JdbcTemplate jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        Mockito.when(jdbcTemplate.batchUpdate(Mockito.anyString(), Mockito.any(BatchPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    BatchPreparedStatementSetter setter = invocation.getArgument(1);
+                    batchSizes.add(setter.getBatchSize());
+                    return new int[setter.getBatchSize()];
+                });
+        return jdbcTemplate;
+    }
+}